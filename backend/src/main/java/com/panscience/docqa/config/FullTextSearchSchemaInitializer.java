@@ -0,0 +1,43 @@
+package com.panscience.docqa.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the generated {@code content_tsv} column and its GIN index to {@code document_contents}
+ * when the Postgres lexical engine is selected. Hibernate cannot express a generated tsvector
+ * column portably, so the DDL runs here, idempotently, after the schema update.
+ */
+@Component
+@ConditionalOnProperty(name = "app.lexical-search.engine", havingValue = "postgres")
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class FullTextSearchSchemaInitializer {
+
+    public static final String ADD_TSVECTOR_COLUMN_SQL =
+            "ALTER TABLE document_contents ADD COLUMN IF NOT EXISTS content_tsv tsvector " +
+            "GENERATED ALWAYS AS (to_tsvector('english', coalesce(content, ''))) STORED";
+
+    public static final String CREATE_GIN_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_document_contents_content_tsv " +
+            "ON document_contents USING GIN (content_tsv)";
+
+    public static final String CREATE_DOCUMENT_INDEX_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_document_contents_document_id ON document_contents (document_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void createFullTextColumn() {
+        jdbcTemplate.execute(ADD_TSVECTOR_COLUMN_SQL);
+        jdbcTemplate.execute(CREATE_GIN_INDEX_SQL);
+        jdbcTemplate.execute(CREATE_DOCUMENT_INDEX_SQL);
+        log.info("Postgres full-text column and GIN index are in place on document_contents");
+    }
+}
@@ -37,6 +37,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/documents/**").permitAll()  // Allow document access for demo
                         .requestMatchers("/api/chat/**").permitAll()       // Allow chat for demo
+                        .requestMatchers("/api/search/**").permitAll()     // Allow corpus search for demo
                         .requestMatchers("/api/media/**").permitAll()      // Allow media streaming
                         .anyRequest().authenticated()
                 )
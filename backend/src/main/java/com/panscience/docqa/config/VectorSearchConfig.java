@@ -0,0 +1,16 @@
+package com.panscience.docqa.config;
+
+import com.panscience.docqa.service.DotProductKernel;
+import com.panscience.docqa.service.DotProductKernels;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class VectorSearchConfig {
+
+    @Bean
+    public DotProductKernel dotProductKernel(@Value("${app.vector-search.simd:true}") boolean simdEnabled) {
+        return DotProductKernels.select(simdEnabled);
+    }
+}
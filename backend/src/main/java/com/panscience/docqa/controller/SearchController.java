@@ -0,0 +1,52 @@
+package com.panscience.docqa.controller;
+
+import com.panscience.docqa.dto.CorpusSearchResponse;
+import com.panscience.docqa.dto.MultiSearchRequest;
+import com.panscience.docqa.dto.MultiSearchResponse;
+import com.panscience.docqa.dto.PhraseSearchResponse;
+import com.panscience.docqa.service.CorpusSearchService;
+import com.panscience.docqa.service.MultiDocumentSearchService;
+import com.panscience.docqa.service.PhraseSearchService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@Validated
+public class SearchController {
+
+    private final CorpusSearchService corpusSearchService;
+    private final MultiDocumentSearchService multiDocumentSearchService;
+    private final PhraseSearchService phraseSearchService;
+
+    @GetMapping
+    public ResponseEntity<CorpusSearchResponse> search(@RequestParam String query,
+                                                       @RequestParam(defaultValue = "10")
+                                                       @Min(value = 1, message = "topK must be at least 1")
+                                                       @Max(value = 100, message = "topK must be at most 100")
+                                                       int topK) {
+        return ResponseEntity.ok(corpusSearchService.search(query, topK));
+    }
+
+    @PostMapping("/multi")
+    public ResponseEntity<MultiSearchResponse> searchDocuments(@Valid @RequestBody MultiSearchRequest request) {
+        return ResponseEntity.ok(multiDocumentSearchService.search(request));
+    }
+
+    @GetMapping("/phrase")
+    public ResponseEntity<PhraseSearchResponse> searchPhrase(@RequestParam Long documentId,
+                                                             @RequestParam String query,
+                                                             @RequestParam(required = false) Integer within,
+                                                             @RequestParam(defaultValue = "20")
+                                                             @Min(value = 1, message = "limit must be at least 1")
+                                                             @Max(value = 100, message = "limit must be at most 100")
+                                                             int limit) {
+        return ResponseEntity.ok(phraseSearchService.search(documentId, query, within, limit));
+    }
+}
@@ -15,6 +15,8 @@ public class ChatResponse {
     private String response;
     private String sessionId;
     private List<TimestampReference> timestamps;
+    private boolean cached;  // Served from the semantic answer cache
+    private boolean fallback;  // Extractive answer given while the chat model circuit is open
 
     @Data
     @Builder
@@ -0,0 +1,47 @@
+package com.panscience.docqa.dto;
+
+import com.panscience.docqa.entity.DocumentContent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorpusSearchResponse {
+    private String query;
+    private List<Hit> results;
+    private long tookMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private Long documentId;
+        private String documentName;
+        private Long chunkId;
+        private String content;
+        private Float score;
+        private Integer pageNumber;  // PDF only
+        private Double startTime;    // Audio/video only
+        private Double endTime;
+
+        public static Hit from(DocumentContent chunk, Long documentId, String documentName, float score) {
+            return Hit.builder()
+                    .documentId(documentId)
+                    .documentName(documentName)
+                    .chunkId(chunk.getId())
+                    .content(chunk.getContent())
+                    .score(score)
+                    .pageNumber(chunk.getPageNumber())
+                    .startTime(chunk.getStartTime())
+                    .endTime(chunk.getEndTime())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.panscience.docqa.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiSearchRequest {
+
+    @NotBlank(message = "Query is required")
+    private String query;
+
+    // Empty or missing searches all completed documents
+    private List<Long> documentIds;
+
+    @Builder.Default
+    @Min(value = 1, message = "topK must be at least 1")
+    @Max(value = 100, message = "topK must be at most 100")
+    private int topK = 10;
+}
@@ -0,0 +1,32 @@
+package com.panscience.docqa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiSearchResponse {
+    private String query;
+    private List<CorpusSearchResponse.Hit> results;
+    private List<DocumentTiming> documents;
+    private long embeddingMs;
+    private long tookMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DocumentTiming {
+        private Long documentId;
+        private String documentName;
+        private int hits;
+        private double tookMs;
+        private String error;  // Set when this document could not be searched
+    }
+}
@@ -0,0 +1,35 @@
+package com.panscience.docqa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhraseSearchResponse {
+    private Long documentId;
+    private String query;
+    private Integer within;  // Null for an exact phrase match
+    private List<Hit> results;
+    private double tookMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private Long chunkId;
+        private Integer chunkIndex;
+        private String content;
+        private int matches;
+        private Integer pageNumber;  // PDF only
+        private Double startTime;    // Audio/video only
+        private Double endTime;
+        private Double matchTime;    // First match, interpolated by word position within the chunk
+    }
+}
@@ -39,7 +39,13 @@ public class DocumentContent {
     @Column
     private Integer pageNumber;
 
-    // Vector embedding for semantic search (stored as JSON array)
+    // Legacy vector embedding stored as a JSON array; converted to embeddingVector on startup
     @Column(columnDefinition = "TEXT")
     private String embedding;
+
+    // Vector embedding for semantic search (little-endian float32, see EmbeddingCodec). Updated
+    // only by DocumentContentRepository.updateEmbeddingVectors, so setting it on a managed
+    // entity to mirror that write does not cause a second one on flush.
+    @Column(name = "embedding_vector", length = 65536, updatable = false)
+    private byte[] embeddingVector;
 }
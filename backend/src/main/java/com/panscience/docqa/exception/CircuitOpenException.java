@@ -0,0 +1,12 @@
+package com.panscience.docqa.exception;
+
+/**
+ * A circuit breaker is open after recent model calls failed or ran slow, so the call was
+ * refused without contacting the provider.
+ */
+public class CircuitOpenException extends LlmUnavailableException {
+
+    public CircuitOpenException(String name) {
+        super("The " + name + " model is temporarily unavailable, try again shortly");
+    }
+}
@@ -0,0 +1,16 @@
+package com.panscience.docqa.exception;
+
+/**
+ * The language model could not be called right now: its bulkhead had no free slot in time,
+ * or the provider kept answering 429 after the configured retries.
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+
+    public LlmUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
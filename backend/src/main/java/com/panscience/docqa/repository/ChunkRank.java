@@ -0,0 +1,9 @@
+package com.panscience.docqa.repository;
+
+/**
+ * Projection of a ranked full-text match: chunk id and its {@code ts_rank_cd} score.
+ */
+public interface ChunkRank {
+    Long getId();
+    Float getRank();
+}
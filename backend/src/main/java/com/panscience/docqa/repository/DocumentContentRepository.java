@@ -1,6 +1,7 @@
 package com.panscience.docqa.repository;
 
 import com.panscience.docqa.entity.DocumentContent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,7 +10,8 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long> {
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long>,
+        DocumentContentRepositoryCustom {
 
     List<DocumentContent> findByDocumentIdOrderByChunkIndex(Long documentId);
 
@@ -22,5 +24,21 @@ public interface DocumentContentRepository extends JpaRepository<DocumentContent
     List<DocumentContent> searchByKeyword(@Param("documentId") Long documentId, 
                                           @Param("keyword") String keyword);
 
+    // Postgres only: needs the content_tsv column from FullTextSearchSchemaInitializer.
+    // tsQuery is a to_tsquery expression such as '(churn | chern) & revenue'
+    @Query(value = "SELECT dc.id AS id, ts_rank_cd(dc.content_tsv, q) AS rank " +
+                   "FROM document_contents dc, to_tsquery('english', :tsQuery) q " +
+                   "WHERE dc.document_id = :documentId AND dc.content_tsv @@ q " +
+                   "ORDER BY rank DESC LIMIT :limit", nativeQuery = true)
+    List<ChunkRank> searchFullText(@Param("documentId") Long documentId,
+                                   @Param("tsQuery") String tsQuery,
+                                   @Param("limit") int limit);
+
+    List<DocumentContent> findByEmbeddingIsNotNullAndEmbeddingVectorIsNull(Pageable pageable);
+
+    long countByDocumentIdAndEmbeddingVectorIsNotNull(Long documentId);
+
+    long countByDocumentId(Long documentId);
+
     void deleteByDocumentId(Long documentId);
 }
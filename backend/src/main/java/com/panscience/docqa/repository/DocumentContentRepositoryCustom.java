@@ -0,0 +1,18 @@
+package com.panscience.docqa.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface DocumentContentRepositoryCustom {
+
+    /**
+     * Writes encoded embeddings for many chunks as a single JDBC batch, on the caller's
+     * transaction. Fails if any chunk row was not updated.
+     */
+    void updateEmbeddingVectors(Map<Long, byte[]> vectorsByContentId);
+
+    /**
+     * Reads only the encoded embeddings of the given chunks, skipping chunks without one.
+     */
+    Map<Long, byte[]> findEmbeddingVectors(Collection<Long> contentIds);
+}
@@ -0,0 +1,64 @@
+package com.panscience.docqa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class DocumentContentRepositoryImpl implements DocumentContentRepositoryCustom {
+
+    private static final String UPDATE_EMBEDDING_SQL =
+            "UPDATE document_contents SET embedding_vector = ? WHERE id = ?";
+
+    private static final String SELECT_EMBEDDINGS_SQL =
+            "SELECT id, embedding_vector FROM document_contents WHERE embedding_vector IS NOT NULL AND id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void updateEmbeddingVectors(Map<Long, byte[]> vectorsByContentId) {
+        if (vectorsByContentId.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, byte[]>> rows = new ArrayList<>(vectorsByContentId.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_EMBEDDING_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setBytes(1, row.getValue());
+            ps.setLong(2, row.getKey());
+        });
+
+        // A row that is missing or not visible to this transaction would otherwise lose its vector silently
+        int updated = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        if (updated != rows.size()) {
+            throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(UPDATE_EMBEDDING_SQL, rows.size(), updated);
+        }
+    }
+
+    @Override
+    public Map<Long, byte[]> findEmbeddingVectors(Collection<Long> contentIds) {
+        if (contentIds.isEmpty()) {
+            return Map.of();
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(contentIds.size(), "?"));
+        Map<Long, byte[]> vectors = new HashMap<>(contentIds.size() * 2);
+        jdbcTemplate.query(SELECT_EMBEDDINGS_SQL.formatted(placeholders), rs -> {
+            vectors.put(rs.getLong(1), rs.getBytes(2));
+        }, contentIds.toArray());
+        return vectors;
+    }
+}
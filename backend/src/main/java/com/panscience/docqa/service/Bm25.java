@@ -0,0 +1,23 @@
+package com.panscience.docqa.service;
+
+/**
+ * Okapi BM25 term weighting with the usual defaults (k1 = 1.2, b = 0.75).
+ */
+public final class Bm25 {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private Bm25() {
+    }
+
+    /** Inverse document frequency; always positive, even for terms in most chunks. */
+    public static double idf(int chunkCount, int documentFrequency) {
+        return Math.log(1 + (chunkCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    public static double termScore(int termFrequency, int chunkLength, double averageChunkLength, double idf) {
+        double norm = K1 * (1 - B + B * chunkLength / Math.max(averageChunkLength, 1e-9));
+        return idf * termFrequency * (K1 + 1) / (termFrequency + norm);
+    }
+}
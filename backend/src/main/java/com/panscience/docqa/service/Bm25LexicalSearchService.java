@@ -0,0 +1,82 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks a document's chunks with BM25 from its {@link DocumentTermIndex}. Only the postings
+ * of the query terms are decoded, and only the winning chunks are read from the database.
+ * Query terms are first expanded with their fuzzy variants; a chunk scores the best of a
+ * term's variants, scaled by that variant's weight.
+ */
+@Service
+@ConditionalOnProperty(name = "app.lexical-search.engine", havingValue = "bm25", matchIfMissing = true)
+@RequiredArgsConstructor
+public class Bm25LexicalSearchService implements LexicalSearchService {
+
+    private final DocumentContentRepository documentContentRepository;
+    private final TermIndexStore termIndexStore;
+    private final FuzzyTermExpander fuzzyTermExpander;
+
+    @Override
+    public List<ScoredChunk> search(Long documentId, String query, int topK, Match match) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextAnalyzer.tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        DocumentTermIndex index = termIndexStore.get(documentId);
+        List<FuzzyTermExpander.Expansion> expansions = fuzzyTermExpander.expand(index, queryTerms);
+        float[] scores = new float[index.chunkCount()];
+        float[] termScores = new float[index.chunkCount()];
+        Set<String> allTerms = new LinkedHashSet<>();
+        for (FuzzyTermExpander.Expansion expansion : expansions) {
+            Arrays.fill(termScores, 0f);
+            for (Map.Entry<String, Float> variant : expansion.weights().entrySet()) {
+                DocumentTermIndex.Postings postings = index.postings(variant.getKey());
+                double idf = Bm25.idf(index.chunkCount(), postings.size());
+                for (int i = 0; i < postings.size(); i++) {
+                    int row = postings.rows()[i];
+                    float score = variant.getValue() * (float) Bm25.termScore(postings.frequencies()[i],
+                            index.chunkLength(row), index.averageChunkLength(), idf);
+                    termScores[row] = Math.max(termScores[row], score);
+                }
+            }
+            for (int row = 0; row < scores.length; row++) {
+                scores[row] += termScores[row];
+            }
+            allTerms.addAll(expansion.terms());
+        }
+
+        // Rows outside the boolean match are excluded from ranking altogether
+        int[] matching = match == Match.ALL
+                ? index.matchEachGroup(expansions.stream().map(FuzzyTermExpander.Expansion::terms).toList())
+                : index.matchAny(allTerms);
+        float[] candidates = new float[scores.length];
+        Arrays.fill(candidates, Float.NaN);
+        for (int row : matching) {
+            candidates[row] = scores[row];
+        }
+
+        int[] topRows = TopKSelector.select(candidates, candidates.length, topK);
+        List<Long> chunkIds = Arrays.stream(topRows).mapToObj(index::chunkId).toList();
+        Map<Long, DocumentContent> chunks = documentContentRepository.findAllById(chunkIds).stream()
+                .collect(Collectors.toMap(DocumentContent::getId, Function.identity()));
+
+        List<ScoredChunk> results = new ArrayList<>(topRows.length);
+        for (int i = 0; i < topRows.length; i++) {
+            DocumentContent chunk = chunks.get(chunkIds.get(i));
+            if (chunk != null) {
+                results.add(new ScoredChunk(chunk, candidates[topRows[i]]));
+            }
+        }
+        return results;
+    }
+}
@@ -2,7 +2,15 @@ package com.panscience.docqa.service;
 
 import com.panscience.docqa.dto.ChatRequest;
 import com.panscience.docqa.dto.ChatResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public interface ChatService {
     ChatResponse chat(ChatRequest request);
+
+    /**
+     * Streams the answer as Server-Sent Events: a {@code session} event, one {@code token}
+     * event per generated token and a final {@code timestamps} event, or {@code error}.
+     * The chat message is persisted once generation completes.
+     */
+    SseEmitter streamChat(ChatRequest request);
 }
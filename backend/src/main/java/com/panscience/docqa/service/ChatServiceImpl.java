@@ -5,24 +5,42 @@ import com.panscience.docqa.dto.ChatResponse;
 import com.panscience.docqa.entity.ChatMessage;
 import com.panscience.docqa.entity.Document;
 import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.CircuitOpenException;
 import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.exception.LlmUnavailableException;
 import com.panscience.docqa.repository.ChatMessageRepository;
 import com.panscience.docqa.repository.DocumentContentRepository;
 import com.panscience.docqa.repository.DocumentRepository;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Answers questions about one document in three phases so no pooled connection is held
+ * while the model generates: reads run in short read-only transactions, the LLM call runs
+ * outside any transaction, and the ChatMessage is written in its own short transaction.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -31,34 +49,30 @@ public class ChatServiceImpl implements ChatService {
     private final DocumentRepository documentRepository;
     private final DocumentContentRepository documentContentRepository;
     private final ChatMessageRepository chatMessageRepository;
+    private final HybridSearchService hybridSearchService;
     private final VectorSearchService vectorSearchService;
-
-    @Value("${openai.api-key}")
-    private String openaiApiKey;
-
-    @Value("${openai.model}")
-    private String modelName;
+    private final SemanticAnswerCache answerCache;
+    private final ContextPacker contextPacker;
+    private final LlmGateway llmGateway;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
 
     @Value("${app.mock-ai:true}")
     private boolean useMockAi;
 
+    @Value("${app.chat.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
+
     private ChatLanguageModel chatModel;
+    private StreamingChatLanguageModel streamingChatModel;
+    private final SingleFlight<String, Answer> inFlight = new SingleFlight<>();
 
     @PostConstruct
     public void init() {
-        if (!useMockAi && openaiApiKey != null && !openaiApiKey.contains("placeholder")) {
-            try {
-                this.chatModel = OpenAiChatModel.builder()
-                        .apiKey(openaiApiKey)
-                        .modelName(modelName)
-                        .maxTokens(2000)
-                        .temperature(0.7)
-                        .build();
-                log.info("OpenAI ChatModel initialized for chat service");
-            } catch (Exception e) {
-                log.warn("Failed to initialize OpenAI for chat, using mock mode: {}", e.getMessage());
-                useMockAi = true;
-            }
+        if (!useMockAi && llmGateway.isEnabled()) {
+            this.chatModel = llmGateway.chatModel();
+            this.streamingChatModel = llmGateway.streamingChatModel();
+            log.info("Chat service using the shared OpenAI chat lane");
         } else {
             log.info("Using mock AI mode for chat (no OpenAI cost)");
             useMockAi = true;
@@ -66,48 +80,271 @@ public class ChatServiceImpl implements ChatService {
     }
 
     @Override
-    @Transactional
     public ChatResponse chat(ChatRequest request) {
-        Document document = documentRepository.findById(request.getDocumentId())
-                .orElseThrow(() -> new DocumentNotFoundException(request.getDocumentId()));
+        long start = System.nanoTime();
+        Document document = loadDocument(request.getDocumentId());
 
         String sessionId = request.getSessionId() != null ? request.getSessionId() : UUID.randomUUID().toString();
 
-        // Get relevant content chunks using vector search or keyword search
-        List<DocumentContent> relevantContent = findRelevantContent(document, request.getMessage());
-
-        // Build context from relevant content
-        String context = buildContext(relevantContent);
-
-        // Get AI response (mock or real)
-        String aiResponse;
-        if (useMockAi) {
-            aiResponse = generateMockChatResponse(request.getMessage(), document, context);
-        } else {
-            String prompt = buildPrompt(request.getMessage(), context, document);
-            aiResponse = chatModel.generate(prompt);
+        // Identical questions arriving together share one retrieval and model call; every
+        // caller still gets its own session and ChatMessage row
+        SingleFlight.Result<Answer> flight = inFlight.execute(
+                document.getId() + "\u0000" + QueryEmbeddingCache.normalize(request.getMessage()),
+                () -> answer(document, request.getMessage(), start));
+        Answer answer = flight.value();
+        if (flight.shared()) {
+            meterRegistry.counter("chat.coalesced").increment();
         }
 
-        // Extract timestamps if applicable
-        List<ChatResponse.TimestampReference> timestamps = extractTimestamps(relevantContent, document);
-
-        // Save chat message
-        ChatMessage chatMessage = ChatMessage.builder()
+        saveMessage(ChatMessage.builder()
                 .sessionId(sessionId)
                 .document(document)
                 .userMessage(request.getMessage())
-                .aiResponse(aiResponse)
-                .timestampReferences(serializeTimestamps(timestamps))
-                .build();
-        chatMessageRepository.save(chatMessage);
+                .aiResponse(answer.response())
+                .timestampReferences(serializeTimestamps(answer.timestamps()))
+                .build());
 
         return ChatResponse.builder()
-                .response(aiResponse)
+                .response(answer.response())
                 .sessionId(sessionId)
-                .timestamps(timestamps)
+                .timestamps(answer.timestamps())
+                .cached(answer.cached())
+                .fallback(answer.fallback())
                 .build();
     }
 
+    private record Answer(String response, List<ChatResponse.TimestampReference> timestamps, boolean cached,
+                          boolean fallback) {
+    }
+
+    private Answer answer(Document document, String question, long start) {
+        // Near-identical earlier questions are answered without retrieval or the model. The
+        // embedding is cached, so hybrid search below reuses it on a miss.
+        float[] queryVector = embedQuery(question);
+        long cacheGeneration = answerCache.generation(document.getId());
+        ChatResponse cached = answerCache.lookup(document.getId(), queryVector);
+        if (cached != null) {
+            firstTokenTimer("blocking").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return new Answer(cached.getResponse(), cached.getTimestamps(), true, false);
+        }
+
+        // Get relevant content chunks; hybrid search embeds the query without holding a connection
+        List<DocumentContent> relevantContent = findRelevantContent(document, question);
+
+        // Pack the most relevant chunks into the prompt's token budget
+        ContextPacker.PackedContext context = packContext(question, relevantContent, document);
+
+        // Get AI response (mock or real), outside any transaction
+        String aiResponse;
+        boolean fallback = false;
+        if (useMockAi) {
+            aiResponse = generateMockChatResponse(question, document, context.text());
+        } else {
+            String prompt = buildPrompt(question, context.text(), document);
+            try {
+                aiResponse = chatModel.generate(prompt);
+            } catch (CircuitOpenException e) {
+                // The model is failing; answer at once from the retrieved passages instead of waiting on it
+                meterRegistry.counter("chat.fallback").increment();
+                aiResponse = ExtractiveAnswer.from(question, context.chunks());
+                fallback = true;
+            }
+        }
+        // Nothing reaches a blocking client before the whole answer does
+        firstTokenTimer("blocking").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // Extract timestamps if applicable; only chunks that made it into the prompt are cited
+        List<ChatResponse.TimestampReference> timestamps = extractTimestamps(context.chunks(), document);
+        if (!fallback) {
+            cacheAnswer(document.getId(), cacheGeneration, queryVector, aiResponse, timestamps);
+        }
+        return new Answer(aiResponse, timestamps, false, fallback);
+    }
+
+    /**
+     * Embeds the question for the answer cache, or returns null when the embedding model is
+     * unavailable; hybrid search then ranks by keywords alone.
+     */
+    private float[] embedQuery(String question) {
+        try {
+            return vectorSearchService.embedQuery(question);
+        } catch (RuntimeException e) {
+            log.warn("Query embedding failed, skipping the answer cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public SseEmitter streamChat(ChatRequest request) {
+        long start = System.nanoTime();
+        Document document = loadDocument(request.getDocumentId());
+
+        String sessionId = request.getSessionId() != null ? request.getSessionId() : UUID.randomUUID().toString();
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        float[] queryVector = embedQuery(request.getMessage());
+        long cacheGeneration = answerCache.generation(document.getId());
+        ChatResponse cached = answerCache.lookup(document.getId(), queryVector);
+        if (cached != null) {
+            // Sent as one token; the stream is not given the vector so the answer is not re-cached
+            ChatStream stream = new ChatStream(emitter, document, request.getMessage(), sessionId,
+                    cached.getTimestamps(), null, cacheGeneration, start);
+            stream.send("session", Map.of("sessionId", sessionId));
+            stream.onNext(cached.getResponse());
+            stream.onComplete(Response.from(AiMessage.from(cached.getResponse())));
+            return emitter;
+        }
+
+        List<DocumentContent> relevantContent = findRelevantContent(document, request.getMessage());
+        ContextPacker.PackedContext context = packContext(request.getMessage(), relevantContent, document);
+        List<ChatResponse.TimestampReference> timestamps = extractTimestamps(context.chunks(), document);
+
+        ChatStream stream = new ChatStream(emitter, document, request.getMessage(), sessionId, timestamps,
+                queryVector, cacheGeneration, start);
+        stream.send("session", Map.of("sessionId", sessionId));
+
+        if (useMockAi) {
+            // Events sent before the emitter is returned are buffered and flushed by Spring MVC
+            String aiResponse = generateMockChatResponse(request.getMessage(), document, context.text());
+            for (String token : aiResponse.split("(?<=\\s)")) {
+                stream.onNext(token);
+            }
+            stream.onComplete(Response.from(AiMessage.from(aiResponse)));
+        } else {
+            try {
+                streamingChatModel.generate(buildPrompt(request.getMessage(), context.text(), document), stream);
+            } catch (CircuitOpenException e) {
+                // Sent as one token after a fallback event; the stream has no vector so nothing is cached
+                meterRegistry.counter("chat.fallback").increment();
+                String fallback = ExtractiveAnswer.from(request.getMessage(), context.chunks());
+                ChatStream fallbackStream = new ChatStream(emitter, document, request.getMessage(), sessionId,
+                        timestamps, null, cacheGeneration, start);
+                fallbackStream.send("fallback", Map.of("reason", e.getMessage()));
+                fallbackStream.onNext(fallback);
+                fallbackStream.onComplete(Response.from(AiMessage.from(fallback)));
+            } catch (RuntimeException e) {
+                // No free chat slot: the client already has an open stream, so report it there
+                stream.onError(e);
+            }
+        }
+        return emitter;
+    }
+
+    private Document loadDocument(Long documentId) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> documentRepository.findById(documentId)
+                .orElseThrow(() -> new DocumentNotFoundException(documentId)));
+    }
+
+    private void saveMessage(ChatMessage chatMessage) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> chatMessageRepository.save(chatMessage));
+    }
+
+    private void cacheAnswer(Long documentId, long cacheGeneration, float[] queryVector, String aiResponse,
+                             List<ChatResponse.TimestampReference> timestamps) {
+        // Demo answers echo the question, so they must never be served for another one
+        if (!useMockAi) {
+            answerCache.put(documentId, cacheGeneration, queryVector, ChatResponse.builder()
+                    .response(aiResponse)
+                    .timestamps(timestamps)
+                    .build());
+        }
+    }
+
+    private Timer firstTokenTimer(String mode) {
+        return Timer.builder("chat.time.to.first.token")
+                .description("Time from receiving a question until the first answer token reaches the client")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Relays tokens from the streaming model to the client. Tokens go out as JSON so leading
+     * whitespace survives SSE framing. If the client disconnects, generation still completes
+     * and the answer is still saved.
+     */
+    private class ChatStream implements StreamingResponseHandler<AiMessage> {
+
+        private final SseEmitter emitter;
+        private final Document document;
+        private final String question;
+        private final String sessionId;
+        private final List<ChatResponse.TimestampReference> timestamps;
+        private final float[] queryVector;
+        private final long cacheGeneration;
+        private final long start;
+        private final StringBuilder answer = new StringBuilder();
+        private boolean firstToken = true;
+        private volatile boolean clientGone;
+
+        ChatStream(SseEmitter emitter, Document document, String question, String sessionId,
+                   List<ChatResponse.TimestampReference> timestamps, float[] queryVector, long cacheGeneration,
+                   long start) {
+            this.emitter = emitter;
+            this.document = document;
+            this.question = question;
+            this.sessionId = sessionId;
+            this.timestamps = timestamps;
+            this.queryVector = queryVector;
+            this.cacheGeneration = cacheGeneration;
+            this.start = start;
+            emitter.onTimeout(() -> clientGone = true);
+            emitter.onError(error -> clientGone = true);
+        }
+
+        @Override
+        public void onNext(String token) {
+            if (firstToken) {
+                firstToken = false;
+                firstTokenTimer("stream").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            answer.append(token);
+            send("token", Map.of("text", token));
+        }
+
+        @Override
+        public void onComplete(Response<AiMessage> response) {
+            String aiResponse = response != null && response.content() != null && response.content().text() != null
+                    ? response.content().text()
+                    : answer.toString();
+            saveMessage(ChatMessage.builder()
+                    .sessionId(sessionId)
+                    .document(document)
+                    .userMessage(question)
+                    .aiResponse(aiResponse)
+                    .timestampReferences(serializeTimestamps(timestamps))
+                    .build());
+            cacheAnswer(document.getId(), cacheGeneration, queryVector, aiResponse, timestamps);
+            meterRegistry.timer("chat.stream.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            send("timestamps", timestamps);
+            emitter.complete();
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            log.error("Streaming chat failed for document {}: {}", document.getId(), error.getMessage());
+            String message = error instanceof LlmUnavailableException
+                    ? error.getMessage() : "Failed to generate a response";
+            send("error", Map.of("message", message));
+            emitter.complete();
+        }
+
+        void send(String event, Object data) {
+            if (clientGone) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Chat stream client for session {} went away: {}", sessionId, e.getMessage());
+                clientGone = true;
+            }
+        }
+    }
+
     private String generateMockChatResponse(String question, Document document, String context) {
         String preview = context.length() > 300 ? context.substring(0, 300) + "..." : context;
         
@@ -128,52 +365,23 @@ public class ChatServiceImpl implements ChatService {
 
 
     private List<DocumentContent> findRelevantContent(Document document, String query) {
-        // Try vector search first
-        List<DocumentContent> results = vectorSearchService.search(document.getId(), query, 5);
-        
-        if (results.isEmpty()) {
-            // Fallback to keyword search
-            results = documentContentRepository.searchByKeyword(document.getId(), extractKeywords(query));
-        }
+        // Lexical and vector rankings are computed together and fused in one pass
+        List<DocumentContent> results = hybridSearchService.search(document.getId(), query, 5).stream()
+                .map(ScoredChunk::chunk)
+                .collect(Collectors.toList());
 
         if (results.isEmpty()) {
-            // Return all content if no specific matches
+            // Fall back to the whole document; the packer keeps as much of it as fits, from the start
             results = documentContentRepository.findByDocumentIdOrderByChunkIndex(document.getId());
         }
 
         return results;
     }
 
-    private String extractKeywords(String query) {
-        // Simple keyword extraction - take first significant word
-        String[] words = query.toLowerCase().split("\\s+");
-        for (String word : words) {
-            if (word.length() > 3 && !isStopWord(word)) {
-                return word;
-            }
-        }
-        return query.split("\\s+")[0];
-    }
-
-    private boolean isStopWord(String word) {
-        List<String> stopWords = List.of("what", "where", "when", "which", "who", "whom", 
-                "this", "that", "these", "those", "about", "from", "with", "have", "been");
-        return stopWords.contains(word);
-    }
-
-    private String buildContext(List<DocumentContent> contents) {
-        return contents.stream()
-                .map(content -> {
-                    StringBuilder sb = new StringBuilder();
-                    if (content.getStartTime() != null) {
-                        sb.append("[").append(formatTime(content.getStartTime())).append("] ");
-                    } else if (content.getPageNumber() != null) {
-                        sb.append("[Page ").append(content.getPageNumber()).append("] ");
-                    }
-                    sb.append(content.getContent());
-                    return sb.toString();
-                })
-                .collect(Collectors.joining("\n\n"));
+    private ContextPacker.PackedContext packContext(String question, List<DocumentContent> relevantContent,
+                                                    Document document) {
+        // The prompt without context tells the packer how much of the model window is left
+        return contextPacker.pack(relevantContent, buildPrompt(question, "", document));
     }
 
     private String buildPrompt(String question, String context, Document document) {
@@ -0,0 +1,149 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.exception.CircuitOpenException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker over the last {@code window} calls. It opens when, after at
+ * least {@code minimumCalls}, the share of failed or of slow calls reaches its threshold;
+ * while open, calls are refused with {@link CircuitOpenException} without waiting. After
+ * {@code openDuration} it lets {@code halfOpenCalls} probes through: if all succeed in time
+ * it closes, and any failure or slow probe opens it again.
+ */
+@Slf4j
+final class CircuitBreaker {
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final Counter rejected;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesLeft;
+    private int probesSucceeded;
+
+    CircuitBreaker(String name, MeterRegistry meterRegistry, int window, int minimumCalls,
+                   double failureRateThreshold, double slowCallRateThreshold, Duration slowCallDuration,
+                   Duration openDuration, int halfOpenCalls, LongSupplier nanoClock) {
+        this.name = name;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.failed = new boolean[window];
+        this.slow = new boolean[window];
+        this.rejected = meterRegistry.counter("llm.circuit.rejected", "name", name);
+        Gauge.builder("llm.circuit.state", this, breaker -> breaker.state().ordinal())
+                .description("0 closed, 1 half-open, 2 open")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    /**
+     * Admits a call or throws {@link CircuitOpenException}. Every admitted call must end in
+     * exactly one of {@link #onSuccess}, {@link #onError} or {@link #onIgnored}.
+     */
+    synchronized void acquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            transition(State.HALF_OPEN);
+            probesLeft = halfOpenCalls;
+            probesSucceeded = 0;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probesLeft == 0)) {
+            rejected.increment();
+            throw new CircuitOpenException(name);
+        }
+        if (state == State.HALF_OPEN) {
+            probesLeft--;
+        }
+    }
+
+    synchronized void onSuccess(long durationNanos) {
+        boolean isSlow = durationNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (isSlow) {
+                open();
+            } else if (++probesSucceeded == halfOpenCalls) {
+                transition(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false, isSlow);
+        }
+    }
+
+    synchronized void onError(long durationNanos) {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true, durationNanos > slowCallNanos);
+        }
+    }
+
+    /** The call ended without telling anything about the provider, e.g. it was cancelled. */
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probesLeft++;
+        }
+    }
+
+    private void record(boolean isFailure, boolean isSlow) {
+        failed[next] = isFailure;
+        slow[next] = isSlow;
+        next = (next + 1) % failed.length;
+        recorded = Math.min(recorded + 1, failed.length);
+        if (recorded < minimumCalls) {
+            return;
+        }
+
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < recorded; i++) {
+            failures += failed[i] ? 1 : 0;
+            slowCalls += slow[i] ? 1 : 0;
+        }
+        if (failures >= failureRateThreshold * recorded || slowCalls >= slowCallRateThreshold * recorded) {
+            log.warn("Opening {} circuit: {} failed and {} slow of the last {} calls", name, failures, slowCalls, recorded);
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = nanoClock.getAsLong();
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        if (state != to) {
+            log.info("{} circuit {} -> {}", name, state, to);
+        }
+        state = to;
+        // Each closed period starts with an empty window
+        recorded = 0;
+        next = 0;
+    }
+}
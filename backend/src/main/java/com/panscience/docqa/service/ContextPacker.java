@@ -0,0 +1,193 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Builds the document context of a chat prompt under a token budget. Chunks are taken in
+ * relevance order while they fit, counted with the model's local BPE tokenizer, and chunks
+ * that are adjacent in the document are merged into one block, each line keeping its own
+ * {@code [mm:ss]} or {@code [Page n]} header so every passage stays citable. The budget is the smaller
+ * of {@code app.chat.context.max-tokens} and what the model window leaves after the rest of
+ * the prompt and the answer. Only the {@code app.chat.context.max-candidates} best ranked
+ * chunks are considered, so a whole-document fallback is not tokenized chunk by chunk.
+ */
+@Component
+@Slf4j
+public class ContextPacker {
+
+    // cl100k_base; used when the installed tokenizer does not know the configured model yet
+    private static final String FALLBACK_TOKENIZER_MODEL = "gpt-3.5-turbo";
+    private static final String BLOCK_SEPARATOR = "\n\n";
+    private static final String CHUNK_SEPARATOR = "\n";
+
+    private final Tokenizer tokenizer;
+    private final int maxContextTokens;
+    private final int modelWindowTokens;
+    private final int maxAnswerTokens;
+    private final int maxCandidates;
+    private final int minChunkTokens;
+    private final DistributionSummary contextTokens;
+
+    public ContextPacker(MeterRegistry meterRegistry,
+                         @Value("${openai.model}") String modelName,
+                         @Value("${app.chat.context.max-tokens:6000}") int maxContextTokens,
+                         @Value("${app.chat.context.model-window-tokens:128000}") int modelWindowTokens,
+                         @Value("${app.chat.max-answer-tokens:2000}") int maxAnswerTokens,
+                         @Value("${app.chat.context.max-candidates:64}") int maxCandidates) {
+        this.tokenizer = tokenizerFor(modelName);
+        this.maxContextTokens = maxContextTokens;
+        this.modelWindowTokens = modelWindowTokens;
+        this.maxAnswerTokens = maxAnswerTokens;
+        this.maxCandidates = maxCandidates;
+        // The cheapest chunk there can be: one token of content and its separator
+        this.minChunkTokens = countTokens(BLOCK_SEPARATOR) + 1;
+        this.contextTokens = DistributionSummary.builder("chat.context.tokens")
+                .description("Tokens of document context sent with each chat prompt")
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+    }
+
+    public record PackedContext(String text, List<DocumentContent> chunks, int tokens) {
+    }
+
+    /**
+     * Packs {@code ranked} (most relevant first) into a context for a prompt whose remaining
+     * text is {@code promptWithoutContext}. The returned chunks are those included, in
+     * relevance order. Chunks that do not fit are skipped so smaller, less relevant ones can
+     * still fill the budget; if not even the most relevant chunk fits, it is truncated.
+     */
+    public PackedContext pack(List<DocumentContent> ranked, String promptWithoutContext) {
+        int budget = Math.min(maxContextTokens,
+                modelWindowTokens - maxAnswerTokens - countTokens(promptWithoutContext));
+        if (budget <= 0 || ranked.isEmpty()) {
+            log.warn("No room for document context: prompt leaves {} of {} tokens", budget, modelWindowTokens);
+            return new PackedContext("", List.of(), 0);
+        }
+
+        List<DocumentContent> selected = new ArrayList<>();
+        int used = 0;
+        for (DocumentContent chunk : ranked.subList(0, Math.min(ranked.size(), maxCandidates))) {
+            if (budget - used < minChunkTokens) {
+                break;  // Full; tokenizing the rest could not add anything
+            }
+            // A chunk rendered on its own is an upper bound for its share of a merged block
+            int cost = countTokens(header(chunk) + chunk.getContent() + BLOCK_SEPARATOR);
+            if (used + cost <= budget) {
+                selected.add(chunk);
+                used += cost;
+            }
+        }
+
+        if (selected.isEmpty()) {
+            DocumentContent truncated = truncateToFit(ranked.get(0), budget);
+            selected.add(truncated);
+        }
+
+        String text = render(selected);
+        int tokens = countTokens(text);
+        contextTokens.record(tokens);
+        if (selected.size() < ranked.size()) {
+            log.debug("Context packed {} of {} chunks into {} tokens (budget {})",
+                    selected.size(), ranked.size(), tokens, budget);
+        }
+        return new PackedContext(text, selected, tokens);
+    }
+
+    public int countTokens(String text) {
+        return text.isEmpty() ? 0 : tokenizer.estimateTokenCountInText(text);
+    }
+
+    /**
+     * Groups chunks with consecutive chunk indexes into one block each, ordered by the most
+     * relevant chunk of the block, with the block's chunks in document order.
+     */
+    private String render(List<DocumentContent> selected) {
+        Map<DocumentContent, Integer> rank = new IdentityHashMap<>();
+        for (int i = 0; i < selected.size(); i++) {
+            rank.put(selected.get(i), i);
+        }
+        List<DocumentContent> inDocumentOrder = new ArrayList<>(selected);
+        inDocumentOrder.sort(Comparator.comparing(DocumentContent::getChunkIndex,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<List<DocumentContent>> blocks = new ArrayList<>();
+        List<DocumentContent> current = null;
+        for (DocumentContent chunk : inDocumentOrder) {
+            if (current != null && isNextChunk(current.get(current.size() - 1), chunk)) {
+                current.add(chunk);
+            } else {
+                current = new ArrayList<>();
+                current.add(chunk);
+                blocks.add(current);
+            }
+        }
+        blocks.sort(Comparator.comparingInt(block -> block.stream().mapToInt(rank::get).min().orElse(0)));
+
+        StringJoiner context = new StringJoiner(BLOCK_SEPARATOR);
+        for (List<DocumentContent> block : blocks) {
+            StringJoiner body = new StringJoiner(CHUNK_SEPARATOR);
+            block.forEach(chunk -> body.add(header(chunk) + chunk.getContent()));
+            context.add(body.toString());
+        }
+        return context.toString();
+    }
+
+    private static boolean isNextChunk(DocumentContent previous, DocumentContent next) {
+        return previous.getChunkIndex() != null && next.getChunkIndex() != null
+                && next.getChunkIndex() == previous.getChunkIndex() + 1;
+    }
+
+    private DocumentContent truncateToFit(DocumentContent chunk, int budget) {
+        String header = header(chunk);
+        String content = chunk.getContent();
+        // Cut proportionally, then trim further while the tokenizer still disagrees
+        int length = (int) ((long) content.length() * budget / Math.max(1, countTokens(header + content)));
+        while (length > 0 && countTokens(header + content.substring(0, length)) > budget) {
+            length = length * 9 / 10;
+        }
+        return DocumentContent.builder()
+                .id(chunk.getId())
+                .document(chunk.getDocument())
+                .content(content.substring(0, length))
+                .chunkIndex(chunk.getChunkIndex())
+                .startTime(chunk.getStartTime())
+                .endTime(chunk.getEndTime())
+                .pageNumber(chunk.getPageNumber())
+                .build();
+    }
+
+    static String header(DocumentContent chunk) {
+        if (chunk.getStartTime() != null) {
+            return "[" + formatTime(chunk.getStartTime()) + "] ";
+        }
+        if (chunk.getPageNumber() != null) {
+            return "[Page " + chunk.getPageNumber() + "] ";
+        }
+        return "";
+    }
+
+    private static String formatTime(double seconds) {
+        return String.format("%02d:%02d", (int) (seconds / 60), (int) (seconds % 60));
+    }
+
+    private static Tokenizer tokenizerFor(String modelName) {
+        try {
+            Tokenizer tokenizer = new OpenAiTokenizer(modelName);
+            tokenizer.estimateTokenCountInText("probe");
+            return tokenizer;
+        } catch (RuntimeException e) {
+            log.info("No local tokenizer for model {}, counting context tokens with {} instead",
+                    modelName, FALLBACK_TOKENIZER_MODEL);
+            return new OpenAiTokenizer(FALLBACK_TOKENIZER_MODEL);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.CorpusSearchResponse;
+
+public interface CorpusSearchService {
+    void indexDocument(Long documentId);
+    void removeDocument(Long documentId);
+    CorpusSearchResponse search(String query, int topK);
+
+    /**
+     * Indexes processed documents missing from the corpus index, in the background after
+     * startup. Declared here because the {@code @Async} proxy only exposes interface methods.
+     */
+    void indexMissingDocuments();
+}
@@ -0,0 +1,241 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.CorpusSearchResponse;
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import com.panscience.docqa.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Corpus-wide semantic search backed by an in-process {@link HnswIndex}. Documents are
+ * inserted when processing completes and tombstoned on delete; the graph is persisted
+ * under {@code app.upload-dir} and rebuilt from the database for any completed document
+ * it is missing at startup. Writing the graph rewrites every vector, so changes are
+ * persisted in the background at most once per {@code app.corpus-index.persist-delay}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CorpusSearchServiceImpl implements CorpusSearchService {
+
+    private static final String INDEX_FILE = "corpus.hnsw";
+
+    private final DocumentRepository documentRepository;
+    private final DocumentContentRepository documentContentRepository;
+    private final VectorSearchService vectorSearchService;
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.corpus-index.m:16}")
+    private int m;
+
+    @Value("${app.corpus-index.ef-construction:100}")
+    private int efConstruction;
+
+    @Value("${app.corpus-index.ef-search:128}")
+    private int efSearch;
+
+    @Value("${app.corpus-index.compact-ratio:0.3}")
+    private double compactRatio;
+
+    @Value("${app.corpus-index.persist-delay:PT10S}")
+    private Duration persistDelay;
+
+    private volatile HnswIndex index;
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+    private final Object persistLock = new Object();
+    private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "corpus-index-persist");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        Path indexFile = indexFile();
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            index = HnswIndex.readFrom(in);
+            log.info("Loaded corpus index with {} vectors from {}", index.size(), indexFile);
+        } catch (IOException e) {
+            log.warn("Failed to load corpus index {}, it will be rebuilt: {}", indexFile, e.getMessage());
+        }
+    }
+
+    @Override
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissingDocuments() {
+        int indexed = 0;
+        for (Document document : documentRepository.findAllProcessedDocuments()) {
+            HnswIndex current = index;
+            if (current == null || !current.containsDocument(document.getId())) {
+                indexed += addDocument(document.getId()) ? 1 : 0;
+            }
+        }
+        // One write for the whole backfill rather than one per document
+        if (indexed > 0) {
+            persist();
+        }
+    }
+
+    @Override
+    public void indexDocument(Long documentId) {
+        if (addDocument(documentId)) {
+            schedulePersist();
+        }
+    }
+
+    private synchronized boolean addDocument(Long documentId) {
+        DocumentMatrix matrix = DocumentMatrix.fromContents(documentId,
+                documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId));
+        if (matrix.rows() == 0) {
+            return false;
+        }
+
+        if (index == null) {
+            index = new HnswIndex(matrix.dimension(), m, efConstruction);
+        } else if (index.dimension() != matrix.dimension()) {
+            log.warn("Skipping document {}: embedding dimension {} does not match corpus index dimension {}",
+                    documentId, matrix.dimension(), index.dimension());
+            return false;
+        }
+
+        // Reprocessing replaces the document's previous vectors
+        index.markDeleted(documentId);
+        int dimension = matrix.dimension();
+        for (int row = 0; row < matrix.rows(); row++) {
+            float[] vector = Arrays.copyOfRange(matrix.vectors(), row * dimension, (row + 1) * dimension);
+            index.add(matrix.chunkForRow(row).getId(), documentId, vector);
+        }
+
+        log.info("Indexed {} chunks of document {} for corpus search", matrix.rows(), documentId);
+        return true;
+    }
+
+    @Override
+    public void removeDocument(Long documentId) {
+        synchronized (this) {
+            if (index == null || index.markDeleted(documentId) == 0) {
+                return;
+            }
+            if (index.deletedCount() > index.size() * compactRatio) {
+                index = index.compact();
+                log.info("Compacted corpus index to {} vectors", index.size());
+            }
+        }
+        schedulePersist();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persister.shutdownNow();
+        // A change still waiting for its delayed write is written now
+        if (persistScheduled.getAndSet(false)) {
+            persist();
+        }
+    }
+
+    @Override
+    public CorpusSearchResponse search(String query, int topK) {
+        long start = System.currentTimeMillis();
+        HnswIndex current = index;
+        float[] queryVector = vectorSearchService.embedQuery(query);
+
+        List<CorpusSearchResponse.Hit> results = List.of();
+        if (current != null && queryVector != null) {
+            results = toResponseHits(current.search(queryVector, topK, Math.max(efSearch, topK)));
+        }
+
+        return CorpusSearchResponse.builder()
+                .query(query)
+                .results(results)
+                .tookMs(System.currentTimeMillis() - start)
+                .build();
+    }
+
+    private List<CorpusSearchResponse.Hit> toResponseHits(List<HnswIndex.Hit> hits) {
+        Map<Long, DocumentContent> chunks = documentContentRepository
+                .findAllById(hits.stream().map(HnswIndex.Hit::chunkId).toList())
+                .stream()
+                .collect(Collectors.toMap(DocumentContent::getId, Function.identity()));
+        Map<Long, String> documentNames = documentRepository
+                .findAllById(hits.stream().map(HnswIndex.Hit::documentId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Document::getId, Document::getOriginalFileName));
+
+        // Chunks deleted since the hit was indexed are skipped
+        return hits.stream()
+                .filter(hit -> chunks.containsKey(hit.chunkId()))
+                .map(hit -> CorpusSearchResponse.Hit.from(chunks.get(hit.chunkId()), hit.documentId(),
+                        documentNames.get(hit.documentId()), hit.score()))
+                .toList();
+    }
+
+    /**
+     * Writes the graph after {@code persistDelay}; changes made meanwhile share that write.
+     */
+    private void schedulePersist() {
+        if (persistScheduled.compareAndSet(false, true)) {
+            persister.schedule(() -> {
+                // Cleared first, so a change made during the write schedules another one
+                if (persistScheduled.getAndSet(false)) {
+                    persist();
+                }
+            }, persistDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void persist() {
+        // Writers take turns so an older snapshot never replaces a newer one
+        synchronized (persistLock) {
+            HnswIndex current = index;
+            if (current == null) {
+                return;
+            }
+            Path target = indexFile();
+            try {
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), INDEX_FILE, ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    current.writeTo(out);
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.warn("Failed to persist corpus index to {}: {}", target, e.getMessage());
+            }
+        }
+    }
+
+    private Path indexFile() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize().resolve("index").resolve(INDEX_FILE);
+    }
+}
@@ -0,0 +1,146 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable in-memory snapshot of one document's chunks. Embeddings are stored
+ * L2-normalized and packed row-major into a single contiguous array, so cosine
+ * similarity against a normalized query is a plain dot product per row.
+ * A quantized matrix keeps only int8 codes and drops the float rows.
+ */
+public final class DocumentMatrix {
+
+    private static final int CHUNK_OVERHEAD_BYTES = 96;
+
+    private final Long documentId;
+    private final List<DocumentContent> chunks;
+    private final int[] rowToChunk;
+    private final float[] vectors;
+    private final QuantizedVectors quantized;
+    private final int dimension;
+    private final long sizeInBytes;
+
+    private DocumentMatrix(Long documentId, List<DocumentContent> chunks, int[] rowToChunk,
+                           float[] vectors, QuantizedVectors quantized, int dimension) {
+        this.documentId = documentId;
+        this.chunks = chunks;
+        this.rowToChunk = rowToChunk;
+        this.vectors = vectors;
+        this.quantized = quantized;
+        this.dimension = dimension;
+        this.sizeInBytes = estimateSize(chunks, rowToChunk)
+                + (vectors != null ? (long) vectors.length * Float.BYTES : quantized.sizeInBytes());
+    }
+
+    /**
+     * Builds a matrix from persisted chunks. Chunk entities are copied without their
+     * document association or raw embedding so the snapshot is safe to share across threads.
+     */
+    public static DocumentMatrix fromContents(Long documentId, List<DocumentContent> contents) {
+        return fromContents(documentId, contents, false);
+    }
+
+    /**
+     * As {@link #fromContents(Long, List)}, optionally replacing the float rows with int8 codes.
+     */
+    public static DocumentMatrix fromContents(Long documentId, List<DocumentContent> contents, boolean quantize) {
+        List<DocumentContent> chunks = new ArrayList<>(contents.size());
+        List<Integer> embeddedChunks = new ArrayList<>();
+        int dimension = 0;
+
+        for (DocumentContent content : contents) {
+            byte[] encoded = content.getEmbeddingVector();
+            if (encoded != null) {
+                int rowDimension = EmbeddingCodec.dimension(encoded);
+                if (dimension == 0) {
+                    dimension = rowDimension;
+                }
+                if (rowDimension == dimension) {
+                    embeddedChunks.add(chunks.size());
+                }
+            }
+            chunks.add(detachedCopy(content));
+        }
+
+        int[] rowToChunk = new int[embeddedChunks.size()];
+        float[] vectors = new float[rowToChunk.length * dimension];
+        for (int row = 0; row < rowToChunk.length; row++) {
+            int chunk = embeddedChunks.get(row);
+            rowToChunk[row] = chunk;
+            EmbeddingCodec.asFloatBuffer(contents.get(chunk).getEmbeddingVector())
+                    .get(vectors, row * dimension, dimension);
+        }
+
+        if (quantize) {
+            QuantizedVectors codes = QuantizedVectors.quantize(vectors, rowToChunk.length, dimension);
+            return new DocumentMatrix(documentId, List.copyOf(chunks), rowToChunk, null, codes, dimension);
+        }
+        return new DocumentMatrix(documentId, List.copyOf(chunks), rowToChunk, vectors, null, dimension);
+    }
+
+    static DocumentContent detachedCopy(DocumentContent content) {
+        return DocumentContent.builder()
+                .id(content.getId())
+                .content(content.getContent())
+                .chunkIndex(content.getChunkIndex())
+                .startTime(content.getStartTime())
+                .endTime(content.getEndTime())
+                .pageNumber(content.getPageNumber())
+                .build();
+    }
+
+    private static long estimateSize(List<DocumentContent> chunks, int[] rowToChunk) {
+        long size = (long) rowToChunk.length * Integer.BYTES;
+        for (DocumentContent chunk : chunks) {
+            size += estimateSize(chunk);
+        }
+        return size;
+    }
+
+    /** Approximate heap held by a {@link #detachedCopy}. */
+    static long estimateSize(DocumentContent chunk) {
+        return CHUNK_OVERHEAD_BYTES + (long) chunk.getContent().length() * Character.BYTES;
+    }
+
+    public Long documentId() {
+        return documentId;
+    }
+
+    /** All chunks of the document in chunk order, including those without an embedding. */
+    public List<DocumentContent> chunks() {
+        return chunks;
+    }
+
+    public int rows() {
+        return rowToChunk.length;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /** Full-precision rows, or {@code null} for a quantized matrix. */
+    public float[] vectors() {
+        return vectors;
+    }
+
+    public boolean isQuantized() {
+        return quantized != null;
+    }
+
+    /** Int8 rows, or {@code null} for a full-precision matrix. */
+    public QuantizedVectors quantized() {
+        return quantized;
+    }
+
+    public DocumentContent chunkForRow(int row) {
+        return chunks.get(rowToChunk[row]);
+    }
+
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+}
@@ -0,0 +1,10 @@
+package com.panscience.docqa.service;
+
+public interface DocumentProcessingService {
+
+    /**
+     * Extracts, indexes, embeds and summarizes an uploaded document on the async executor.
+     * Declared here because the {@code @Async} proxy only exposes interface methods.
+     */
+    void process(Long documentId);
+}
@@ -0,0 +1,95 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import com.panscience.docqa.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs the ingestion pipeline for one document. Extraction, embedding and summarization
+ * call out to slow services, so they run outside any transaction; only the status changes
+ * and the chunk insert get a short transaction of their own.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DocumentProcessingServiceImpl implements DocumentProcessingService {
+
+    private final DocumentRepository documentRepository;
+    private final DocumentContentRepository documentContentRepository;
+    private final PdfExtractionService pdfExtractionService;
+    private final TranscriptionService transcriptionService;
+    private final SummaryService summaryService;
+    private final VectorSearchService vectorSearchService;
+    private final CorpusSearchService corpusSearchService;
+    private final SemanticAnswerCache answerCache;
+    private final TermIndexStore termIndexStore;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    @Async
+    public void process(Long documentId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Document document = transaction.execute(status -> {
+            Document pending = documentRepository.findById(documentId)
+                    .orElseThrow(() -> new DocumentNotFoundException(documentId));
+            pending.setStatus(Document.ProcessingStatus.PROCESSING);
+            return documentRepository.save(pending);
+        });
+
+        try {
+            List<DocumentContent> contents = extract(document);
+
+            transaction.executeWithoutResult(status -> documentContentRepository.saveAll(contents));
+            vectorSearchService.evict(documentId);
+            answerCache.invalidate(documentId);
+            termIndexStore.index(documentId, contents);
+
+            // Embed chunks in batches so vector search has something to score
+            vectorSearchService.generateAndStoreEmbeddings(contents);
+            corpusSearchService.indexDocument(documentId);
+
+            // Generate summary; long documents are summarized section by section
+            String summary = summaryService.generateSummary(contents);
+            updateDocument(transaction, documentId, processed -> {
+                processed.setSummary(summary);
+                processed.setStatus(Document.ProcessingStatus.COMPLETED);
+                processed.setProcessedAt(LocalDateTime.now());
+            });
+
+            log.info("Successfully processed document: {}", document.getOriginalFileName());
+        } catch (Exception e) {
+            log.error("Failed to process document: {}", document.getOriginalFileName(), e);
+            updateDocument(transaction, documentId, failed -> failed.setStatus(Document.ProcessingStatus.FAILED));
+        }
+    }
+
+    private List<DocumentContent> extract(Document document) {
+        return switch (document.getType()) {
+            case PDF -> pdfExtractionService.extractContent(document);
+            case AUDIO, VIDEO -> transcriptionService.transcribe(document);
+        };
+    }
+
+    /**
+     * Applies {@code change} to a freshly read copy; a document deleted while it was being
+     * processed is left alone.
+     */
+    private void updateDocument(TransactionTemplate transaction, Long documentId, Consumer<Document> change) {
+        transaction.executeWithoutResult(status -> documentRepository.findById(documentId).ifPresent(document -> {
+            change.accept(document);
+            documentRepository.save(document);
+        }));
+    }
+}
@@ -2,7 +2,6 @@ package com.panscience.docqa.service;
 
 import com.panscience.docqa.dto.DocumentDto;
 import com.panscience.docqa.entity.Document;
-import com.panscience.docqa.entity.DocumentContent;
 import com.panscience.docqa.exception.DocumentNotFoundException;
 import com.panscience.docqa.exception.FileStorageException;
 import com.panscience.docqa.repository.ChatMessageRepository;
@@ -11,9 +10,10 @@ import com.panscience.docqa.repository.DocumentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -21,7 +21,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -33,9 +32,11 @@ public class DocumentServiceImpl implements DocumentService {
     private final DocumentRepository documentRepository;
     private final DocumentContentRepository documentContentRepository;
     private final ChatMessageRepository chatMessageRepository;
-    private final PdfExtractionService pdfExtractionService;
-    private final TranscriptionService transcriptionService;
-    private final SummaryService summaryService;
+    private final DocumentProcessingService documentProcessingService;
+    private final VectorSearchService vectorSearchService;
+    private final CorpusSearchService corpusSearchService;
+    private final SemanticAnswerCache answerCache;
+    private final TermIndexStore termIndexStore;
 
     @Value("${app.upload-dir}")
     private String uploadDir;
@@ -66,9 +67,9 @@ public class DocumentServiceImpl implements DocumentService {
                     .build();
 
             document = documentRepository.save(document);
-            
-            // Process document asynchronously
-            processDocumentAsync(document.getId());
+
+            // Processing reads the document in its own transaction, so it starts once this one commits
+            startProcessing(document.getId());
 
             return DocumentDto.fromEntity(document);
         } catch (IOException e) {
@@ -76,51 +77,6 @@ public class DocumentServiceImpl implements DocumentService {
         }
     }
 
-    @Async
-    @Transactional
-    public void processDocumentAsync(Long documentId) {
-        Document document = documentRepository.findById(documentId)
-                .orElseThrow(() -> new DocumentNotFoundException(documentId));
-
-        try {
-            document.setStatus(Document.ProcessingStatus.PROCESSING);
-            documentRepository.save(document);
-
-            List<DocumentContent> contents;
-            
-            switch (document.getType()) {
-                case PDF:
-                    contents = pdfExtractionService.extractContent(document);
-                    break;
-                case AUDIO:
-                case VIDEO:
-                    contents = transcriptionService.transcribe(document);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unsupported document type: " + document.getType());
-            }
-
-            documentContentRepository.saveAll(contents);
-
-            // Generate summary
-            String fullContent = contents.stream()
-                    .map(DocumentContent::getContent)
-                    .reduce("", (a, b) -> a + "\n" + b);
-            
-            String summary = summaryService.generateSummary(fullContent);
-            document.setSummary(summary);
-            document.setStatus(Document.ProcessingStatus.COMPLETED);
-            document.setProcessedAt(LocalDateTime.now());
-            documentRepository.save(document);
-
-            log.info("Successfully processed document: {}", document.getOriginalFileName());
-        } catch (Exception e) {
-            log.error("Failed to process document: {}", document.getOriginalFileName(), e);
-            document.setStatus(Document.ProcessingStatus.FAILED);
-            documentRepository.save(document);
-        }
-    }
-
     @Override
     public DocumentDto getDocument(Long id) {
         Document document = documentRepository.findById(id)
@@ -159,6 +115,10 @@ public class DocumentServiceImpl implements DocumentService {
         chatMessageRepository.deleteByDocumentId(id);
         documentContentRepository.deleteByDocumentId(id);
         documentRepository.delete(document);
+        vectorSearchService.evict(id);
+        corpusSearchService.removeDocument(id);
+        termIndexStore.invalidate(id);
+        answerCache.invalidate(id);
     }
 
     @Override
@@ -180,6 +140,19 @@ public class DocumentServiceImpl implements DocumentService {
         return document.getMimeType();
     }
 
+    private void startProcessing(Long documentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    documentProcessingService.process(documentId);
+                }
+            });
+        } else {
+            documentProcessingService.process(documentId);
+        }
+    }
+
     private void validateFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new FileStorageException("Cannot upload empty file");
@@ -0,0 +1,611 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Immutable inverted index over the chunks of one document. Chunks are addressed by row
+ * (their position in chunk order) and each term's postings are stored as varint-encoded
+ * {@code (row delta, term frequency)} pairs in one shared byte array, so a term costs a few
+ * bytes per matching chunk. The sorted term dictionary is searched by binary search.
+ *
+ * Word positions are kept in a second varint stream parallel to the postings, read only by
+ * phrase and proximity queries so BM25 scoring never decodes them. Positions count every
+ * word of the chunk, stop words included, as assigned by {@link TextAnalyzer#analyze}.
+ *
+ * Each row also keeps its chunk's text, as one UTF-8 blob, and its page and time range,
+ * so phrase hits are rendered from the index without reading the chunks back.
+ */
+public final class DocumentTermIndex {
+
+    private static final int MAGIC = 0x44544958; // "DTIX"
+    private static final int VERSION = 3;
+
+    private final long documentId;
+    private final long[] chunkIds;
+    private final int[] chunkLengths;
+    private final int[] chunkWords;
+    private final String[] terms;
+    private final int[] documentFrequencies;
+    private final int[] postingOffsets;
+    private final byte[] postings;
+    private final int[] positionOffsets;
+    private final byte[] positions;
+    private final ChunkFields chunkFields;
+    private final double averageChunkLength;
+    private volatile TrigramIndex trigrams;
+
+    private DocumentTermIndex(long documentId, long[] chunkIds, int[] chunkLengths, int[] chunkWords,
+                              String[] terms, int[] documentFrequencies, int[] postingOffsets, byte[] postings,
+                              int[] positionOffsets, byte[] positions, ChunkFields chunkFields) {
+        this.documentId = documentId;
+        this.chunkIds = chunkIds;
+        this.chunkLengths = chunkLengths;
+        this.chunkWords = chunkWords;
+        this.terms = terms;
+        this.documentFrequencies = documentFrequencies;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+        this.positionOffsets = positionOffsets;
+        this.positions = positions;
+        this.chunkFields = chunkFields;
+        long total = 0;
+        for (int length : chunkLengths) {
+            total += length;
+        }
+        this.averageChunkLength = chunkLengths.length == 0 ? 0 : (double) total / chunkLengths.length;
+    }
+
+    public static DocumentTermIndex build(long documentId, List<DocumentContent> chunks) {
+        long[] chunkIds = new long[chunks.size()];
+        int[] chunkLengths = new int[chunks.size()];
+        int[] chunkWords = new int[chunks.size()];
+        // Rows are visited in order, so each term's row list is built already sorted;
+        // each entry is {row, position, position, ...}
+        SortedMap<String, List<int[]>> termRows = new TreeMap<>();
+
+        for (int row = 0; row < chunks.size(); row++) {
+            DocumentContent chunk = chunks.get(row);
+            chunkIds[row] = chunk.getId();
+            List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(chunk.getContent());
+            chunkLengths[row] = tokens.size();
+            chunkWords[row] = tokens.isEmpty() ? 0 : tokens.get(tokens.size() - 1).position() + 1;
+
+            Map<String, List<Integer>> termPositions = new HashMap<>();
+            for (TextAnalyzer.Token token : tokens) {
+                termPositions.computeIfAbsent(token.term(), term -> new ArrayList<>()).add(token.position());
+            }
+            for (Map.Entry<String, List<Integer>> entry : termPositions.entrySet()) {
+                int[] posting = new int[entry.getValue().size() + 1];
+                posting[0] = row;
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    posting[i + 1] = entry.getValue().get(i);
+                }
+                termRows.computeIfAbsent(entry.getKey(), term -> new ArrayList<>()).add(posting);
+            }
+        }
+
+        String[] terms = termRows.keySet().toArray(new String[0]);
+        int[] documentFrequencies = new int[terms.length];
+        int[] postingOffsets = new int[terms.length + 1];
+        int[] positionOffsets = new int[terms.length + 1];
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ByteArrayOutputStream encodedPositions = new ByteArrayOutputStream();
+        for (int t = 0; t < terms.length; t++) {
+            List<int[]> rows = termRows.get(terms[t]);
+            documentFrequencies[t] = rows.size();
+            postingOffsets[t] = encoded.size();
+            positionOffsets[t] = encodedPositions.size();
+            int previous = 0;
+            for (int[] posting : rows) {
+                writeVarInt(encoded, posting[0] - previous);
+                writeVarInt(encoded, posting.length - 1);
+                previous = posting[0];
+                int previousPosition = 0;
+                for (int i = 1; i < posting.length; i++) {
+                    writeVarInt(encodedPositions, posting[i] - previousPosition);
+                    previousPosition = posting[i];
+                }
+            }
+        }
+        postingOffsets[terms.length] = encoded.size();
+        positionOffsets[terms.length] = encodedPositions.size();
+
+        return new DocumentTermIndex(documentId, chunkIds, chunkLengths, chunkWords, terms, documentFrequencies,
+                postingOffsets, encoded.toByteArray(), positionOffsets, encodedPositions.toByteArray(),
+                ChunkFields.of(chunks));
+    }
+
+    /**
+     * Decoded postings of one term; empty when the term does not occur.
+     */
+    public Postings postings(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return Postings.EMPTY;
+        }
+
+        int count = documentFrequencies[t];
+        int[] rows = new int[count];
+        int[] frequencies = new int[count];
+        int[] cursor = {postingOffsets[t]};
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            row += readVarInt(postings, cursor);
+            rows[i] = row;
+            frequencies[i] = readVarInt(postings, cursor);
+        }
+        return new Postings(rows, frequencies);
+    }
+
+    /**
+     * Decoded postings of one term including the word positions within each row.
+     */
+    public PositionalPostings positionalPostings(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return PositionalPostings.EMPTY;
+        }
+
+        Postings rowPostings = postings(term);
+        int[] starts = new int[rowPostings.size() + 1];
+        for (int i = 0; i < rowPostings.size(); i++) {
+            starts[i + 1] = starts[i] + rowPostings.frequencies()[i];
+        }
+        int[] termPositions = new int[starts[rowPostings.size()]];
+        int[] cursor = {positionOffsets[t]};
+        for (int i = 0; i < rowPostings.size(); i++) {
+            int position = 0;
+            for (int p = starts[i]; p < starts[i + 1]; p++) {
+                position += readVarInt(positions, cursor);
+                termPositions[p] = position;
+            }
+        }
+        return new PositionalPostings(rowPostings.rows(), starts, termPositions);
+    }
+
+    /**
+     * Every occurrence of the phrase, in row and position order. Tokens must come from
+     * {@link TextAnalyzer#analyze}: their relative positions are matched exactly, so stop
+     * words inside the phrase still have to be present as some word in between.
+     */
+    public List<Occurrence> findPhrase(List<TextAnalyzer.Token> phrase) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        if (phrase.isEmpty()) {
+            return occurrences;
+        }
+
+        int first = phrase.get(0).position();
+        int length = phrase.get(phrase.size() - 1).position() - first + 1;
+        Map<String, PositionalPostings> postingsByTerm = new HashMap<>();
+        PositionalPostings[] tokenPostings = new PositionalPostings[phrase.size()];
+        for (int i = 0; i < phrase.size(); i++) {
+            tokenPostings[i] = postingsByTerm.computeIfAbsent(phrase.get(i).term(), this::positionalPostings);
+        }
+
+        int[] cursors = new int[phrase.size()];
+        int[] next = new int[phrase.size()];
+        int[] end = new int[phrase.size()];
+        for (int row : intersectRows(postingsByTerm.values())) {
+            for (int i = 0; i < phrase.size(); i++) {
+                cursors[i] = tokenPostings[i].advance(cursors[i], row);
+                next[i] = tokenPostings[i].starts()[cursors[i]];
+                end[i] = tokenPostings[i].starts()[cursors[i] + 1];
+            }
+            // Anchor positions ascend, so every other token's expected position does too and
+            // each token's position list is walked once per row
+            PositionalPostings anchor = tokenPostings[0];
+            for (int p = next[0]; p < end[0]; p++) {
+                int start = anchor.positions()[p];
+                boolean matched = true;
+                for (int i = 1; i < phrase.size() && matched; i++) {
+                    int expected = start + phrase.get(i).position() - first;
+                    int[] positions = tokenPostings[i].positions();
+                    while (next[i] < end[i] && positions[next[i]] < expected) {
+                        next[i]++;
+                    }
+                    matched = next[i] < end[i] && positions[next[i]] == expected;
+                }
+                if (matched) {
+                    occurrences.add(new Occurrence(row, start, length));
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Non-overlapping windows in which every term occurs, in any order, with the first and
+     * last word at most {@code within} positions apart. Windows are found by repeatedly
+     * advancing whichever term sits at the window's left edge, so each is as tight as
+     * possible for its leftmost word.
+     */
+    public List<Occurrence> findNear(Collection<String> queryTerms, int within) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(queryTerms));
+        if (distinct.isEmpty()) {
+            return occurrences;
+        }
+
+        PositionalPostings[] termPostings = distinct.stream().map(this::positionalPostings)
+                .toArray(PositionalPostings[]::new);
+        int k = termPostings.length;
+        int[] cursors = new int[k];
+        int[] next = new int[k];
+        int[] end = new int[k];
+        for (int row : intersectRows(Arrays.asList(termPostings))) {
+            for (int t = 0; t < k; t++) {
+                cursors[t] = termPostings[t].advance(cursors[t], row);
+                next[t] = termPostings[t].starts()[cursors[t]];
+                end[t] = termPostings[t].starts()[cursors[t] + 1];
+            }
+
+            int lastEnd = -1;
+            while (true) {
+                int minTerm = 0;
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int t = 0; t < k; t++) {
+                    int position = termPostings[t].positions()[next[t]];
+                    if (position < min) {
+                        min = position;
+                        minTerm = t;
+                    }
+                    max = Math.max(max, position);
+                }
+                if (max - min <= within && min > lastEnd) {
+                    occurrences.add(new Occurrence(row, min, max - min + 1));
+                    lastEnd = max;
+                }
+                if (++next[minTerm] == end[minTerm]) {
+                    break;
+                }
+            }
+        }
+        return occurrences;
+    }
+
+    private static int[] intersectRows(Collection<PositionalPostings> termPostings) {
+        List<int[]> rowLists = new ArrayList<>();
+        for (PositionalPostings postings : termPostings) {
+            rowLists.add(postings.rows());
+        }
+        return intersectAll(rowLists);
+    }
+
+    /**
+     * Rows containing every term, intersecting from the rarest term's postings upward.
+     */
+    public int[] matchAll(Collection<String> queryTerms) {
+        if (queryTerms.isEmpty()) {
+            return new int[0];
+        }
+        List<int[]> rowLists = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(queryTerms)) {
+            int[] rows = postings(term).rows();
+            if (rows.length == 0) {
+                return rows;
+            }
+            rowLists.add(rows);
+        }
+        return intersectAll(rowLists);
+    }
+
+    /**
+     * Rows containing at least one term of every group, e.g. a query term or any of its
+     * fuzzy variants for each query term.
+     */
+    public int[] matchEachGroup(List<? extends Collection<String>> termGroups) {
+        if (termGroups.isEmpty()) {
+            return new int[0];
+        }
+        List<int[]> rowLists = new ArrayList<>();
+        for (Collection<String> group : termGroups) {
+            int[] rows = matchAny(group);
+            if (rows.length == 0) {
+                return rows;
+            }
+            rowLists.add(rows);
+        }
+        return intersectAll(rowLists);
+    }
+
+    /**
+     * Rows containing at least one of the terms, in row order.
+     */
+    public int[] matchAny(Collection<String> queryTerms) {
+        BitSet rows = new BitSet(chunkIds.length);
+        for (String term : queryTerms) {
+            for (int row : postings(term).rows()) {
+                rows.set(row);
+            }
+        }
+        return rows.stream().toArray();
+    }
+
+    private static int[] intersectAll(List<int[]> rowLists) {
+        rowLists.sort(Comparator.comparingInt(rows -> rows.length));
+        int[] result = rowLists.get(0);
+        for (int i = 1; i < rowLists.size() && result.length > 0; i++) {
+            result = intersect(result, rowLists.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public long documentId() {
+        return documentId;
+    }
+
+    public int chunkCount() {
+        return chunkIds.length;
+    }
+
+    public long chunkId(int row) {
+        return chunkIds[row];
+    }
+
+    public int chunkLength(int row) {
+        return chunkLengths[row];
+    }
+
+    /**
+     * A detached copy of the chunk at {@code row} as it was indexed, without its embedding.
+     */
+    public DocumentContent chunk(int row) {
+        return chunkFields.chunk(chunkIds[row], row);
+    }
+
+    /** Words in the chunk including stop words, i.e. one past its last indexed position. */
+    public int chunkWords(int row) {
+        return chunkWords[row];
+    }
+
+    public double averageChunkLength() {
+        return averageChunkLength;
+    }
+
+    /** Sorted term dictionary; callers must not modify it. */
+    public String[] terms() {
+        return terms;
+    }
+
+    /**
+     * Trigram index over {@link #terms()}, built on first use and not persisted.
+     */
+    public TrigramIndex trigrams() {
+        TrigramIndex index = trigrams;
+        if (index == null) {
+            // Racing builders produce equal indexes, so the last write winning is harmless
+            index = TrigramIndex.build(terms);
+            trigrams = index;
+        }
+        return index;
+    }
+
+    public long sizeInBytes() {
+        long size = (long) chunkIds.length * (Long.BYTES + 2 * Integer.BYTES) + postings.length + positions.length
+                + (long) terms.length * 3 * Integer.BYTES + chunkFields.sizeInBytes();
+        for (String term : terms) {
+            size += 40 + (long) term.length() * Character.BYTES;
+        }
+        return size;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(documentId);
+        out.writeInt(chunkIds.length);
+        for (int row = 0; row < chunkIds.length; row++) {
+            out.writeLong(chunkIds[row]);
+            out.writeInt(chunkLengths[row]);
+            out.writeInt(chunkWords[row]);
+        }
+        out.writeInt(terms.length);
+        for (int t = 0; t < terms.length; t++) {
+            out.writeUTF(terms[t]);
+            out.writeInt(documentFrequencies[t]);
+            out.writeInt(postingOffsets[t]);
+            out.writeInt(positionOffsets[t]);
+        }
+        out.writeInt(postings.length);
+        out.write(postings);
+        out.writeInt(positions.length);
+        out.write(positions);
+        chunkFields.writeTo(out);
+    }
+
+    public static DocumentTermIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported term index format");
+        }
+        long documentId = in.readLong();
+        int chunkCount = in.readInt();
+        long[] chunkIds = new long[chunkCount];
+        int[] chunkLengths = new int[chunkCount];
+        int[] chunkWords = new int[chunkCount];
+        for (int row = 0; row < chunkCount; row++) {
+            chunkIds[row] = in.readLong();
+            chunkLengths[row] = in.readInt();
+            chunkWords[row] = in.readInt();
+        }
+        int termCount = in.readInt();
+        String[] terms = new String[termCount];
+        int[] documentFrequencies = new int[termCount];
+        int[] postingOffsets = new int[termCount + 1];
+        int[] positionOffsets = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) {
+            terms[t] = in.readUTF();
+            documentFrequencies[t] = in.readInt();
+            postingOffsets[t] = in.readInt();
+            positionOffsets[t] = in.readInt();
+        }
+        byte[] postings = new byte[in.readInt()];
+        in.readFully(postings);
+        postingOffsets[termCount] = postings.length;
+        byte[] positions = new byte[in.readInt()];
+        in.readFully(positions);
+        positionOffsets[termCount] = positions.length;
+        return new DocumentTermIndex(documentId, chunkIds, chunkLengths, chunkWords, terms, documentFrequencies,
+                postingOffsets, postings, positionOffsets, positions, ChunkFields.readFrom(in, chunkCount));
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Per-row chunk text and metadata. Missing values are stored as -1 or NaN.
+     */
+    private record ChunkFields(int[] chunkIndexes, int[] pageNumbers, double[] startTimes, double[] endTimes,
+                               int[] textOffsets, byte[] text) {
+
+        static ChunkFields of(List<DocumentContent> chunks) {
+            int rows = chunks.size();
+            int[] chunkIndexes = new int[rows];
+            int[] pageNumbers = new int[rows];
+            double[] startTimes = new double[rows];
+            double[] endTimes = new double[rows];
+            int[] textOffsets = new int[rows + 1];
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            for (int row = 0; row < rows; row++) {
+                DocumentContent chunk = chunks.get(row);
+                chunkIndexes[row] = chunk.getChunkIndex() == null ? -1 : chunk.getChunkIndex();
+                pageNumbers[row] = chunk.getPageNumber() == null ? -1 : chunk.getPageNumber();
+                startTimes[row] = chunk.getStartTime() == null ? Double.NaN : chunk.getStartTime();
+                endTimes[row] = chunk.getEndTime() == null ? Double.NaN : chunk.getEndTime();
+                textOffsets[row] = text.size();
+                if (chunk.getContent() != null) {
+                    text.writeBytes(chunk.getContent().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            textOffsets[rows] = text.size();
+            return new ChunkFields(chunkIndexes, pageNumbers, startTimes, endTimes, textOffsets, text.toByteArray());
+        }
+
+        DocumentContent chunk(long chunkId, int row) {
+            return DocumentContent.builder()
+                    .id(chunkId)
+                    .content(new String(text, textOffsets[row], textOffsets[row + 1] - textOffsets[row],
+                            StandardCharsets.UTF_8))
+                    .chunkIndex(chunkIndexes[row] < 0 ? null : chunkIndexes[row])
+                    .pageNumber(pageNumbers[row] < 0 ? null : pageNumbers[row])
+                    .startTime(Double.isNaN(startTimes[row]) ? null : startTimes[row])
+                    .endTime(Double.isNaN(endTimes[row]) ? null : endTimes[row])
+                    .build();
+        }
+
+        long sizeInBytes() {
+            return (long) chunkIndexes.length * (3 * Integer.BYTES + 2 * Double.BYTES) + text.length;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int row = 0; row < chunkIndexes.length; row++) {
+                out.writeInt(chunkIndexes[row]);
+                out.writeInt(pageNumbers[row]);
+                out.writeDouble(startTimes[row]);
+                out.writeDouble(endTimes[row]);
+                out.writeInt(textOffsets[row + 1]);
+            }
+            out.writeInt(text.length);
+            out.write(text);
+        }
+
+        static ChunkFields readFrom(DataInputStream in, int rows) throws IOException {
+            int[] chunkIndexes = new int[rows];
+            int[] pageNumbers = new int[rows];
+            double[] startTimes = new double[rows];
+            double[] endTimes = new double[rows];
+            int[] textOffsets = new int[rows + 1];
+            for (int row = 0; row < rows; row++) {
+                chunkIndexes[row] = in.readInt();
+                pageNumbers[row] = in.readInt();
+                startTimes[row] = in.readDouble();
+                endTimes[row] = in.readDouble();
+                textOffsets[row + 1] = in.readInt();
+            }
+            byte[] text = new byte[in.readInt()];
+            in.readFully(text);
+            if (textOffsets[rows] != text.length) {
+                throw new IOException("Term index chunk text does not match its offsets");
+            }
+            return new ChunkFields(chunkIndexes, pageNumbers, startTimes, endTimes, textOffsets, text);
+        }
+    }
+
+    /**
+     * Matching rows in ascending order with the term's frequency in each.
+     */
+    public record Postings(int[] rows, int[] frequencies) {
+        static final Postings EMPTY = new Postings(new int[0], new int[0]);
+
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    /**
+     * Matching rows in ascending order; the positions of row {@code rows[i]} are
+     * {@code positions[starts[i]]} up to {@code positions[starts[i + 1]]}, ascending.
+     */
+    public record PositionalPostings(int[] rows, int[] starts, int[] positions) {
+        static final PositionalPostings EMPTY = new PositionalPostings(new int[0], new int[1], new int[0]);
+
+        /** Index of {@code row} in {@link #rows}, scanning forward from {@code from}. */
+        int advance(int from, int row) {
+            int i = from;
+            while (rows[i] < row) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * A match starting at word {@code position} of chunk {@code row} and spanning
+     * {@code length} words.
+     */
+    public record Occurrence(int row, int position, int length) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.panscience.docqa.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scores a row-major matrix of L2-normalized vectors against a normalized query.
+ * Implementations are stateless and safe to share between threads.
+ */
+public interface DotProductKernel {
+
+    /**
+     * Writes the dot product of {@code query} with each of the first {@code rows} rows
+     * of {@code matrix} into {@code scores[0..rows)}.
+     */
+    void scoreAll(float[] matrix, int rows, int dimension, float[] query, float[] scores);
+
+    /**
+     * Same as {@link #scoreAll(float[], int, int, float[], float[])} for a matrix of
+     * little-endian floats starting at byte 0 of {@code matrix}, such as a mapped segment file.
+     */
+    void scoreAll(ByteBuffer matrix, int rows, int dimension, float[] query, float[] scores);
+
+    String name();
+}
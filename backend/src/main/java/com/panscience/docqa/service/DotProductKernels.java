@@ -0,0 +1,35 @@
+package com.panscience.docqa.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the scoring kernel once at startup: the Vector API kernel when the incubator
+ * module is present and enabled, otherwise the scalar fallback.
+ */
+@Slf4j
+public final class DotProductKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String SIMD_KERNEL = "com.panscience.docqa.service.SimdDotProductKernel";
+
+    private DotProductKernels() {
+    }
+
+    public static DotProductKernel select(boolean simdEnabled) {
+        if (simdEnabled && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                DotProductKernel kernel = (DotProductKernel) Class.forName(SIMD_KERNEL)
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("Using {} dot-product kernel for vector search", kernel.name());
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API kernel unavailable, falling back to scalar: {}", e.getMessage());
+            }
+        } else if (simdEnabled) {
+            log.info("Module {} not loaded (start the JVM with --add-modules {}), using scalar kernel",
+                    VECTOR_MODULE, VECTOR_MODULE);
+        }
+        return new ScalarDotProductKernel();
+    }
+}
@@ -0,0 +1,51 @@
+package com.panscience.docqa.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Binary codec for embedding vectors stored in {@code document_contents.embedding_vector}.
+ * Vectors are packed as little-endian float32 values, 4 bytes per dimension, so decoding
+ * is a bulk copy into a primitive array with no boxing or JSON parsing.
+ */
+public final class EmbeddingCodec {
+
+    public static final int BYTES_PER_DIMENSION = Float.BYTES;
+
+    private EmbeddingCodec() {
+    }
+
+    public static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * BYTES_PER_DIMENSION)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        FloatBuffer buffer = asFloatBuffer(bytes);
+        float[] vector = new float[buffer.remaining()];
+        buffer.get(vector);
+        return vector;
+    }
+
+    /**
+     * Read-only little-endian view over the encoded bytes, without copying.
+     */
+    public static FloatBuffer asFloatBuffer(byte[] bytes) {
+        dimension(bytes);
+        return ByteBuffer.wrap(bytes)
+                .asReadOnlyBuffer()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+    }
+
+    public static int dimension(byte[] bytes) {
+        if (bytes.length % BYTES_PER_DIMENSION != 0) {
+            throw new IllegalArgumentException("Encoded embedding length " + bytes.length
+                    + " is not a multiple of " + BYTES_PER_DIMENSION);
+        }
+        return bytes.length / BYTES_PER_DIMENSION;
+    }
+}
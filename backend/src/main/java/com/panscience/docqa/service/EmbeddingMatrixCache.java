@@ -0,0 +1,140 @@
+package com.panscience.docqa.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of {@link DocumentMatrix} snapshots keyed by document id.
+ * Entries are evicted least-recently-used first once the summed matrix size
+ * exceeds {@code app.vector-search.cache.max-bytes}. Every invalidation bumps the
+ * document's generation, and a matrix loaded under an older generation is returned but
+ * not cached.
+ */
+@Component
+@Slf4j
+public class EmbeddingMatrixCache {
+
+    private final Map<Long, DocumentMatrix> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LoadGenerations generations = new LoadGenerations();
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private long currentBytes;
+
+    public EmbeddingMatrixCache(MeterRegistry meterRegistry,
+                                @Value("${app.vector-search.cache.max-bytes:268435456}") long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("docqa.vector.matrix.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docqa.vector.matrix.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("docqa.vector.matrix.cache.evictions")
+                .register(meterRegistry);
+        Gauge.builder("docqa.vector.matrix.cache.bytes", this, EmbeddingMatrixCache::currentBytes)
+                .register(meterRegistry);
+        Gauge.builder("docqa.vector.matrix.cache.entries", this, EmbeddingMatrixCache::size)
+                .register(meterRegistry);
+    }
+
+    public DocumentMatrix get(Long documentId, Function<Long, DocumentMatrix> loader) {
+        long generation;
+        synchronized (this) {
+            DocumentMatrix cached = entries.get(documentId);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            generation = generations.begin(documentId);
+        }
+
+        misses.increment();
+        // Load outside the lock so a slow database read does not block other documents
+        DocumentMatrix loaded;
+        try {
+            loaded = loader.apply(documentId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                generations.end(documentId, generation);
+            }
+            throw e;
+        }
+        put(loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Drops the cached matrix now and, when called inside a transaction, again after commit
+     * so a concurrent reader cannot re-populate the cache with pre-commit rows.
+     */
+    public void invalidate(Long documentId) {
+        remove(documentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(documentId);
+                }
+            });
+        }
+    }
+
+    public synchronized long currentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int trackedLoads() {
+        return generations.tracked();
+    }
+
+    private synchronized void put(DocumentMatrix matrix, long generation) {
+        // Invalidated while loading: the rows read may predate the change
+        if (!generations.end(matrix.documentId(), generation)) {
+            return;
+        }
+        if (matrix.sizeInBytes() > maxBytes) {
+            log.debug("Matrix for document {} ({} bytes) exceeds cache capacity, not caching",
+                    matrix.documentId(), matrix.sizeInBytes());
+            return;
+        }
+
+        DocumentMatrix previous = entries.put(matrix.documentId(), matrix);
+        if (previous != null) {
+            currentBytes -= previous.sizeInBytes();
+        }
+        currentBytes += matrix.sizeInBytes();
+
+        Iterator<DocumentMatrix> eldest = entries.values().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            DocumentMatrix evicted = eldest.next();
+            eldest.remove();
+            currentBytes -= evicted.sizeInBytes();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(Long documentId) {
+        generations.invalidate(documentId);
+        DocumentMatrix removed = entries.remove(documentId);
+        if (removed != null) {
+            currentBytes -= removed.sizeInBytes();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.panscience.docqa.service;
+
+public interface EmbeddingMigrationService {
+
+    /**
+     * Starts the migration in the background once the application is ready. Declared here
+     * because the {@code @Async} proxy only exposes interface methods to the event listener.
+     */
+    void onApplicationReady();
+
+    int migrateLegacyEmbeddings();
+}
@@ -0,0 +1,89 @@
+package com.panscience.docqa.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts embeddings persisted in the legacy JSON text column into the binary
+ * {@code embedding_vector} column. Runs once in the background after startup and
+ * commits one batch per transaction, so it can be interrupted and resumed safely.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingMigrationServiceImpl implements EmbeddingMigrationService {
+
+    private final DocumentContentRepository documentContentRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.embedding-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.embedding-migration.batch-size:200}")
+    private int batchSize;
+
+    @Override
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Legacy embedding migration disabled");
+            return;
+        }
+        int migrated = migrateLegacyEmbeddings();
+        if (migrated > 0) {
+            log.info("Migrated {} legacy JSON embeddings to binary storage", migrated);
+        }
+    }
+
+    @Override
+    public int migrateLegacyEmbeddings() {
+        int total = 0;
+        while (true) {
+            Integer converted = transactionTemplate.execute(status -> migrateBatch());
+            if (converted == null || converted == 0) {
+                return total;
+            }
+            total += converted;
+        }
+    }
+
+    private int migrateBatch() {
+        // Converted rows drop out of the result set, so the first page is always the next batch
+        List<DocumentContent> batch = documentContentRepository
+                .findByEmbeddingIsNotNullAndEmbeddingVectorIsNull(PageRequest.of(0, batchSize));
+
+        Map<Long, byte[]> vectors = new HashMap<>();
+        for (DocumentContent content : batch) {
+            try {
+                float[] vector = objectMapper.readValue(content.getEmbedding(), float[].class);
+                vectors.put(content.getId(), EmbeddingCodec.encode(VectorMath.normalize(vector)));
+            } catch (IOException e) {
+                // Unreadable rows are dropped so they get re-embedded instead of blocking the migration
+                log.warn("Discarding unparseable legacy embedding for content {}", content.getId());
+            }
+            content.setEmbedding(null);
+        }
+
+        // The vector column is written only by the bulk update; saveAll clears the JSON column
+        documentContentRepository.updateEmbeddingVectors(vectors);
+        documentContentRepository.saveAll(batch);
+        return batch.size();
+    }
+}
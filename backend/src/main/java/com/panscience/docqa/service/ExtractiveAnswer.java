@@ -0,0 +1,55 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Answer built without a model: from each of the most relevant chunks, the sentence sharing
+ * the most terms with the question, quoted with its time or page. Used while the chat model
+ * is unavailable, so it must stay cheap and never fail.
+ */
+final class ExtractiveAnswer {
+
+    static final String PREAMBLE = "The AI service is temporarily unavailable, so here are the passages of the " +
+            "document most relevant to your question:";
+
+    private static final int MAX_PASSAGES = 3;
+    private static final int MAX_SENTENCE_LENGTH = 300;
+
+    private ExtractiveAnswer() {
+    }
+
+    static String from(String question, List<DocumentContent> rankedChunks) {
+        if (rankedChunks.isEmpty()) {
+            return "The AI service is temporarily unavailable and no matching passages were found. " +
+                    "Please try again shortly.";
+        }
+
+        Set<String> questionTerms = new HashSet<>(TextAnalyzer.tokenize(question));
+        StringBuilder answer = new StringBuilder(PREAMBLE).append('\n');
+        for (DocumentContent chunk : rankedChunks.subList(0, Math.min(MAX_PASSAGES, rankedChunks.size()))) {
+            answer.append("\n> ")
+                    .append(ContextPacker.header(chunk))
+                    .append(bestSentence(chunk.getContent(), questionTerms));
+        }
+        return answer.toString();
+    }
+
+    private static String bestSentence(String content, Set<String> questionTerms) {
+        String best = null;
+        int bestOverlap = -1;
+        for (String sentence : content.strip().split("(?<=[.!?])\\s+")) {
+            Set<String> terms = new HashSet<>(TextAnalyzer.tokenize(sentence));
+            terms.retainAll(questionTerms);
+            // Ties keep the earlier sentence
+            if (terms.size() > bestOverlap) {
+                best = sentence;
+                bestOverlap = terms.size();
+            }
+        }
+        return best.length() > MAX_SENTENCE_LENGTH ? best.substring(0, MAX_SENTENCE_LENGTH) + "..." : best;
+    }
+}
@@ -0,0 +1,79 @@
+package com.panscience.docqa.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Expands query terms into close spellings that actually occur in the document, using the
+ * trigram index over its term dictionary. Transcripts spell the same name several ways and
+ * users misspell it a few more, so each query term matches itself with weight 1 plus up to
+ * {@code max-expansions} variants weighted by their trigram similarity.
+ */
+@Component
+public class FuzzyTermExpander {
+
+    private final TermIndexStore termIndexStore;
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxExpansions;
+    private final int minTermLength;
+
+    public FuzzyTermExpander(TermIndexStore termIndexStore,
+                             @Value("${app.lexical-search.fuzzy.enabled:true}") boolean enabled,
+                             @Value("${app.lexical-search.fuzzy.threshold:0.3}") double threshold,
+                             @Value("${app.lexical-search.fuzzy.max-expansions:3}") int maxExpansions,
+                             @Value("${app.lexical-search.fuzzy.min-term-length:4}") int minTermLength) {
+        this.termIndexStore = termIndexStore;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxExpansions = maxExpansions;
+        this.minTermLength = minTermLength;
+    }
+
+    public List<Expansion> expand(Long documentId, Collection<String> queryTerms) {
+        if (!enabled) {
+            return exactOnly(queryTerms);
+        }
+        return expand(termIndexStore.get(documentId), queryTerms);
+    }
+
+    public List<Expansion> expand(DocumentTermIndex index, Collection<String> queryTerms) {
+        if (!enabled) {
+            return exactOnly(queryTerms);
+        }
+
+        List<Expansion> expansions = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(queryTerms)) {
+            Map<String, Float> weights = new LinkedHashMap<>();
+            weights.put(term, 1f);
+            // Short terms share most of their trigrams with unrelated words
+            if (term.length() >= minTermLength) {
+                for (TrigramIndex.Similar variant : index.trigrams().similar(term, threshold, maxExpansions)) {
+                    weights.put(variant.term(), variant.similarity());
+                }
+            }
+            expansions.add(new Expansion(term, weights));
+        }
+        return expansions;
+    }
+
+    private static List<Expansion> exactOnly(Collection<String> queryTerms) {
+        return new LinkedHashSet<>(queryTerms).stream().map(Expansion::exact).toList();
+    }
+
+    /**
+     * One query term and the dictionary terms that may stand in for it, with their weights.
+     */
+    public record Expansion(String queryTerm, Map<String, Float> weights) {
+
+        public static Expansion exact(String term) {
+            return new Expansion(term, Map.of(term, 1f));
+        }
+
+        public Set<String> terms() {
+            return weights.keySet();
+        }
+    }
+}
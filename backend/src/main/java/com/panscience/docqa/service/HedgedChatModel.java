@@ -0,0 +1,173 @@
+package com.panscience.docqa.service;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Cuts the latency tail of blocking chat calls with hedged requests. If the primary request
+ * has not answered within the configured percentile of recent call latencies, an identical
+ * hedge request is sent; the first successful answer wins and the other request is
+ * cancelled. Hedges are limited to {@code maxRatio} of calls by a credit budget, and the
+ * hedge model may refuse (for example when the chat lane has no free slot), in which case
+ * the caller simply keeps waiting for the primary.
+ */
+@Slf4j
+class HedgedChatModel implements ChatLanguageModel {
+
+    private static final int MIN_SAMPLES = 20;
+    private static final double MAX_CREDITS = 10;
+
+    private final ChatLanguageModel primaryModel;
+    private final ChatLanguageModel hedgeModel;
+    private final ExecutorService executor;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final long initialDelayMillis;
+    private final double maxRatio;
+    private final long[] latencies;
+    private int latencyCount;
+    private int latencyNext;
+    private double credits;
+    private final Counter calls;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter skipped;
+
+    HedgedChatModel(ChatLanguageModel primaryModel, ChatLanguageModel hedgeModel, ExecutorService executor,
+                    MeterRegistry meterRegistry, double percentile, Duration minDelay, Duration initialDelay,
+                    double maxRatio, int window) {
+        this.primaryModel = primaryModel;
+        this.hedgeModel = hedgeModel;
+        this.executor = executor;
+        this.percentile = percentile;
+        this.minDelayMillis = minDelay.toMillis();
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.maxRatio = maxRatio;
+        this.latencies = new long[window];
+        this.calls = meterRegistry.counter("llm.hedge.calls");
+        this.fired = meterRegistry.counter("llm.hedge", "outcome", "fired");
+        this.won = meterRegistry.counter("llm.hedge", "outcome", "won");
+        this.skipped = meterRegistry.counter("llm.hedge", "outcome", "skipped");
+        Gauge.builder("llm.hedge.delay", this, HedgedChatModel::hedgeDelayMillis)
+                .description("Wait before a hedge request is sent")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("llm.hedge.ratio", this, model -> model.calls.count() == 0
+                        ? 0 : model.fired.count() / model.calls.count())
+                .description("Share of chat calls that sent a hedge request; each is an extra billed request")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        calls.increment();
+        earnCredit();
+        ExecutorCompletionService<Response<AiMessage>> race = new ExecutorCompletionService<>(executor);
+        Future<Response<AiMessage>> primary = race.submit(() -> timed(primaryModel, messages));
+        Future<Response<AiMessage>> hedge = null;
+        try {
+            Future<Response<AiMessage>> first = race.poll(hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+            if (first == null) {
+                if (!spendCredit()) {
+                    skipped.increment();
+                    return result(primary);
+                }
+                fired.increment();
+                hedge = race.submit(() -> timed(hedgeModel, messages));
+                first = race.take();
+            }
+
+            try {
+                Response<AiMessage> response = first.get();
+                if (first == hedge) {
+                    won.increment();
+                }
+                return response;
+            } catch (ExecutionException e) {
+                if (hedge == null) {
+                    throw unwrap(e);
+                }
+                // One request failed (possibly a hedge refused for lack of a slot); use the other
+                log.debug("{} request failed, waiting for the other: {}",
+                        first == hedge ? "Hedge" : "Primary", e.getCause().getMessage());
+                return result(race.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the model", e);
+        } finally {
+            // Whichever request lost is interrupted and its result discarded
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    long hedgeDelayMillis() {
+        long[] samples;
+        synchronized (this) {
+            if (latencyCount < MIN_SAMPLES) {
+                return initialDelayMillis;
+            }
+            samples = Arrays.copyOf(latencies, latencyCount);
+        }
+        Arrays.sort(samples);
+        int rank = (int) Math.ceil(percentile * samples.length) - 1;
+        return Math.max(minDelayMillis, samples[Math.max(0, rank)]);
+    }
+
+    private Response<AiMessage> timed(ChatLanguageModel model, List<ChatMessage> messages) {
+        long start = System.nanoTime();
+        Response<AiMessage> response = model.generate(messages);
+        recordLatency((System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    private synchronized void recordLatency(long millis) {
+        latencies[latencyNext] = millis;
+        latencyNext = (latencyNext + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(MAX_CREDITS, credits + maxRatio);
+    }
+
+    private synchronized boolean spendCredit() {
+        if (credits < 1) {
+            return false;
+        }
+        credits -= 1;
+        return true;
+    }
+
+    private static Response<AiMessage> result(Future<Response<AiMessage>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException cause) {
+            return cause;
+        }
+        if (e.getCause() instanceof Error cause) {
+            throw cause;
+        }
+        return new IllegalStateException(e.getCause());
+    }
+}
@@ -0,0 +1,522 @@
+package com.panscience.docqa.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process HNSW (hierarchical navigable small world) graph over L2-normalized chunk
+ * embeddings, scored by dot product. Supports incremental inserts, per-document
+ * tombstones and binary persistence. Deleted nodes stay in the graph for navigation
+ * but are never returned; {@link #compact()} rebuilds the graph without them.
+ */
+public class HnswIndex {
+
+    private static final int FORMAT_MAGIC = 0x484E5357; // "HNSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_LEVEL = 16;
+
+    public record Hit(long chunkId, long documentId, float score) {}
+
+    private record Scored(int node, float score) {}
+
+    private static final Comparator<Scored> BEST_FIRST = (a, b) -> Float.compare(b.score(), a.score());
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ArrayList<int[][]> links = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, List<Integer>> nodesByDocument = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors = new float[0];
+    private long[] chunkIds = new long[0];
+    private long[] documentIds = new long[0];
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(42);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Inserts one normalized vector. Callers replacing a document should
+     * {@link #markDeleted(long)} it first.
+     */
+    public void add(long chunkId, long documentId, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+
+        lock.writeLock().lock();
+        try {
+            int node = size;
+            ensureCapacity(node + 1);
+            System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+            chunkIds[node] = chunkId;
+            documentIds[node] = documentId;
+
+            int level = randomLevel();
+            int[][] nodeLinks = new int[level + 1][];
+            Arrays.fill(nodeLinks, new int[0]);
+            links.add(nodeLinks);
+            size++;
+            nodesByDocument.computeIfAbsent(documentId, id -> new ArrayList<>()).add(node);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int closest = entryPoint;
+            for (int layer = maxLevel; layer > level; layer--) {
+                closest = greedyClosest(vector, closest, layer);
+            }
+
+            List<Scored> entryPoints = List.of(new Scored(closest, similarity(vector, closest)));
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                List<Scored> candidates = searchLayer(vector, entryPoints, efConstruction, layer);
+                int maxLinks = layer == 0 ? maxM0 : m;
+
+                int[] neighbours = selectNeighbours(candidates, maxLinks);
+                nodeLinks[layer] = neighbours;
+                for (int neighbour : neighbours) {
+                    connect(neighbour, node, layer, maxLinks);
+                }
+                entryPoints = candidates;
+            }
+
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tombstones every node of the document. Returns the number of nodes removed.
+     */
+    public int markDeleted(long documentId) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> nodes = nodesByDocument.remove(documentId);
+            if (nodes == null) {
+                return 0;
+            }
+            nodes.forEach(deleted::set);
+            return nodes.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean containsDocument(long documentId) {
+        lock.readLock().lock();
+        try {
+            return nodesByDocument.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Hit> search(float[] query, int k, int ef) {
+        if (query.length != dimension || k <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+
+            int closest = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                closest = greedyClosest(query, closest, layer);
+            }
+
+            // Widen the beam by the tombstone count (bounded) so deletions do not starve results
+            int beam = Math.max(ef, k) + Math.min(deleted.cardinality(), ef);
+            List<Scored> candidates = searchLayer(query,
+                    List.of(new Scored(closest, similarity(query, closest))), beam, 0);
+
+            List<Hit> hits = new ArrayList<>(k);
+            for (Scored candidate : candidates) {
+                if (!deleted.get(candidate.node())) {
+                    hits.add(new Hit(chunkIds[candidate.node()], documentIds[candidate.node()], candidate.score()));
+                    if (hits.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a new index containing only live nodes.
+     */
+    public HnswIndex compact() {
+        lock.readLock().lock();
+        try {
+            HnswIndex compacted = new HnswIndex(dimension, m, efConstruction);
+            float[] vector = new float[dimension];
+            for (int node = 0; node < size; node++) {
+                if (!deleted.get(node)) {
+                    System.arraycopy(vectors, node * dimension, vector, 0, dimension);
+                    compacted.add(chunkIds[node], documentIds[node], vector);
+                }
+            }
+            return compacted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(FORMAT_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.writeLong(chunkIds[node]);
+                out.writeLong(documentIds[node]);
+                out.writeBoolean(deleted.get(node));
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(vectors[node * dimension + i]);
+                }
+                int[][] nodeLinks = links.get(node);
+                out.writeByte(nodeLinks.length);
+                for (int[] layerLinks : nodeLinks) {
+                    out.writeShort(layerLinks.length);
+                    for (int neighbour : layerLinks) {
+                        out.writeInt(neighbour);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported HNSW index format");
+        }
+
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        int size = in.readInt();
+        index.ensureCapacity(size);
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+
+        for (int node = 0; node < size; node++) {
+            index.chunkIds[node] = in.readLong();
+            index.documentIds[node] = in.readLong();
+            if (in.readBoolean()) {
+                index.deleted.set(node);
+            } else {
+                index.nodesByDocument.computeIfAbsent(index.documentIds[node], id -> new ArrayList<>()).add(node);
+            }
+            for (int i = 0; i < index.dimension; i++) {
+                index.vectors[node * index.dimension + i] = in.readFloat();
+            }
+            int[][] nodeLinks = new int[in.readByte()][];
+            for (int layer = 0; layer < nodeLinks.length; layer++) {
+                nodeLinks[layer] = new int[in.readShort()];
+                for (int i = 0; i < nodeLinks[layer].length; i++) {
+                    nodeLinks[layer][i] = in.readInt();
+                }
+            }
+            index.links.add(nodeLinks);
+        }
+        index.size = size;
+        return index;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbour : links.get(current)[layer]) {
+                float score = similarity(query, neighbour);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer. Returns up to {@code ef} nodes, best first.
+     */
+    private List<Scored> searchLayer(float[] query, List<Scored> entryPoints, int ef, int layer) {
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+        BitSet visited = new BitSet(size);
+
+        for (Scored entry : entryPoints) {
+            if (!visited.get(entry.node())) {
+                visited.set(entry.node());
+                candidates.push(entry.node(), entry.score());
+                results.push(entry.node(), entry.score());
+                if (results.size() > ef) {
+                    results.pop();
+                }
+            }
+        }
+
+        while (candidates.size() > 0) {
+            float currentScore = candidates.topScore();
+            int current = candidates.pop();
+            if (results.size() >= ef && currentScore < results.topScore()) {
+                break;
+            }
+            for (int neighbour : links.get(current)[layer]) {
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = similarity(query, neighbour);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+
+        // Results is a min-heap: drain it from the back to get best-first order
+        Scored[] ordered = new Scored[results.size()];
+        for (int i = ordered.length - 1; i >= 0; i--) {
+            float score = results.topScore();
+            ordered[i] = new Scored(results.pop(), score);
+        }
+        return Arrays.asList(ordered);
+    }
+
+    private void connect(int from, int to, int layer, int maxLinks) {
+        int[][] fromLinks = links.get(from);
+        int[] existing = fromLinks[layer];
+        if (existing.length < maxLinks) {
+            int[] extended = Arrays.copyOf(existing, existing.length + 1);
+            extended[existing.length] = to;
+            fromLinks[layer] = extended;
+            return;
+        }
+
+        // Over capacity: re-select the neighbourhood of "from" including the new node
+        int fromOffset = from * dimension;
+        List<Scored> candidates = new ArrayList<>(existing.length + 1);
+        for (int neighbour : existing) {
+            candidates.add(new Scored(neighbour, dot(fromOffset, neighbour * dimension)));
+        }
+        candidates.add(new Scored(to, dot(fromOffset, to * dimension)));
+        candidates.sort(BEST_FIRST);
+        int[] kept = new int[maxLinks];
+        for (int i = 0; i < maxLinks; i++) {
+            kept[i] = candidates.get(i).node();
+        }
+        fromLinks[layer] = kept;
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: a candidate is kept only if it is
+     * closer to the base node than to every neighbour already kept, which spreads links
+     * across clusters. Remaining slots are filled with the best pruned candidates.
+     *
+     * @param candidates candidates sorted best first by similarity to the base node
+     */
+    private int[] selectNeighbours(List<Scored> candidates, int maxLinks) {
+        int[] selected = new int[Math.min(maxLinks, candidates.size())];
+        int count = 0;
+        List<Scored> pruned = new ArrayList<>();
+
+        for (Scored candidate : candidates) {
+            if (count == selected.length) {
+                break;
+            }
+            int candidateOffset = candidate.node() * dimension;
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (dot(candidateOffset, selected[i] * dimension) > candidate.score()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate.node();
+            } else {
+                pruned.add(candidate);
+            }
+        }
+
+        for (int i = 0; count < selected.length && i < pruned.size(); i++) {
+            selected[count++] = pruned.get(i).node();
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private float similarity(float[] query, int node) {
+        return dot(query, 0, vectors, node * dimension);
+    }
+
+    private float dot(int offsetA, int offsetB) {
+        return dot(vectors, offsetA, vectors, offsetB);
+    }
+
+    private float dot(float[] a, int offsetA, float[] b, int offsetB) {
+        // Independent accumulators avoid serializing on one running sum
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int upperBound = dimension & ~3; i < upperBound; i += 4) {
+            s0 += a[offsetA + i] * b[offsetB + i];
+            s1 += a[offsetA + i + 1] * b[offsetB + i + 1];
+            s2 += a[offsetA + i + 2] * b[offsetB + i + 2];
+            s3 += a[offsetA + i + 3] * b[offsetB + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += a[offsetA + i] * b[offsetB + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private int randomLevel() {
+        double level = -Math.log(1 - random.nextDouble()) * levelMultiplier;
+        return (int) Math.min(level, MAX_LEVEL);
+    }
+
+    private void ensureCapacity(int required) {
+        if (chunkIds.length >= required) {
+            return;
+        }
+        int capacity = Math.max(required, Math.max(16, chunkIds.length * 2));
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        chunkIds = Arrays.copyOf(chunkIds, capacity);
+        documentIds = Arrays.copyOf(documentIds, capacity);
+    }
+
+    /**
+     * Growable binary heap of (node, score) pairs in parallel primitive arrays.
+     */
+    private static final class NodeHeap {
+        private final boolean maxHeap;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int initialCapacity, boolean maxHeap) {
+            this.maxHeap = maxHeap;
+            this.nodes = new int[Math.max(initialCapacity, 4)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[index] = nodes[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            nodes[index] = node;
+            scores[index] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[index] = nodes[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            nodes[index] = lastNode;
+            scores[index] = lastScore;
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return maxHeap ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.panscience.docqa.service;
+
+import java.util.List;
+
+public interface HybridSearchService {
+
+    /**
+     * Best {@code topK} chunks of one document by reciprocal rank fusion of the lexical and
+     * vector rankings. Scores are fused RRF scores, not similarities.
+     */
+    List<ScoredChunk> search(Long documentId, String query, int topK);
+}
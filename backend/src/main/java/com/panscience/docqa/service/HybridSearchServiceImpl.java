@@ -0,0 +1,94 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the lexical ranking on its own pool while the query is embedded and scored on the
+ * calling thread, then fuses both lists with reciprocal rank fusion:
+ * {@code score(chunk) = sum over rankings of 1 / (k + rank)}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HybridSearchServiceImpl implements HybridSearchService {
+
+    private final VectorSearchService vectorSearchService;
+    private final LexicalSearchService lexicalSearchService;
+
+    @Value("${app.hybrid-search.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${app.hybrid-search.candidates:20}")
+    private int candidates;
+
+    @Value("${app.hybrid-search.lexical-threads:4}")
+    private int lexicalThreads;
+
+    private ExecutorService lexicalExecutor;
+
+    @PostConstruct
+    public void init() {
+        this.lexicalExecutor = Executors.newFixedThreadPool(lexicalThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (lexicalExecutor != null) {
+            lexicalExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public List<ScoredChunk> search(Long documentId, String query, int topK) {
+        int depth = Math.max(candidates, topK);
+        CompletableFuture<List<ScoredChunk>> lexical = CompletableFuture
+                .supplyAsync(() -> lexicalSearchService.search(documentId, query, depth), lexicalExecutor)
+                .exceptionally(e -> {
+                    log.warn("Lexical search failed for document {}: {}", documentId, e.getMessage());
+                    return List.of();
+                });
+
+        List<ScoredChunk> vector = vectorRanking(documentId, query, depth);
+        return fuse(List.of(lexical.join(), vector), topK);
+    }
+
+    private List<ScoredChunk> vectorRanking(Long documentId, String query, int depth) {
+        try {
+            float[] queryVector = vectorSearchService.embedQuery(query);
+            // Mock mode has no embeddings, and its unranked leading chunks would only dilute the fusion
+            return queryVector == null ? List.of() : vectorSearchService.searchScored(documentId, queryVector, depth);
+        } catch (RuntimeException e) {
+            log.warn("Vector search failed for document {}: {}", documentId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<ScoredChunk> fuse(List<List<ScoredChunk>> rankings, int topK) {
+        Map<Long, DocumentContent> chunks = new HashMap<>();
+        Map<Long, Double> fused = new LinkedHashMap<>();
+        for (List<ScoredChunk> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                DocumentContent chunk = ranking.get(rank).chunk();
+                chunks.putIfAbsent(chunk.getId(), chunk);
+                fused.merge(chunk.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+
+        return fused.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(topK)
+                .map(entry -> new ScoredChunk(chunks.get(entry.getKey()), entry.getValue().floatValue()))
+                .toList();
+    }
+}
@@ -0,0 +1,22 @@
+package com.panscience.docqa.service;
+
+import java.util.List;
+
+public interface LexicalSearchService {
+
+    enum Match {
+        /** Chunks containing at least one query term. */
+        ANY,
+        /** Chunks containing every query term. */
+        ALL
+    }
+
+    /**
+     * Best {@code topK} chunks of one document for the query terms, best first.
+     */
+    default List<ScoredChunk> search(Long documentId, String query, int topK) {
+        return search(documentId, query, topK, Match.ANY);
+    }
+
+    List<ScoredChunk> search(Long documentId, String query, int topK, Match match);
+}
@@ -0,0 +1,550 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.exception.LlmUnavailableException;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The single place that talks to OpenAI. Each client is built once, with the configured
+ * timeout, and shared by every service, so callers reuse its connection pool. Calls go
+ * through one bulkhead per {@link Lane}: a lane has its own permits, so background summaries
+ * and ingestion embeddings can saturate their lanes without taking a slot from chat. A 429
+ * from the provider puts the lane into backoff that doubles while 429s continue and decays
+ * on success; summaries also wait out the chat lane's backoff.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LlmGateway {
+
+    public enum Lane {
+        /** Chat answers and query embeddings: someone is waiting for them. */
+        CHAT,
+        /** Document summaries generated during ingestion. */
+        SUMMARY,
+        /** Chunk embeddings generated during ingestion. */
+        EMBEDDING
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.api-key}")
+    private String openaiApiKey;
+
+    @Value("${openai.model}")
+    private String modelName;
+
+    @Value("${openai.embedding-model:text-embedding-3-small}")
+    private String embeddingModelName;
+
+    @Value("${app.mock-ai:true}")
+    private boolean useMockAi;
+
+    @Value("${app.chat.max-answer-tokens:2000}")
+    private int maxAnswerTokens;
+
+    @Value("${app.llm.timeout:PT60S}")
+    private Duration timeout;
+
+    @Value("${app.llm.chat.max-concurrent:8}")
+    private int chatConcurrency;
+
+    @Value("${app.llm.chat.acquire-timeout:PT5S}")
+    private Duration chatAcquireTimeout;
+
+    @Value("${app.llm.summary.max-concurrent:2}")
+    private int summaryConcurrency;
+
+    @Value("${app.llm.summary.acquire-timeout:PT10M}")
+    private Duration summaryAcquireTimeout;
+
+    @Value("${app.llm.embedding.max-concurrent:4}")
+    private int embeddingConcurrency;
+
+    @Value("${app.llm.embedding.acquire-timeout:PT2M}")
+    private Duration embeddingAcquireTimeout;
+
+    @Value("${app.llm.rate-limit.max-attempts:4}")
+    private int rateLimitAttempts;
+
+    @Value("${app.llm.rate-limit.initial-backoff:PT1S}")
+    private Duration initialBackoff;
+
+    @Value("${app.llm.rate-limit.max-backoff:PT60S}")
+    private Duration maxBackoff;
+
+    @Value("${app.llm.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${app.llm.hedging.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${app.llm.hedging.min-delay:PT0.5S}")
+    private Duration hedgeMinDelay;
+
+    @Value("${app.llm.hedging.initial-delay:PT3S}")
+    private Duration hedgeInitialDelay;
+
+    @Value("${app.llm.hedging.max-ratio:0.1}")
+    private double hedgeMaxRatio;
+
+    @Value("${app.llm.hedging.window:256}")
+    private int hedgeWindow;
+
+    @Value("${app.llm.circuit-breaker.window:50}")
+    private int breakerWindow;
+
+    @Value("${app.llm.circuit-breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${app.llm.circuit-breaker.failure-rate-threshold:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${app.llm.circuit-breaker.slow-call-rate-threshold:0.5}")
+    private double breakerSlowCallRate;
+
+    @Value("${app.llm.circuit-breaker.slow-call-duration:PT20S}")
+    private Duration breakerSlowCallDuration;
+
+    @Value("${app.llm.circuit-breaker.open-duration:PT30S}")
+    private Duration breakerOpenDuration;
+
+    @Value("${app.llm.circuit-breaker.half-open-calls:3}")
+    private int breakerHalfOpenCalls;
+
+    private final Map<Lane, Bulkhead> bulkheads = new EnumMap<>(Lane.class);
+    private CircuitBreaker chatBreaker;
+    private CircuitBreaker embeddingBreaker;
+
+    private ChatLanguageModel chatModel;
+    private StreamingChatLanguageModel streamingChatModel;
+    private ChatLanguageModel summaryModel;
+    private EmbeddingModel embeddingModel;
+    private EmbeddingModel queryEmbeddingModel;
+    private ExecutorService hedgeExecutor;
+
+    @PostConstruct
+    public void init() {
+        bulkheads.put(Lane.CHAT, new Bulkhead(Lane.CHAT, chatConcurrency, chatAcquireTimeout));
+        bulkheads.put(Lane.SUMMARY, new Bulkhead(Lane.SUMMARY, summaryConcurrency, summaryAcquireTimeout));
+        bulkheads.put(Lane.EMBEDDING, new Bulkhead(Lane.EMBEDDING, embeddingConcurrency, embeddingAcquireTimeout));
+        this.chatBreaker = circuitBreaker("chat");
+        this.embeddingBreaker = circuitBreaker("embedding");
+
+        if (useMockAi || openaiApiKey == null || openaiApiKey.contains("placeholder")) {
+            log.info("LLM gateway disabled (mock AI mode)");
+            return;
+        }
+        try {
+            // One attempt inside the client; 429s are retried here, where the lane can back off
+            ChatLanguageModel chat = OpenAiChatModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName(modelName)
+                    .maxTokens(maxAnswerTokens)
+                    .temperature(0.7)
+                    .timeout(timeout)
+                    .maxRetries(1)
+                    .build();
+            this.chatModel = hedgingEnabled ? hedge(chat) : gate(Lane.CHAT, chatBreaker, chat);
+            this.streamingChatModel = gate(Lane.CHAT, chatBreaker, OpenAiStreamingChatModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName(modelName)
+                    .maxTokens(maxAnswerTokens)
+                    .temperature(0.7)
+                    .timeout(timeout)
+                    .build());
+            // Summaries already fall back on failure and are long calls, so they stay outside the chat circuit
+            this.summaryModel = gate(Lane.SUMMARY, null, OpenAiChatModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName(modelName)
+                    .maxTokens(1000)
+                    .temperature(0.3)
+                    .timeout(timeout)
+                    .maxRetries(1)
+                    .build());
+            EmbeddingModel embeddings = OpenAiEmbeddingModel.builder()
+                    .apiKey(openaiApiKey)
+                    .modelName(embeddingModelName)
+                    .timeout(timeout)
+                    .maxRetries(1)
+                    .build();
+            this.embeddingModel = gate(Lane.EMBEDDING, embeddingBreaker, embeddings);
+            this.queryEmbeddingModel = gate(Lane.CHAT, embeddingBreaker, embeddings);
+            log.info("LLM gateway initialized: chat={}, summary={}, embedding={} concurrent calls, hedging {}",
+                    chatConcurrency, summaryConcurrency, embeddingConcurrency, hedgingEnabled ? "on" : "off");
+        } catch (Exception e) {
+            log.warn("Failed to initialize OpenAI clients, using mock mode: {}", e.getMessage());
+            this.chatModel = null;
+            this.streamingChatModel = null;
+            this.summaryModel = null;
+            this.embeddingModel = null;
+            this.queryEmbeddingModel = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return chatModel != null;
+    }
+
+    public ChatLanguageModel chatModel() {
+        return chatModel;
+    }
+
+    public StreamingChatLanguageModel streamingChatModel() {
+        return streamingChatModel;
+    }
+
+    public ChatLanguageModel summaryModel() {
+        return summaryModel;
+    }
+
+    /** Embeddings for chunks being ingested. */
+    public EmbeddingModel embeddingModel() {
+        return embeddingModel;
+    }
+
+    /** Embeddings for search questions, on the chat lane so ingestion cannot delay them. */
+    public EmbeddingModel queryEmbeddingModel() {
+        return queryEmbeddingModel;
+    }
+
+    private CircuitBreaker circuitBreaker(String name) {
+        return new CircuitBreaker(name, meterRegistry, breakerWindow, breakerMinimumCalls, breakerFailureRate,
+                breakerSlowCallRate, breakerSlowCallDuration, breakerOpenDuration, breakerHalfOpenCalls,
+                System::nanoTime);
+    }
+
+    ChatLanguageModel gate(Lane lane, CircuitBreaker breaker, ChatLanguageModel delegate) {
+        long acquireTimeoutMillis = bulkheads.get(lane).acquireTimeoutMillis;
+        return messages -> call(lane, breaker, acquireTimeoutMillis, () -> delegate.generate(messages));
+    }
+
+    /**
+     * Blocking chat calls with hedging. The primary request waits for a chat slot like any
+     * other call; the hedge only runs if a slot is free right away, so hedging never queues
+     * behind, or pushes out, other users' chats.
+     */
+    private ChatLanguageModel hedge(ChatLanguageModel delegate) {
+        this.hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llm-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ChatLanguageModel primaryModel = gate(Lane.CHAT, chatBreaker, delegate);
+        ChatLanguageModel hedgeModel = messages -> call(Lane.CHAT, chatBreaker, 0, () -> delegate.generate(messages));
+        return new HedgedChatModel(primaryModel, hedgeModel, hedgeExecutor, meterRegistry,
+                hedgePercentile, hedgeMinDelay, hedgeInitialDelay, hedgeMaxRatio, hedgeWindow);
+    }
+
+    EmbeddingModel gate(Lane lane, CircuitBreaker breaker, EmbeddingModel delegate) {
+        long acquireTimeoutMillis = bulkheads.get(lane).acquireTimeoutMillis;
+        return segments -> call(lane, breaker, acquireTimeoutMillis, () -> delegate.embedAll(segments));
+    }
+
+    StreamingChatLanguageModel gate(Lane lane, CircuitBreaker breaker, StreamingChatLanguageModel delegate) {
+        return new GatedStreamingChatModel(bulkheads.get(lane), breaker, delegate);
+    }
+
+    /**
+     * Runs {@code action} holding a permit of {@code lane}, retrying 429 responses after the
+     * lane's backoff.
+     */
+    <T> T call(Lane lane, Supplier<T> action) {
+        return call(lane, null, bulkheads.get(lane).acquireTimeoutMillis, action);
+    }
+
+    /**
+     * As {@link #call(Lane, Supplier)}, guarded by {@code breaker} when it is not null. An open
+     * circuit refuses the call before it waits for a permit, so a failing provider cannot pile
+     * up threads; the breaker sees the outcome and duration of the call including 429 retries.
+     */
+    <T> T call(Lane lane, CircuitBreaker breaker, long acquireTimeoutMillis, Supplier<T> action) {
+        if (breaker != null) {
+            breaker.acquirePermission();
+        }
+        Bulkhead bulkhead = bulkheads.get(lane);
+        try {
+            bulkhead.acquire(acquireTimeoutMillis);
+        } catch (LlmUnavailableException e) {
+            if (breaker != null) {
+                breaker.onIgnored();
+            }
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = retryingRateLimits(lane, bulkhead, action);
+            if (breaker != null) {
+                breaker.onSuccess(System.nanoTime() - start);
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (breaker != null) {
+                record(breaker, e, System.nanoTime() - start);
+            }
+            throw e;
+        } finally {
+            bulkhead.permits.release();
+        }
+    }
+
+    private static void record(CircuitBreaker breaker, Throwable error, long durationNanos) {
+        // A hedge loser is interrupted on purpose; that says nothing about the provider
+        if (Thread.currentThread().isInterrupted() || isInterruption(error)) {
+            breaker.onIgnored();
+        } else {
+            breaker.onError(durationNanos);
+        }
+    }
+
+    private static boolean isInterruption(Throwable error) {
+        for (Throwable cause = error; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException || cause instanceof InterruptedIOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> T retryingRateLimits(Lane lane, Bulkhead bulkhead, Supplier<T> action) {
+        // The permit is kept while backing off so a throttled lane also sends fewer requests at once
+        for (int attempt = 1; ; attempt++) {
+            waitOutBackoff(bulkhead);
+            try {
+                T result = action.get();
+                bulkhead.backoff.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (!isRateLimited(e)) {
+                    throw e;
+                }
+                long delay = bulkhead.onRateLimited();
+                if (attempt >= rateLimitAttempts) {
+                    throw new LlmUnavailableException("The language model is rate limiting " +
+                            lane.name().toLowerCase() + " requests, try again shortly", e);
+                }
+                log.warn("{} call rate limited (attempt {}/{}), backing off {} ms",
+                        lane, attempt, rateLimitAttempts, delay);
+            }
+        }
+    }
+
+    private void waitOutBackoff(Bulkhead bulkhead) {
+        long delay = bulkhead.backoff.remainingMillis();
+        if (bulkhead.lane == Lane.SUMMARY) {
+            // Background work yields while interactive chat is being throttled
+            delay = Math.max(delay, bulkheads.get(Lane.CHAT).backoff.remainingMillis());
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LlmUnavailableException("Interrupted while backing off", e);
+        }
+    }
+
+    static boolean isRateLimited(Throwable error) {
+        // langchain4j wraps the client's exception once per retry layer
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OpenAiHttpException http && http.code() == 429) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private final class Bulkhead {
+
+        private final Lane lane;
+        private final Semaphore permits;
+        private final long acquireTimeoutMillis;
+        private final AdaptiveBackoff backoff = new AdaptiveBackoff(initialBackoff.toMillis(), maxBackoff.toMillis());
+        private final Counter rejected;
+        private final Counter rateLimited;
+
+        Bulkhead(Lane lane, int size, Duration acquireTimeout) {
+            this.lane = lane;
+            this.permits = new Semaphore(size, true);
+            this.acquireTimeoutMillis = acquireTimeout.toMillis();
+            String tag = lane.name().toLowerCase();
+            this.rejected = meterRegistry.counter("llm.bulkhead.rejected", "lane", tag);
+            this.rateLimited = meterRegistry.counter("llm.rate.limited", "lane", tag);
+            Gauge.builder("llm.bulkhead.in.use", permits, semaphore -> size - semaphore.availablePermits())
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+
+        void acquire(long timeoutMillis) {
+            try {
+                if (permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rejected.increment();
+            throw new LlmUnavailableException("All " + lane.name().toLowerCase() +
+                    " model slots are busy, try again shortly");
+        }
+
+        long onRateLimited() {
+            rateLimited.increment();
+            return backoff.onRateLimited();
+        }
+    }
+
+    /**
+     * Shared pause for one lane: each 429 doubles the penalty (with jitter) up to the
+     * maximum and pushes back when the lane may call again; each success halves it.
+     */
+    static final class AdaptiveBackoff {
+
+        private final long initialMillis;
+        private final long maxMillis;
+        private long penaltyMillis;
+        private long resumeAt;
+
+        AdaptiveBackoff(long initialMillis, long maxMillis) {
+            this.initialMillis = initialMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        synchronized long onRateLimited() {
+            penaltyMillis = penaltyMillis == 0 ? initialMillis : Math.min(maxMillis, penaltyMillis * 2);
+            long delay = penaltyMillis / 2 + ThreadLocalRandom.current().nextLong(penaltyMillis / 2 + 1);
+            resumeAt = Math.max(resumeAt, System.currentTimeMillis() + delay);
+            return delay;
+        }
+
+        synchronized void onSuccess() {
+            penaltyMillis = penaltyMillis / 2 < initialMillis ? 0 : penaltyMillis / 2;
+        }
+
+        synchronized long remainingMillis() {
+            return resumeAt - System.currentTimeMillis();
+        }
+
+        synchronized long penaltyMillis() {
+            return penaltyMillis;
+        }
+    }
+
+    /**
+     * Holds the lane permit from the request until the stream completes or fails. The breaker
+     * sees the outcome and the time to the first token, since a long answer is not a slow one.
+     */
+    private final class GatedStreamingChatModel implements StreamingChatLanguageModel {
+
+        private final Bulkhead bulkhead;
+        private final CircuitBreaker breaker;
+        private final StreamingChatLanguageModel delegate;
+
+        GatedStreamingChatModel(Bulkhead bulkhead, CircuitBreaker breaker, StreamingChatLanguageModel delegate) {
+            this.bulkhead = bulkhead;
+            this.breaker = breaker;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+            breaker.acquirePermission();
+            try {
+                bulkhead.acquire(bulkhead.acquireTimeoutMillis);
+            } catch (LlmUnavailableException e) {
+                breaker.onIgnored();
+                throw e;
+            }
+            long start = System.nanoTime();
+            AtomicLong firstTokenNanos = new AtomicLong(-1);
+            AtomicBoolean finished = new AtomicBoolean();
+            try {
+                waitOutBackoff(bulkhead);
+                delegate.generate(messages, new StreamingResponseHandler<>() {
+                    @Override
+                    public void onNext(String token) {
+                        firstTokenNanos.compareAndSet(-1, System.nanoTime() - start);
+                        handler.onNext(token);
+                    }
+
+                    @Override
+                    public void onComplete(Response<AiMessage> response) {
+                        if (finished.compareAndSet(false, true)) {
+                            bulkhead.permits.release();
+                            bulkhead.backoff.onSuccess();
+                            long latency = firstTokenNanos.get();
+                            breaker.onSuccess(latency >= 0 ? latency : System.nanoTime() - start);
+                        }
+                        handler.onComplete(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        if (finished.compareAndSet(false, true)) {
+                            bulkhead.permits.release();
+                            // Tokens may already be on the wire, so a throttled stream is not retried
+                            if (isRateLimited(error)) {
+                                bulkhead.onRateLimited();
+                            }
+                            record(breaker, error, System.nanoTime() - start);
+                        }
+                        handler.onError(error);
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (finished.compareAndSet(false, true)) {
+                    bulkhead.permits.release();
+                    record(breaker, e, System.nanoTime() - start);
+                }
+                throw e;
+            }
+        }
+    }
+}
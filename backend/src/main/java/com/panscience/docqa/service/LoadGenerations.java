@@ -0,0 +1,60 @@
+package com.panscience.docqa.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tells a per-document cache whether the document was invalidated while a value for it was
+ * being loaded, so a load that raced an invalidation is not cached. Only documents with a
+ * load in flight are tracked; the entry goes away when the last one ends. Not thread-safe:
+ * callers hold the lock that also guards their cached values.
+ */
+final class LoadGenerations {
+
+    private final Map<Long, Loads> loads = new HashMap<>();
+
+    private static final class Loads {
+        long generation;
+        int inFlight;
+    }
+
+    /**
+     * Starts a load of {@code documentId} and returns the generation it loads under.
+     */
+    long begin(Long documentId) {
+        Loads document = loads.computeIfAbsent(documentId, id -> new Loads());
+        document.inFlight++;
+        return document.generation;
+    }
+
+    /**
+     * Whether {@code documentId} has not been invalidated since the load began.
+     */
+    boolean isCurrent(Long documentId, long generation) {
+        Loads document = loads.get(documentId);
+        return document != null && document.generation == generation;
+    }
+
+    /**
+     * Ends a load started with {@link #begin}; returns whether its result may be cached.
+     */
+    boolean end(Long documentId, long generation) {
+        boolean current = isCurrent(documentId, generation);
+        Loads document = loads.get(documentId);
+        if (document != null && --document.inFlight == 0) {
+            loads.remove(documentId);
+        }
+        return current;
+    }
+
+    void invalidate(Long documentId) {
+        Loads document = loads.get(documentId);
+        if (document != null) {
+            document.generation++;
+        }
+    }
+
+    int tracked() {
+        return loads.size();
+    }
+}
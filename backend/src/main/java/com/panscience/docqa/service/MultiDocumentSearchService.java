@@ -0,0 +1,8 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.MultiSearchRequest;
+import com.panscience.docqa.dto.MultiSearchResponse;
+
+public interface MultiDocumentSearchService {
+    MultiSearchResponse search(MultiSearchRequest request);
+}
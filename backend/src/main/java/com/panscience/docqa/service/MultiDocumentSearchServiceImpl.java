@@ -0,0 +1,189 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.CorpusSearchResponse;
+import com.panscience.docqa.dto.MultiSearchRequest;
+import com.panscience.docqa.dto.MultiSearchResponse;
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.repository.DocumentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Searches many documents for one question. The query is embedded once, each document is
+ * scored by a leaf task on a dedicated {@link ForkJoinPool}, and sibling tasks merge their
+ * best-first lists so only the global top-K survives each join.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MultiDocumentSearchServiceImpl implements MultiDocumentSearchService {
+
+    private final DocumentRepository documentRepository;
+    private final VectorSearchService vectorSearchService;
+
+    @Value("${app.multi-search.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool searchPool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // Kept apart from the common pool so long searches cannot starve parallel streams elsewhere
+        this.searchPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("multi-search-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+        log.info("Multi-document search pool started with parallelism {}", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (searchPool != null) {
+            searchPool.shutdownNow();
+        }
+    }
+
+    @Override
+    public MultiSearchResponse search(MultiSearchRequest request) {
+        long start = System.nanoTime();
+        List<Document> documents = resolveDocuments(request.getDocumentIds());
+
+        long embeddingStart = System.nanoTime();
+        float[] queryVector = vectorSearchService.embedQuery(request.getQuery());
+        long embeddingNanos = System.nanoTime() - embeddingStart;
+
+        PartialResult merged = documents.isEmpty()
+                ? new PartialResult(List.of(), List.of())
+                : searchPool.invoke(new SearchTask(documents, 0, documents.size(), queryVector, request.getTopK()));
+
+        List<CorpusSearchResponse.Hit> results = merged.hits().stream()
+                .map(hit -> CorpusSearchResponse.Hit.from(hit.scored().chunk(), hit.document().getId(),
+                        hit.document().getOriginalFileName(), hit.scored().score()))
+                .toList();
+
+        return MultiSearchResponse.builder()
+                .query(request.getQuery())
+                .results(results)
+                .documents(merged.timings())
+                .embeddingMs(embeddingNanos / 1_000_000)
+                .tookMs((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    private List<Document> resolveDocuments(List<Long> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return documentRepository.findAllProcessedDocuments();
+        }
+
+        Set<Long> uniqueIds = new LinkedHashSet<>(documentIds);
+        Map<Long, Document> found = documentRepository.findAllById(uniqueIds).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        List<Document> documents = new ArrayList<>(uniqueIds.size());
+        for (Long id : uniqueIds) {
+            Document document = found.get(id);
+            if (document == null) {
+                throw new DocumentNotFoundException(id);
+            }
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private record RankedHit(Document document, ScoredChunk scored) {
+    }
+
+    private record PartialResult(List<RankedHit> hits, List<MultiSearchResponse.DocumentTiming> timings) {
+    }
+
+    /**
+     * Splits the document range in halves down to single documents. Timings are concatenated
+     * in request order and hit lists are merged best-first, truncated to {@code topK}.
+     */
+    private class SearchTask extends RecursiveTask<PartialResult> {
+
+        private final List<Document> documents;
+        private final int from;
+        private final int to;
+        private final float[] queryVector;
+        private final int topK;
+
+        SearchTask(List<Document> documents, int from, int to, float[] queryVector, int topK) {
+            this.documents = documents;
+            this.from = from;
+            this.to = to;
+            this.queryVector = queryVector;
+            this.topK = topK;
+        }
+
+        @Override
+        protected PartialResult compute() {
+            if (to - from == 1) {
+                return searchDocument(documents.get(from));
+            }
+
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(documents, from, middle, queryVector, topK);
+            left.fork();
+            PartialResult right = new SearchTask(documents, middle, to, queryVector, topK).compute();
+            return merge(left.join(), right);
+        }
+
+        private PartialResult searchDocument(Document document) {
+            MultiSearchResponse.DocumentTiming.DocumentTimingBuilder timing = MultiSearchResponse.DocumentTiming.builder()
+                    .documentId(document.getId())
+                    .documentName(document.getOriginalFileName());
+
+            if (document.getStatus() != Document.ProcessingStatus.COMPLETED) {
+                return new PartialResult(List.of(), List.of(timing.error("Document is " + document.getStatus()).build()));
+            }
+
+            long start = System.nanoTime();
+            try {
+                List<RankedHit> hits = vectorSearchService.searchScored(document.getId(), queryVector, topK).stream()
+                        .map(scored -> new RankedHit(document, scored))
+                        .toList();
+                timing.hits(hits.size()).tookMs((System.nanoTime() - start) / 1e6);
+                return new PartialResult(hits, List.of(timing.build()));
+            } catch (RuntimeException e) {
+                // One unreadable document should not fail the whole search
+                log.warn("Search failed for document {}: {}", document.getId(), e.getMessage());
+                timing.tookMs((System.nanoTime() - start) / 1e6).error(e.getMessage());
+                return new PartialResult(List.of(), List.of(timing.build()));
+            }
+        }
+
+        private PartialResult merge(PartialResult left, PartialResult right) {
+            List<RankedHit> hits = new ArrayList<>(Math.min(topK, left.hits().size() + right.hits().size()));
+            int i = 0;
+            int j = 0;
+            while (hits.size() < topK && (i < left.hits().size() || j < right.hits().size())) {
+                // Ties keep the left document first so results follow request order
+                if (j >= right.hits().size()
+                        || (i < left.hits().size()
+                        && left.hits().get(i).scored().score() >= right.hits().get(j).scored().score())) {
+                    hits.add(left.hits().get(i++));
+                } else {
+                    hits.add(right.hits().get(j++));
+                }
+            }
+
+            List<MultiSearchResponse.DocumentTiming> timings = new ArrayList<>(left.timings());
+            timings.addAll(right.timings());
+            return new PartialResult(hits, timings);
+        }
+    }
+}
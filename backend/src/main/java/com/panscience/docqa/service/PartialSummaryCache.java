@@ -0,0 +1,86 @@
+package com.panscience.docqa.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of the partial summaries of map-reduce summarization, keyed by a SHA-256 hash
+ * of the prompt and the text it summarizes. Sections of a reprocessed document that did not
+ * change hash the same and are not sent to the model again. Failed summaries are not cached.
+ */
+@Component
+public class PartialSummaryCache {
+
+    private final Map<String, String> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PartialSummaryCache(MeterRegistry meterRegistry,
+                               @Value("${app.summary.partial-cache.max-entries:4096}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("summary.partial.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("summary.partial.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("summary.partial.cache.size", this, PartialSummaryCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached summary of {@code text} under {@code prompt}, computing it with
+     * {@code summarizer} on a miss. Concurrent misses on the same key may both compute.
+     */
+    public String get(String prompt, String text, Supplier<String> summarizer) {
+        String key = key(prompt, text);
+        synchronized (this) {
+            String cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        String summary = summarizer.get();
+        put(key, summary);
+        return summary;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String key(String prompt, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private synchronized void put(String key, String summary) {
+        entries.put(key, summary);
+        var eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
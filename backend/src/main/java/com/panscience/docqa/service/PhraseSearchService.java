@@ -0,0 +1,11 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.PhraseSearchResponse;
+
+public interface PhraseSearchService {
+    /**
+     * Finds chunks containing the exact phrase or, when {@code within} is set, all of its
+     * words no more than {@code within} words apart.
+     */
+    PhraseSearchResponse search(Long documentId, String query, Integer within, int limit);
+}
@@ -0,0 +1,89 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.PhraseSearchResponse;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.repository.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Answers phrase and proximity queries from the positions in the document's
+ * {@link DocumentTermIndex}. Hits come back in chunk order with their time range, so a
+ * transcript match can be played from where it was said. Hit text comes from the index
+ * too, so a query against an indexed document does not touch the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class PhraseSearchServiceImpl implements PhraseSearchService {
+
+    private final DocumentRepository documentRepository;
+    private final TermIndexStore termIndexStore;
+
+    @Override
+    public PhraseSearchResponse search(Long documentId, String query, Integer within, int limit) {
+        long start = System.nanoTime();
+        DocumentTermIndex index = termIndexStore.get(documentId);
+        // Only an empty index can belong to a document that does not exist
+        if (index.chunkCount() == 0 && !documentRepository.existsById(documentId)) {
+            throw new DocumentNotFoundException(documentId);
+        }
+
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(query);
+        List<PhraseSearchResponse.Hit> results = new ArrayList<>();
+        if (!tokens.isEmpty()) {
+            List<DocumentTermIndex.Occurrence> occurrences = within == null
+                    ? index.findPhrase(tokens)
+                    : index.findNear(tokens.stream().map(TextAnalyzer.Token::term).toList(), Math.max(0, within));
+            results = toHits(index, occurrences, limit);
+        }
+
+        return PhraseSearchResponse.builder()
+                .documentId(documentId)
+                .query(query)
+                .within(within)
+                .results(results)
+                .tookMs((System.nanoTime() - start) / 1e6)
+                .build();
+    }
+
+    private List<PhraseSearchResponse.Hit> toHits(DocumentTermIndex index,
+                                                  List<DocumentTermIndex.Occurrence> occurrences, int limit) {
+        // Occurrences arrive in row order; keep each row's first match and count the rest
+        Map<Integer, DocumentTermIndex.Occurrence> firstByRow = new LinkedHashMap<>();
+        Map<Integer, Integer> countByRow = new HashMap<>();
+        for (DocumentTermIndex.Occurrence occurrence : occurrences) {
+            if (firstByRow.size() >= limit && !firstByRow.containsKey(occurrence.row())) {
+                break;
+            }
+            firstByRow.putIfAbsent(occurrence.row(), occurrence);
+            countByRow.merge(occurrence.row(), 1, Integer::sum);
+        }
+
+        List<PhraseSearchResponse.Hit> hits = new ArrayList<>(firstByRow.size());
+        for (DocumentTermIndex.Occurrence occurrence : firstByRow.values()) {
+            DocumentContent chunk = index.chunk(occurrence.row());
+            hits.add(PhraseSearchResponse.Hit.builder()
+                    .chunkId(chunk.getId())
+                    .chunkIndex(chunk.getChunkIndex())
+                    .content(chunk.getContent())
+                    .matches(countByRow.get(occurrence.row()))
+                    .pageNumber(chunk.getPageNumber())
+                    .startTime(chunk.getStartTime())
+                    .endTime(chunk.getEndTime())
+                    .matchTime(estimateTime(chunk, occurrence.position(), index.chunkWords(occurrence.row())))
+                    .build());
+        }
+        return hits;
+    }
+
+    // Transcript chunks only carry segment-level times, so assume words are evenly spaced
+    private static Double estimateTime(DocumentContent chunk, int position, int words) {
+        if (chunk.getStartTime() == null || chunk.getEndTime() == null || words == 0) {
+            return chunk.getStartTime();
+        }
+        return chunk.getStartTime() + (chunk.getEndTime() - chunk.getStartTime()) * position / words;
+    }
+}
@@ -0,0 +1,72 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.ChunkRank;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lexical search delegated to Postgres: the GIN-indexed {@code content_tsv} column is matched
+ * with a tsquery and ranked with {@code ts_rank_cd}, so filtering, ranking and the limit all
+ * happen server-side. Selected with {@code app.lexical-search.engine=postgres}. With
+ * {@code app.lexical-search.postgres.fuzzy-expansion=true}, query terms are also expanded with
+ * fuzzy variants from the in-process term dictionary, since Postgres' stemmed tsvector lexemes
+ * cannot match misspellings on their own; that loads, and on first use builds and writes,
+ * each searched document's term index, so it is off by default.
+ */
+@Service
+@ConditionalOnProperty(name = "app.lexical-search.engine", havingValue = "postgres")
+@RequiredArgsConstructor
+public class PostgresLexicalSearchService implements LexicalSearchService {
+
+    private final DocumentContentRepository documentContentRepository;
+    private final FuzzyTermExpander fuzzyTermExpander;
+
+    @Value("${app.lexical-search.postgres.fuzzy-expansion:false}")
+    private boolean fuzzyExpansion;
+
+    @Override
+    public List<ScoredChunk> search(Long documentId, String query, int topK, Match match) {
+        List<String> terms = TextAnalyzer.tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Tokens are letters and digits only, so they are safe as to_tsquery operands
+        List<FuzzyTermExpander.Expansion> expansions = fuzzyExpansion
+                ? fuzzyTermExpander.expand(documentId, terms)
+                : new LinkedHashSet<>(terms).stream().map(FuzzyTermExpander.Expansion::exact).toList();
+        String tsQuery = match == Match.ALL
+                ? expansions.stream()
+                        .map(expansion -> expansion.terms().size() == 1
+                                ? expansion.queryTerm()
+                                : "(" + String.join(" | ", expansion.terms()) + ")")
+                        .collect(Collectors.joining(" & "))
+                : expansions.stream()
+                        .flatMap(expansion -> expansion.terms().stream())
+                        .distinct()
+                        .collect(Collectors.joining(" | "));
+        List<ChunkRank> ranks = documentContentRepository.searchFullText(documentId, tsQuery, topK);
+
+        Map<Long, DocumentContent> chunks = documentContentRepository
+                .findAllById(ranks.stream().map(ChunkRank::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(DocumentContent::getId, Function.identity()));
+
+        List<ScoredChunk> results = new ArrayList<>(ranks.size());
+        for (ChunkRank rank : ranks) {
+            DocumentContent chunk = chunks.get(rank.getId());
+            if (chunk != null) {
+                results.add(new ScoredChunk(chunk, rank.getRank()));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,96 @@
+package com.panscience.docqa.service;
+
+/**
+ * Row-major int8 codes for a block of vectors, one byte per dimension. Each row keeps
+ * its own scale and offset so a value decodes as {@code offset + scale * (code + 128)},
+ * which maps the row's [min, max] range onto the 256 available codes.
+ *
+ * Scores are approximate; callers needing exact ordering re-score a shortlist against
+ * the full-precision vectors.
+ */
+public final class QuantizedVectors {
+
+    private static final int LEVELS = 255;
+
+    private final byte[] codes;
+    private final float[] scales;
+    private final float[] offsets;
+    private final int rows;
+    private final int dimension;
+
+    private QuantizedVectors(byte[] codes, float[] scales, float[] offsets, int rows, int dimension) {
+        this.codes = codes;
+        this.scales = scales;
+        this.offsets = offsets;
+        this.rows = rows;
+        this.dimension = dimension;
+    }
+
+    public static QuantizedVectors quantize(float[] matrix, int rows, int dimension) {
+        byte[] codes = new byte[rows * dimension];
+        float[] scales = new float[rows];
+        float[] offsets = new float[rows];
+
+        for (int row = 0; row < rows; row++) {
+            int base = row * dimension;
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < dimension; i++) {
+                min = Math.min(min, matrix[base + i]);
+                max = Math.max(max, matrix[base + i]);
+            }
+
+            float scale = max > min ? (max - min) / LEVELS : 0f;
+            float inverse = scale > 0 ? 1f / scale : 0f;
+            for (int i = 0; i < dimension; i++) {
+                int level = Math.round((matrix[base + i] - min) * inverse);
+                codes[base + i] = (byte) (Math.min(level, LEVELS) - 128);
+            }
+            scales[row] = scale;
+            offsets[row] = min;
+        }
+        return new QuantizedVectors(codes, scales, offsets, rows, dimension);
+    }
+
+    /**
+     * Approximate dot product of every row with {@code query}. Expanding the decode formula gives
+     * {@code scale * (q . codes) + (offset + 128 * scale) * sum(q)}, so the inner loop only
+     * multiplies floats by bytes and the per-row correction is applied once.
+     */
+    public void scoreAll(float[] query, float[] scores) {
+        float querySum = 0;
+        for (int i = 0; i < dimension; i++) {
+            querySum += query[i];
+        }
+
+        int upperBound = dimension & ~3;
+        for (int row = 0; row < rows; row++) {
+            int base = row * dimension;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i < upperBound; i += 4) {
+                s0 += codes[base + i] * query[i];
+                s1 += codes[base + i + 1] * query[i + 1];
+                s2 += codes[base + i + 2] * query[i + 2];
+                s3 += codes[base + i + 3] * query[i + 3];
+            }
+            for (; i < dimension; i++) {
+                s0 += codes[base + i] * query[i];
+            }
+            float dot = (s0 + s1) + (s2 + s3);
+            scores[row] = scales[row] * dot + (offsets[row] + 128 * scales[row]) * querySum;
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public long sizeInBytes() {
+        return codes.length + (long) rows * 2 * Float.BYTES;
+    }
+}
@@ -0,0 +1,194 @@
+package com.panscience.docqa.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * LRU + TTL cache of query embeddings keyed by embedding model and normalized question
+ * text, so repeated questions such as "summarize this" skip the embedding round trip.
+ * When {@code app.query-embedding-cache.snapshot-path} is set, entries are written to
+ * disk on shutdown and reloaded on startup.
+ */
+@Component
+@Slf4j
+public class QueryEmbeddingCache {
+
+    private static final int SNAPSHOT_MAGIC = 0x51454332; // "QEC2": keys as length-prefixed UTF-8
+    private static final int SNAPSHOT_MAGIC_V1 = 0x51454331; // "QEC1": keys as modified UTF-8, 64 KB max
+
+    private final Map<String, CachedVector> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final String snapshotPath;
+    private final Counter hits;
+    private final Counter misses;
+
+    public QueryEmbeddingCache(MeterRegistry meterRegistry,
+                               @Value("${app.query-embedding-cache.max-entries:10000}") int maxEntries,
+                               @Value("${app.query-embedding-cache.ttl:PT24H}") Duration ttl,
+                               @Value("${app.query-embedding-cache.snapshot-path:}") String snapshotPath) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.snapshotPath = snapshotPath;
+        this.hits = Counter.builder("docqa.query.embedding.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docqa.query.embedding.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("docqa.query.embedding.cache.size", this, QueryEmbeddingCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached vector for {@code query}, computing it with {@code embedder} on a miss.
+     * Returned arrays are shared and must not be modified.
+     */
+    public float[] get(String modelName, String query, Function<String, float[]> embedder) {
+        String key = key(modelName, query);
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            CachedVector cached = entries.get(key);
+            if (cached != null && !cached.isExpired(now, ttlMillis)) {
+                hits.increment();
+                return cached.vector();
+            }
+        }
+
+        misses.increment();
+        float[] vector = embedder.apply(query);
+        put(key, new CachedVector(vector, now));
+        return vector;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String key(String modelName, String query) {
+        return modelName + '\u0000' + normalize(query);
+    }
+
+    /**
+     * Case, surrounding whitespace, repeated spaces and trailing punctuation do not change
+     * what a question asks.
+     */
+    static String normalize(String query) {
+        return query.strip()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[?!.]+$", "");
+    }
+
+    private synchronized void put(String key, CachedVector value) {
+        entries.put(key, value);
+        var eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (snapshotPath.isBlank() || !Files.exists(Paths.get(snapshotPath))) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(Paths.get(snapshotPath))))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V1) {
+                log.warn("Ignoring query embedding snapshot with unknown format: {}", snapshotPath);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = magic == SNAPSHOT_MAGIC_V1 ? in.readUTF() : readKey(in);
+                long createdAt = in.readLong();
+                float[] vector = new float[in.readInt()];
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = in.readFloat();
+                }
+                CachedVector cached = new CachedVector(vector, createdAt);
+                if (!cached.isExpired(now, ttlMillis)) {
+                    put(key, cached);
+                }
+            }
+            log.info("Loaded {} query embeddings from {}", size(), snapshotPath);
+        } catch (IOException e) {
+            log.warn("Failed to load query embedding snapshot {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (snapshotPath.isBlank()) {
+            return;
+        }
+
+        Map<String, CachedVector> copy;
+        synchronized (this) {
+            copy = new LinkedHashMap<>(entries);
+        }
+
+        Path target = Paths.get(snapshotPath).toAbsolutePath();
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), "query-embeddings", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(copy.size());
+                for (Map.Entry<String, CachedVector> entry : copy.entrySet()) {
+                    // writeUTF would throw for questions over 64 KB of modified UTF-8
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeLong(entry.getValue().createdAt());
+                    float[] vector = entry.getValue().vector();
+                    out.writeInt(vector.length);
+                    for (float value : vector) {
+                        out.writeFloat(value);
+                    }
+                }
+            }
+            // Replace atomically so a crash mid-write never leaves a truncated snapshot
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} query embeddings to {}", copy.size(), target);
+        } catch (IOException e) {
+            log.warn("Failed to save query embedding snapshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    private static String readKey(DataInputStream in) throws IOException {
+        byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private record CachedVector(float[] vector, long createdAt) {
+        boolean isExpired(long now, long ttlMillis) {
+            return now - createdAt > ttlMillis;
+        }
+    }
+}
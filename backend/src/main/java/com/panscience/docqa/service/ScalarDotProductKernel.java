@@ -0,0 +1,58 @@
+package com.panscience.docqa.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Portable fallback kernel. Four independent accumulators let the JIT overlap
+ * the multiply-adds instead of serializing on a single running sum.
+ */
+public class ScalarDotProductKernel implements DotProductKernel {
+
+    @Override
+    public void scoreAll(float[] matrix, int rows, int dimension, float[] query, float[] scores) {
+        int upperBound = dimension & ~3;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * dimension;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i < upperBound; i += 4) {
+                s0 += matrix[offset + i] * query[i];
+                s1 += matrix[offset + i + 1] * query[i + 1];
+                s2 += matrix[offset + i + 2] * query[i + 2];
+                s3 += matrix[offset + i + 3] * query[i + 3];
+            }
+            for (; i < dimension; i++) {
+                s0 += matrix[offset + i] * query[i];
+            }
+            scores[row] = (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    @Override
+    public void scoreAll(ByteBuffer matrix, int rows, int dimension, float[] query, float[] scores) {
+        ByteBuffer buffer = matrix.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int upperBound = dimension & ~3;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * dimension * Float.BYTES;
+            float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int i = 0;
+            for (; i < upperBound; i += 4) {
+                int at = offset + i * Float.BYTES;
+                s0 += buffer.getFloat(at) * query[i];
+                s1 += buffer.getFloat(at + 4) * query[i + 1];
+                s2 += buffer.getFloat(at + 8) * query[i + 2];
+                s3 += buffer.getFloat(at + 12) * query[i + 3];
+            }
+            for (; i < dimension; i++) {
+                s0 += buffer.getFloat(offset + i * Float.BYTES) * query[i];
+            }
+            scores[row] = (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
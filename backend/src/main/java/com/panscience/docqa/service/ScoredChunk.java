@@ -0,0 +1,9 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+
+/**
+ * A retrieved chunk with its cosine similarity to the query.
+ */
+public record ScoredChunk(DocumentContent chunk, float score) {
+}
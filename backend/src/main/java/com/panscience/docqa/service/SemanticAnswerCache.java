@@ -0,0 +1,174 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-document cache of chat answers keyed by the normalized query embedding. A question
+ * whose embedding has cosine similarity of at least {@code similarity-threshold} with a
+ * cached question is answered from the cache, skipping retrieval and the LLM call. Entries
+ * expire after {@code ttl}, each document keeps its newest {@code max-entries-per-document},
+ * and a document's entries are dropped when it is reprocessed or deleted. Callers take the
+ * document's {@link #generation} before retrieval and hand it back to {@link #put}, so an
+ * answer built from chunks that were replaced in the meantime is not cached.
+ */
+@Component
+public class SemanticAnswerCache {
+
+    private final Map<Long, DocumentAnswers> entries = new ConcurrentHashMap<>();
+    private final AtomicLong nextGeneration = new AtomicLong();
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final long ttlMillis;
+    private final int maxEntriesPerDocument;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SemanticAnswerCache(MeterRegistry meterRegistry,
+                               @Value("${app.answer-cache.enabled:true}") boolean enabled,
+                               @Value("${app.answer-cache.similarity-threshold:0.95}") double similarityThreshold,
+                               @Value("${app.answer-cache.ttl:PT6H}") Duration ttl,
+                               @Value("${app.answer-cache.max-entries-per-document:256}") int maxEntriesPerDocument) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntriesPerDocument = maxEntriesPerDocument;
+        this.hits = Counter.builder("docqa.answer.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docqa.answer.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("docqa.answer.cache.size", this, SemanticAnswerCache::size)
+                .register(meterRegistry);
+        Gauge.builder("docqa.answer.cache.hit.ratio", this, SemanticAnswerCache::hitRatio)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached answer to the most similar earlier question, or null when none is close
+     * enough. {@code queryVector} must be normalized; null (mock mode) always misses.
+     */
+    public ChatResponse lookup(Long documentId, float[] queryVector) {
+        if (!enabled || queryVector == null) {
+            return null;
+        }
+
+        DocumentAnswers document = entries.get(documentId);
+        CachedAnswer best = null;
+        double bestSimilarity = similarityThreshold;
+        if (document != null) {
+            Deque<CachedAnswer> answers = document.answers();
+            long now = System.currentTimeMillis();
+            synchronized (answers) {
+                answers.removeIf(answer -> now - answer.createdAt() > ttlMillis);
+                for (CachedAnswer answer : answers) {
+                    double similarity = dot(answer.queryVector(), queryVector);
+                    if (similarity >= bestSimilarity) {
+                        best = answer;
+                        bestSimilarity = similarity;
+                    }
+                }
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return best.response();
+    }
+
+    /**
+     * The current generation of {@code documentId}'s answers; it changes on every
+     * {@link #invalidate}.
+     */
+    public long generation(Long documentId) {
+        if (!enabled) {
+            return 0;
+        }
+        return entries.computeIfAbsent(documentId, id -> new DocumentAnswers(nextGeneration.incrementAndGet()))
+                .generation();
+    }
+
+    /**
+     * Caches {@code response} unless the document was invalidated since {@code generation}
+     * was taken.
+     */
+    public void put(Long documentId, long generation, float[] queryVector, ChatResponse response) {
+        if (!enabled || queryVector == null) {
+            return;
+        }
+        DocumentAnswers document = entries.get(documentId);
+        if (document == null || document.generation() != generation) {
+            return;
+        }
+        Deque<CachedAnswer> answers = document.answers();
+        synchronized (answers) {
+            answers.addFirst(new CachedAnswer(queryVector, response, System.currentTimeMillis()));
+            while (answers.size() > maxEntriesPerDocument) {
+                answers.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Drops the document's answers now and, when called inside a transaction, again after
+     * commit so an answer built from the pre-commit chunks cannot be cached in between.
+     */
+    public void invalidate(Long documentId) {
+        entries.remove(documentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(documentId);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return entries.values().stream().mapToInt(document -> document.answers().size()).sum();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;  // Embedded with a different model
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record DocumentAnswers(long generation, Deque<CachedAnswer> answers) {
+
+        DocumentAnswers(long generation) {
+            this(generation, new ArrayDeque<>());
+        }
+    }
+
+    private record CachedAnswer(float[] queryVector, ChatResponse response, long createdAt) {
+    }
+}
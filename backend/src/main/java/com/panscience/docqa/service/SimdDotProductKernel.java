@@ -0,0 +1,65 @@
+package com.panscience.docqa.service;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Vector API kernel using the widest float species the CPU supports. Requires the
+ * JVM to be started with {@code --add-modules jdk.incubator.vector}; only ever
+ * instantiated reflectively by {@link DotProductKernels} after checking the module.
+ */
+public class SimdDotProductKernel implements DotProductKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void scoreAll(float[] matrix, int rows, int dimension, float[] query, float[] scores) {
+        int upperBound = SPECIES.loopBound(dimension);
+        for (int row = 0; row < rows; row++) {
+            int offset = row * dimension;
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < upperBound; i += SPECIES.length()) {
+                FloatVector a = FloatVector.fromArray(SPECIES, matrix, offset + i);
+                FloatVector b = FloatVector.fromArray(SPECIES, query, i);
+                acc = a.fma(b, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < dimension; i++) {
+                sum += matrix[offset + i] * query[i];
+            }
+            scores[row] = sum;
+        }
+    }
+
+    @Override
+    public void scoreAll(ByteBuffer matrix, int rows, int dimension, float[] query, float[] scores) {
+        ByteBuffer buffer = matrix.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int upperBound = SPECIES.loopBound(dimension);
+        for (int row = 0; row < rows; row++) {
+            int offset = row * dimension * Float.BYTES;
+            FloatVector acc = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < upperBound; i += SPECIES.length()) {
+                FloatVector a = FloatVector.fromByteBuffer(SPECIES, buffer, offset + i * Float.BYTES,
+                        ByteOrder.LITTLE_ENDIAN);
+                FloatVector b = FloatVector.fromArray(SPECIES, query, i);
+                acc = a.fma(b, acc);
+            }
+            float sum = acc.reduceLanes(VectorOperators.ADD);
+            for (; i < dimension; i++) {
+                sum += buffer.getFloat(offset + i * Float.BYTES) * query[i];
+            }
+            scores[row] = sum;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
@@ -0,0 +1,57 @@
+package com.panscience.docqa.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller runs the work, callers that
+ * arrive while it is in flight wait for and share its result, or its exception. Nothing is
+ * kept once the call completes, so a later caller runs the work again.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    record Result<V>(V value, boolean shared) {
+    }
+
+    Result<V> execute(K key, Supplier<V> work) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            return new Result<>(await(inFlight), true);
+        }
+
+        try {
+            V value = work.get();
+            call.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    int inFlight() {
+        return calls.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            // Waiters see the leader's own exception, not the future's wrapper
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,5 +1,15 @@
 package com.panscience.docqa.service;
 
+import com.panscience.docqa.entity.DocumentContent;
+
+import java.util.List;
+
 public interface SummaryService {
     String generateSummary(String content);
+
+    /**
+     * Summarizes a document from its chunks in chunk order. Documents too long for one prompt
+     * are summarized section by section and the partial summaries combined.
+     */
+    String generateSummary(List<DocumentContent> contents);
 }
@@ -1,85 +1,261 @@
 package com.panscience.docqa.service;
 
+import com.panscience.docqa.entity.DocumentContent;
 import dev.langchain4j.model.chat.ChatLanguageModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class SummaryServiceImpl implements SummaryService {
 
-    @Value("${openai.api-key}")
-    private String openaiApiKey;
+    private static final String SUMMARY_PROMPT = """
+            Please provide a comprehensive summary of the following content. 
+            The summary should:
+            1. Capture the main topics and key points
+            2. Be concise but informative (3-5 paragraphs)
+            3. Highlight any important details, dates, or figures
+            
+            Content:
+            %s
+            """;
+
+    private static final String SECTION_PROMPT = """
+            Summarize the following section of a longer document in one or two paragraphs.
+            Keep its main points and any important names, dates, or figures.
+            
+            Section:
+            %s
+            """;
+
+    private static final String COMBINE_PROMPT = """
+            The following are summaries of consecutive sections of one document.
+            Combine them into one shorter summary in reading order, keeping the main points
+            and any important names, dates, or figures.
+            
+            Section summaries:
+            %s
+            """;
+
+    // Each level shrinks the text several times over, so this is only a guard
+    private static final int MAX_REDUCE_LEVELS = 5;
+    private static final String SUMMARY_CACHE = "summaries";
 
-    @Value("${openai.model}")
-    private String modelName;
+    private final LlmGateway llmGateway;
+    private final TextRankSummarizer textRankSummarizer;
+    private final PartialSummaryCache partialSummaryCache;
+    private final CacheManager cacheManager;
 
     @Value("${app.mock-ai:true}")
     private boolean useMockAi;
 
+    @Value("${app.summary.max-input-chars:15000}")
+    private int maxInputChars;
+
+    @Value("${app.summary.extractive-sentences:8}")
+    private int extractiveSentences;
+
+    @Value("${app.summary.section-chars:12000}")
+    private int sectionChars;
+
+    @Value("${app.summary.map-concurrency:2}")
+    private int mapConcurrency;
+
     private ChatLanguageModel chatModel;
+    private ExecutorService sectionExecutor;
 
     @PostConstruct
     public void init() {
-        if (!useMockAi && openaiApiKey != null && !openaiApiKey.contains("placeholder")) {
-            try {
-                this.chatModel = OpenAiChatModel.builder()
-                        .apiKey(openaiApiKey)
-                        .modelName(modelName)
-                        .maxTokens(1000)
-                        .temperature(0.3)
-                        .build();
-                log.info("OpenAI ChatModel initialized successfully");
-            } catch (Exception e) {
-                log.warn("Failed to initialize OpenAI, falling back to mock mode: {}", e.getMessage());
-                useMockAi = true;
-            }
+        if (!useMockAi && llmGateway.isEnabled()) {
+            this.chatModel = llmGateway.summaryModel();
+            AtomicInteger threads = new AtomicInteger();
+            this.sectionExecutor = Executors.newFixedThreadPool(mapConcurrency, runnable -> {
+                Thread thread = new Thread(runnable, "summary-section-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("Summary service using the shared OpenAI summary lane, {} sections at a time", mapConcurrency);
         } else {
-            log.info("Using mock AI mode for summaries (no OpenAI cost)");
+            log.info("Using local extractive summaries (no OpenAI cost)");
             useMockAi = true;
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (sectionExecutor != null) {
+            sectionExecutor.shutdownNow();
+        }
+    }
+
     @Override
-    @Cacheable(value = "summaries", key = "#content.hashCode()")
+    @Cacheable(value = SUMMARY_CACHE, key = "#content.hashCode()")
     public String generateSummary(String content) {
         if (content == null || content.trim().isEmpty()) {
             return "No content available for summarization.";
         }
 
-        // Use mock summary for demo/assignment purposes
+        // Without a model, the summary is the document's highest ranked sentences
         if (useMockAi) {
-            return generateMockSummary(content);
+            return generateExtractiveSummary(content);
         }
 
-        // Truncate very long content
-        String truncatedContent = content.length() > 15000 
-                ? content.substring(0, 15000) + "..." 
-                : content;
-
-        String prompt = """
-                Please provide a comprehensive summary of the following content. 
-                The summary should:
-                1. Capture the main topics and key points
-                2. Be concise but informative (3-5 paragraphs)
-                3. Highlight any important details, dates, or figures
-                
-                Content:
-                %s
-                """.formatted(truncatedContent);
+        // Long content is cut down to its highest ranked sentences rather than its beginning
+        String truncatedContent = textRankSummarizer.compress(content, maxInputChars);
+
+        String prompt = SUMMARY_PROMPT.formatted(truncatedContent);
 
         try {
             String summary = chatModel.generate(prompt);
             log.info("Generated summary of length: {}", summary.length());
             return summary;
         } catch (Exception e) {
-            log.error("Failed to generate summary with OpenAI, using mock: {}", e.getMessage());
+            log.error("Failed to generate summary with OpenAI, using extractive summary: {}", e.getMessage());
+            return generateExtractiveSummary(content);
+        }
+    }
+
+    @Override
+    public String generateSummary(List<DocumentContent> contents) {
+        List<String> parts = contents.stream()
+                .map(DocumentContent::getContent)
+                .filter(Objects::nonNull)
+                .toList();
+        String text = String.join("\n", parts);
+        if (useMockAi || text.length() <= maxInputChars) {
+            // No model, or the document fits one prompt: summarize the whole text at once
+            return cachedSummary(text);
+        }
+
+        List<String> sections = sections(parts, sectionChars, "\n");
+        try {
+            return mapReduce(sections);
+        } catch (Exception e) {
+            log.error("Failed to generate summary with OpenAI, using extractive summary: {}", e.getMessage());
+            return generateExtractiveSummary(text);
+        }
+    }
+
+    /**
+     * {@link #generateSummary(String)} through the same cache entry its {@code @Cacheable}
+     * uses, which a call on {@code this} would bypass.
+     */
+    private String cachedSummary(String text) {
+        Cache cache = cacheManager.getCache(SUMMARY_CACHE);
+        if (cache == null) {
+            return generateSummary(text);
+        }
+        String cached = cache.get(text.hashCode(), String.class);
+        if (cached != null) {
+            return cached;
+        }
+        String summary = generateSummary(text);
+        cache.put(text.hashCode(), summary);
+        return summary;
+    }
+
+    /**
+     * Summarizes each section in parallel, then combines groups of the partial summaries
+     * level by level until they fit one prompt, which produces the final summary.
+     */
+    private String mapReduce(List<String> sections) {
+        long start = System.nanoTime();
+        List<String> partials = summarizeAll(SECTION_PROMPT, sections);
+        int levels = 1;
+        String combined = String.join("\n\n", partials);
+        while (combined.length() > maxInputChars && levels < MAX_REDUCE_LEVELS) {
+            List<String> groups = sections(partials, sectionChars, "\n\n");
+            if (groups.size() == partials.size()) {
+                break;  // Each partial fills a section on its own; compress below instead
+            }
+            partials = summarizeAll(COMBINE_PROMPT, groups);
+            combined = String.join("\n\n", partials);
+            levels++;
+        }
+
+        String summary = chatModel.generate(SUMMARY_PROMPT.formatted(
+                textRankSummarizer.compress(combined, maxInputChars)));
+        log.info("Generated summary of {} sections over {} levels in {} ms", sections.size(), levels,
+                (System.nanoTime() - start) / 1_000_000);
+        return summary;
+    }
+
+    private List<String> summarizeAll(String prompt, List<String> texts) {
+        List<CompletableFuture<String>> summaries = texts.stream()
+                .map(text -> CompletableFuture.supplyAsync(() -> summarizeSection(prompt, text), sectionExecutor))
+                .toList();
+        return summaries.stream().map(CompletableFuture::join).toList();
+    }
+
+    private String summarizeSection(String prompt, String text) {
+        try {
+            return partialSummaryCache.get(prompt, text, () -> chatModel.generate(prompt.formatted(text)));
+        } catch (RuntimeException e) {
+            // One failed section does not lose the others; it is not cached, so it is retried next time
+            log.warn("Failed to summarize a section with OpenAI, using its key sentences: {}", e.getMessage());
+            return textRankSummarizer.summarize(text, extractiveSentences);
+        }
+    }
+
+    /**
+     * Groups consecutive {@code parts} into sections of at most {@code maxChars}; a part
+     * longer than that is a section of its own.
+     */
+    static List<String> sections(List<String> parts, int maxChars, String separator) {
+        List<String> sections = new ArrayList<>();
+        StringBuilder section = new StringBuilder();
+        for (String part : parts) {
+            if (section.length() > 0 && section.length() + separator.length() + part.length() > maxChars) {
+                sections.add(section.toString());
+                section.setLength(0);
+            }
+            if (section.length() > 0) {
+                section.append(separator);
+            }
+            section.append(part);
+        }
+        if (section.length() > 0) {
+            sections.add(section.toString());
+        }
+        return sections;
+    }
+
+    /**
+     * Summary built locally with TextRank: the document's key sentences in reading order.
+     */
+    private String generateExtractiveSummary(String content) {
+        long start = System.nanoTime();
+        List<String> sentences = textRankSummarizer.select(content, extractiveSentences, Integer.MAX_VALUE);
+        if (sentences.isEmpty()) {
             return generateMockSummary(content);
         }
+        int wordCount = content.split("\\s+").length;
+
+        StringBuilder summary = new StringBuilder()
+                .append("**Document Summary (Extractive)**\n\n")
+                .append("Key sentences of this document (approximately ").append(wordCount)
+                .append(" words), selected locally without an AI model:\n\n");
+        sentences.forEach(sentence -> summary.append("- ").append(sentence).append('\n'));
+
+        log.info("Generated extractive summary of {} sentences in {} ms", sentences.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return summary.toString();
     }
 
     /**
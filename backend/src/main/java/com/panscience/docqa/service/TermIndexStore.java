@@ -0,0 +1,193 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the per-document {@link DocumentTermIndex} files under {@code app.upload-dir/terms}.
+ * Indexes are written at ingestion, deleted with their document, and rebuilt from the
+ * database when a file is missing, unreadable, or covers a different number of chunks.
+ * Recently used indexes stay in an LRU bounded by {@code app.lexical-search.cache.max-bytes}
+ * so lookups do not re-read the file.
+ * Every invalidation bumps the document's generation; a lookup that started under an older
+ * generation neither caches nor writes what it rebuilt, so a deleted document stays deleted.
+ */
+@Component
+@Slf4j
+public class TermIndexStore {
+
+    private static final String INDEX_SUFFIX = ".terms";
+
+    private final DocumentContentRepository documentContentRepository;
+    private final Path directory;
+    private final Map<Long, DocumentTermIndex> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long loadedBytes;
+    private final LoadGenerations generations = new LoadGenerations();
+
+    public TermIndexStore(DocumentContentRepository documentContentRepository,
+                          @Value("${app.upload-dir}") String uploadDir,
+                          @Value("${app.lexical-search.cache.max-bytes:134217728}") long maxBytes) {
+        this.documentContentRepository = documentContentRepository;
+        this.directory = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("terms");
+        this.maxBytes = maxBytes;
+    }
+
+    public DocumentTermIndex get(Long documentId) {
+        long generation;
+        synchronized (loaded) {
+            DocumentTermIndex index = loaded.get(documentId);
+            if (index != null) {
+                return index;
+            }
+            generation = generations.begin(documentId);
+        }
+
+        DocumentTermIndex index = null;
+        try {
+            index = readOrRebuild(documentId, generation);
+            return index;
+        } finally {
+            synchronized (loaded) {
+                if (generations.end(documentId, generation) && index != null) {
+                    cache(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds and persists the index for freshly saved chunks, replacing any previous one.
+     */
+    public DocumentTermIndex index(Long documentId, List<DocumentContent> chunks) {
+        DocumentTermIndex index = DocumentTermIndex.build(documentId, chunks);
+        synchronized (loaded) {
+            // Supersedes any rebuild already in flight for the previous chunks
+            generations.invalidate(documentId);
+            write(index);
+            cache(index);
+        }
+        log.debug("Indexed {} terms over {} chunks of document {}", index.terms().length, chunks.size(), documentId);
+        return index;
+    }
+
+    /**
+     * Drops the index and its file now and, when called inside a transaction, again after
+     * commit so a lookup that read the pre-commit chunks cannot bring either back.
+     */
+    public void invalidate(Long documentId) {
+        remove(documentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(documentId);
+                }
+            });
+        }
+    }
+
+    private void remove(Long documentId) {
+        synchronized (loaded) {
+            uncache(documentId);
+            generations.invalidate(documentId);
+            try {
+                Files.deleteIfExists(pathFor(documentId));
+            } catch (IOException e) {
+                log.warn("Failed to delete term index for document {}: {}", documentId, e.getMessage());
+            }
+        }
+    }
+
+    long cachedBytes() {
+        synchronized (loaded) {
+            return loadedBytes;
+        }
+    }
+
+    int trackedLoads() {
+        synchronized (loaded) {
+            return generations.tracked();
+        }
+    }
+
+    private void cache(DocumentTermIndex index) {
+        uncache(index.documentId());
+        loaded.put(index.documentId(), index);
+        loadedBytes += index.sizeInBytes();
+
+        Iterator<DocumentTermIndex> eldest = loaded.values().iterator();
+        while (loadedBytes > maxBytes && eldest.hasNext()) {
+            loadedBytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    private void uncache(Long documentId) {
+        DocumentTermIndex removed = loaded.remove(documentId);
+        if (removed != null) {
+            loadedBytes -= removed.sizeInBytes();
+        }
+    }
+
+    private DocumentTermIndex readOrRebuild(Long documentId, long generation) {
+        Path path = pathFor(documentId);
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                DocumentTermIndex index = DocumentTermIndex.readFrom(in);
+                if (index.documentId() == documentId
+                        && index.chunkCount() == documentContentRepository.countByDocumentId(documentId)) {
+                    return index;
+                }
+                log.info("Term index for document {} is stale, rebuilding", documentId);
+            } catch (IOException e) {
+                log.warn("Unreadable term index {}, rebuilding: {}", path, e.getMessage());
+            }
+        }
+
+        List<DocumentContent> chunks = documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId);
+        DocumentTermIndex index = DocumentTermIndex.build(documentId, chunks);
+        // Checked and written under the lock invalidate() deletes under, so the file cannot
+        // reappear after the document is gone; no chunks means there is nothing to persist
+        synchronized (loaded) {
+            if (!chunks.isEmpty() && generations.isCurrent(documentId, generation)) {
+                write(index);
+            }
+        }
+        return index;
+    }
+
+    private void write(DocumentTermIndex index) {
+        Path target = pathFor(index.documentId());
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                index.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The in-memory index still serves queries; the file is rebuilt on next startup
+            log.warn("Failed to persist term index for document {}: {}", index.documentId(), e.getMessage());
+        }
+    }
+
+    private Path pathFor(long documentId) {
+        return directory.resolve(documentId + INDEX_SUFFIX);
+    }
+}
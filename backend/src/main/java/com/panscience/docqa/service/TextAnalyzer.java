@@ -0,0 +1,56 @@
+package com.panscience.docqa.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Shared tokenizer for lexical retrieval: lower-cases, splits on anything that is not a
+ * letter or digit, and drops single characters and common English stop words. Dropped words
+ * still advance the position counter, so positions reflect the original word sequence.
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "been", "but", "by", "can", "did", "do", "does",
+            "for", "from", "had", "has", "have", "how", "i", "if", "in", "is", "it", "its", "me", "my",
+            "of", "on", "or", "our", "so", "that", "the", "their", "them", "there", "these", "they",
+            "this", "those", "to", "was", "we", "were", "what", "when", "where", "which", "who", "whom",
+            "why", "will", "with", "would", "you", "your", "about");
+
+    private TextAnalyzer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : analyze(text)) {
+            tokens.add(token.term());
+        }
+        return tokens;
+    }
+
+    /**
+     * Like {@link #tokenize} but keeps each token's word position in the original text.
+     */
+    public static List<Token> analyze(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int position = 0;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;  // leading separator
+            }
+            if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                tokens.add(new Token(word, position));
+            }
+            position++;
+        }
+        return tokens;
+    }
+
+    public record Token(String term, int position) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.panscience.docqa.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Extractive summarizer that ranks sentences with TextRank: sentences are nodes of a graph
+ * weighted by their term overlap, normalized by sentence length, and scored with weighted
+ * PageRank. Runs on the CPU only, so it serves summaries without a model and shrinks long
+ * documents before they are sent to one.
+ *
+ * A full graph over every sentence of a long document is quadratic, so sentences are ranked
+ * in blocks of consecutive sentences in parallel first; the best of each block then compete
+ * in one global graph of at most about {@value #MAX_GRAPH_SENTENCES} sentences.
+ */
+@Component
+public class TextRankSummarizer {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int BLOCK_SIZE = 50;
+    private static final int MAX_GRAPH_SENTENCES = 600;
+    // Shorter sentences are headings or page furniture; longer ones are usually tables run together
+    private static final int MIN_TERMS = 3;
+    private static final int MAX_SENTENCE_LENGTH = 600;
+    private static final double DAMPING = 0.85;
+    private static final double TOLERANCE = 1e-4;
+    private static final int MAX_ITERATIONS = 100;
+
+    /**
+     * Returns the {@code maxSentences} highest ranked sentences of {@code text} in document
+     * order, separated by spaces.
+     */
+    public String summarize(String text, int maxSentences) {
+        return String.join(" ", select(text, maxSentences, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns the highest ranked sentences of {@code text} that fit in {@code maxChars}, in
+     * document order; a text that already fits is returned unchanged.
+     */
+    public String compress(String text, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        return String.join(" ", select(text, Integer.MAX_VALUE, maxChars));
+    }
+
+    /**
+     * The sentences to keep, in document order: taken by descending rank while both the
+     * sentence count and the total length stay within their limits.
+     */
+    public List<String> select(String text, int maxSentences, int maxChars) {
+        List<String> sentences = splitSentences(text);
+        int[][] terms = IntStream.range(0, sentences.size()).parallel()
+                .mapToObj(i -> termIds(sentences.get(i)))
+                .toArray(int[][]::new);
+        int[] eligible = IntStream.range(0, sentences.size())
+                .filter(i -> terms[i].length >= MIN_TERMS && sentences.get(i).length() <= MAX_SENTENCE_LENGTH)
+                .toArray();
+        if (eligible.length == 0) {
+            return withinLimits(sentences, IntStream.range(0, sentences.size()).toArray(), maxSentences, maxChars);
+        }
+
+        int[] candidates = eligible.length <= MAX_GRAPH_SENTENCES ? eligible : blockWinners(eligible, terms);
+        double[] scores = rank(candidates, terms, true);
+        Integer[] order = new Integer[candidates.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Ties keep the earlier sentence
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i));
+        int[] ranked = Arrays.stream(order).mapToInt(i -> candidates[i]).toArray();
+        return withinLimits(sentences, ranked, maxSentences, maxChars);
+    }
+
+    private static List<String> withinLimits(List<String> sentences, int[] ranked, int maxSentences, int maxChars) {
+        BitSet kept = new BitSet(sentences.size());
+        int count = 0;
+        long length = 0;
+        for (int index : ranked) {
+            if (count == maxSentences) {
+                break;
+            }
+            // A sentence that does not fit is skipped so shorter, lower ranked ones can still fill the budget
+            int cost = sentences.get(index).length() + (count == 0 ? 0 : 1);
+            if (length + cost <= maxChars) {
+                kept.set(index);
+                count++;
+                length += cost;
+            }
+        }
+        return kept.stream().mapToObj(sentences::get).toList();
+    }
+
+    /**
+     * Ranks each block of consecutive sentences on its own, in parallel, and keeps enough of
+     * the best of every block for the global graph to stay near its size limit.
+     */
+    private static int[] blockWinners(int[] eligible, int[][] terms) {
+        int blocks = (eligible.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int keepPerBlock = Math.max(1, (MAX_GRAPH_SENTENCES + blocks - 1) / blocks);
+        return IntStream.range(0, blocks).parallel()
+                .mapToObj(block -> {
+                    int[] members = Arrays.copyOfRange(eligible, block * BLOCK_SIZE,
+                            Math.min(eligible.length, (block + 1) * BLOCK_SIZE));
+                    double[] scores = rank(members, terms, false);
+                    return IntStream.range(0, members.length).boxed()
+                            .sorted(Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i))
+                            .limit(keepPerBlock)
+                            .mapToInt(i -> members[i])
+                            .toArray();
+                })
+                .flatMapToInt(Arrays::stream)
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Weighted PageRank over the similarity graph of {@code nodes}; returns a score per node.
+     */
+    static double[] rank(int[] nodes, int[][] terms, boolean parallel) {
+        int n = nodes.length;
+        float[][] weights = new float[n][n];
+        rows(n, parallel).forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                float similarity = similarity(terms[nodes[i]], terms[nodes[j]]);
+                weights[i][j] = similarity;
+                weights[j][i] = similarity;
+            }
+        });
+        float[] outWeight = new float[n];
+        rows(n, parallel).forEach(i -> {
+            float sum = 0;
+            for (float weight : weights[i]) {
+                sum += weight;
+            }
+            outWeight[i] = sum;
+        });
+        // The graph is undirected, so row i holds the edges into i; dividing each by the out
+        // weight of its source once leaves a plain matrix-vector product per iteration
+        rows(n, parallel).forEach(i -> {
+            float[] row = weights[i];
+            for (int j = 0; j < n; j++) {
+                if (row[j] > 0) {
+                    row[j] /= outWeight[j];
+                }
+            }
+        });
+
+        double[] scores = new double[n];
+        Arrays.fill(scores, 1.0);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double[] previous = scores;
+            double[] next = new double[n];
+            rows(n, parallel).forEach(i -> {
+                float[] row = weights[i];
+                double incoming = 0;
+                for (int j = 0; j < n; j++) {
+                    incoming += row[j] * previous[j];
+                }
+                next[i] = (1 - DAMPING) + DAMPING * incoming;
+            });
+            scores = next;
+            double delta = 0;
+            for (int i = 0; i < n; i++) {
+                delta = Math.max(delta, Math.abs(next[i] - previous[i]));
+            }
+            if (delta < TOLERANCE) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private static IntStream rows(int n, boolean parallel) {
+        IntStream rows = IntStream.range(0, n);
+        return parallel ? rows.parallel() : rows;
+    }
+
+    /**
+     * TextRank's sentence similarity: shared terms over the sum of the log lengths, both
+     * sentences given as sorted distinct term ids.
+     */
+    static float similarity(int[] a, int[] b) {
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared == 0 ? 0 : (float) (shared / (Math.log(a.length) + Math.log(b.length)));
+    }
+
+    private static List<String> splitSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        if (text == null) {
+            return sentences;
+        }
+        for (String sentence : SENTENCE_END.split(text.strip())) {
+            String normalized = WHITESPACE.matcher(sentence).replaceAll(" ").strip();
+            if (!normalized.isEmpty()) {
+                sentences.add(normalized);
+            }
+        }
+        return sentences;
+    }
+
+    // Term hashes stand in for a shared dictionary so sentences can be analyzed in parallel
+    private static int[] termIds(String sentence) {
+        return TextAnalyzer.tokenize(sentence).stream()
+                .mapToInt(String::hashCode)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+}
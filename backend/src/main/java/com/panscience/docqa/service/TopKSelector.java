@@ -0,0 +1,93 @@
+package com.panscience.docqa.service;
+
+/**
+ * Selects the K highest-scoring rows with a bounded min-heap kept in parallel
+ * {@code int}/{@code float} arrays: O(n log k) time, O(k) memory and no per-row objects.
+ */
+public final class TopKSelector {
+
+    private TopKSelector() {
+    }
+
+    /**
+     * Returns the indices of the {@code k} largest values in {@code scores[0..count)},
+     * best first. NaN scores are never selected.
+     */
+    public static int[] select(float[] scores, int count, int k) {
+        int capacity = Math.min(k, count);
+        if (capacity <= 0) {
+            return new int[0];
+        }
+
+        int[] heapRows = new int[capacity];
+        float[] heapScores = new float[capacity];
+        int size = 0;
+
+        for (int row = 0; row < count; row++) {
+            float score = scores[row];
+            if (Float.isNaN(score)) {
+                continue;
+            }
+            if (size < capacity) {
+                heapRows[size] = row;
+                heapScores[size] = score;
+                siftUp(heapRows, heapScores, size++);
+            } else if (score > heapScores[0]) {
+                heapRows[0] = row;
+                heapScores[0] = score;
+                siftDown(heapRows, heapScores, size);
+            }
+        }
+
+        // Drain the min-heap from the back so the result is ordered best first
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = heapRows[0];
+            heapRows[0] = heapRows[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heapRows, heapScores, i);
+        }
+        return result;
+    }
+
+    private static void siftUp(int[] rows, float[] scores, int index) {
+        int row = rows[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            rows[index] = rows[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        rows[index] = row;
+        scores[index] = score;
+    }
+
+    private static void siftDown(int[] rows, float[] scores, int size) {
+        if (size == 0) {
+            return;
+        }
+        int index = 0;
+        int row = rows[0];
+        float score = scores[0];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            rows[index] = rows[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        rows[index] = row;
+        scores[index] = score;
+    }
+}
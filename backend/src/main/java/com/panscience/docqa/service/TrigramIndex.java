@@ -0,0 +1,81 @@
+package com.panscience.docqa.service;
+
+import java.util.*;
+
+/**
+ * Trigram index over a term dictionary for fuzzy lookup of misspelled or mis-transcribed
+ * words. Terms are padded as in {@code pg_trgm} (two leading blanks, one trailing) so short
+ * words and word starts still produce trigrams, and similarity is the Jaccard overlap of the
+ * two trigram sets: shared / (|a| + |b| - shared).
+ */
+public final class TrigramIndex {
+
+    private static final int[] NO_TERMS = new int[0];
+
+    private final String[] terms;
+    private final int[] trigramCounts;
+    private final Map<String, int[]> postings;
+
+    private TrigramIndex(String[] terms, int[] trigramCounts, Map<String, int[]> postings) {
+        this.terms = terms;
+        this.trigramCounts = trigramCounts;
+        this.postings = postings;
+    }
+
+    public static TrigramIndex build(String[] terms) {
+        int[] trigramCounts = new int[terms.length];
+        Map<String, List<Integer>> termIds = new HashMap<>();
+        for (int t = 0; t < terms.length; t++) {
+            Set<String> trigrams = trigrams(terms[t]);
+            trigramCounts[t] = trigrams.size();
+            for (String trigram : trigrams) {
+                termIds.computeIfAbsent(trigram, key -> new ArrayList<>()).add(t);
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(termIds.size() * 2);
+        termIds.forEach((trigram, ids) -> postings.put(trigram, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return new TrigramIndex(terms, trigramCounts, postings);
+    }
+
+    /**
+     * Dictionary terms other than {@code term} itself whose similarity is at least
+     * {@code threshold}, most similar first, at most {@code limit} of them.
+     */
+    public List<Similar> similar(String term, double threshold, int limit) {
+        Set<String> queryTrigrams = trigrams(term);
+        int[] shared = new int[terms.length];
+        int[] touched = new int[terms.length];
+        int touchedCount = 0;
+        for (String trigram : queryTrigrams) {
+            for (int t : postings.getOrDefault(trigram, NO_TERMS)) {
+                if (shared[t]++ == 0) {
+                    touched[touchedCount++] = t;
+                }
+            }
+        }
+
+        List<Similar> matches = new ArrayList<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int t = touched[i];
+            float similarity = (float) shared[t] / (queryTrigrams.size() + trigramCounts[t] - shared[t]);
+            if (similarity >= threshold && !terms[t].equals(term)) {
+                matches.add(new Similar(terms[t], similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Similar::similarity).reversed().thenComparing(Similar::term));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    static Set<String> trigrams(String term) {
+        String padded = "  " + term + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    public record Similar(String term, float similarity) {
+    }
+}
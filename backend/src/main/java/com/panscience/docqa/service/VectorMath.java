@@ -0,0 +1,34 @@
+package com.panscience.docqa.service;
+
+/**
+ * Small float vector helpers shared by the embedding write and search paths.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * Scales {@code length} values starting at {@code offset} to unit L2 norm.
+     * Zero vectors are left untouched.
+     */
+    public static void normalizeInPlace(float[] values, int offset, int length) {
+        double sumOfSquares = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sumOfSquares += (double) values[i] * values[i];
+        }
+        if (sumOfSquares == 0) {
+            return;
+        }
+        float scale = (float) (1.0 / Math.sqrt(sumOfSquares));
+        for (int i = offset; i < offset + length; i++) {
+            values[i] *= scale;
+        }
+    }
+
+    public static float[] normalize(float[] vector) {
+        float[] copy = vector.clone();
+        normalizeInPlace(copy, 0, copy.length);
+        return copy;
+    }
+}
@@ -6,5 +6,18 @@ import java.util.List;
 
 public interface VectorSearchService {
     void generateAndStoreEmbedding(DocumentContent content);
+    int generateAndStoreEmbeddings(List<DocumentContent> contents);
     List<DocumentContent> search(Long documentId, String query, int topK);
+
+    /**
+     * Best {@code topK} chunks of one document for an already embedded query, best first.
+     * A {@code null} query vector (mock mode) returns the leading chunks with score 0.
+     */
+    List<ScoredChunk> searchScored(Long documentId, float[] queryVector, int topK);
+    void evict(Long documentId);
+
+    /**
+     * Returns the normalized embedding for a query, or {@code null} when running in mock mode.
+     */
+    float[] embedQuery(String query);
 }
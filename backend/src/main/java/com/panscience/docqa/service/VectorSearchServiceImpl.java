@@ -1,20 +1,24 @@
 package com.panscience.docqa.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.FileStorageException;
 import com.panscience.docqa.repository.DocumentContentRepository;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,122 +27,321 @@ import java.util.stream.Collectors;
 public class VectorSearchServiceImpl implements VectorSearchService {
 
     private final DocumentContentRepository documentContentRepository;
-    private final ObjectMapper objectMapper;
+    private final EmbeddingMatrixCache matrixCache;
+    private final DotProductKernel dotProductKernel;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final VectorSegmentStore segmentStore;
+    private final LlmGateway llmGateway;
+    private final PlatformTransactionManager transactionManager;
 
-    @Value("${openai.api-key}")
-    private String openaiApiKey;
+    @Value("${openai.embedding-model:text-embedding-3-small}")
+    private String embeddingModelName;
 
     @Value("${app.mock-ai:true}")
     private boolean useMockAi;
 
+    @Value("${app.embedding.batch-size:64}")
+    private int batchSize;
+
+    @Value("${app.embedding.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.embedding.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.embedding.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${app.vector-search.quantization:none}")
+    private String quantization;
+
+    @Value("${app.vector-search.rerank-factor:4}")
+    private int rerankFactor;
+
+    @Value("${app.vector-search.storage:segment}")
+    private String storage;
+
     private EmbeddingModel embeddingModel;
+    private EmbeddingModel queryEmbeddingModel;
+
+    private ExecutorService embeddingExecutor;
 
     @PostConstruct
     public void init() {
-        if (!useMockAi && openaiApiKey != null && !openaiApiKey.contains("placeholder")) {
-            try {
-                this.embeddingModel = OpenAiEmbeddingModel.builder()
-                        .apiKey(openaiApiKey)
-                        .modelName("text-embedding-3-small")
-                        .build();
-                log.info("Initialized OpenAI embedding model: text-embedding-3-small");
-            } catch (Exception e) {
-                log.warn("Failed to initialize OpenAI embedding model, using mock mode: {}", e.getMessage());
-                useMockAi = true;
-            }
+        if (!useMockAi && llmGateway.isEnabled()) {
+            this.embeddingModel = llmGateway.embeddingModel();
+            this.queryEmbeddingModel = llmGateway.queryEmbeddingModel();
+            this.embeddingExecutor = Executors.newFixedThreadPool(concurrency);
+            log.info("Using OpenAI embedding model: {}", embeddingModelName);
         } else {
             log.info("Using mock AI mode for embeddings (no OpenAI cost)");
             useMockAi = true;
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (embeddingExecutor != null) {
+            embeddingExecutor.shutdownNow();
+        }
+    }
+
     @Override
     public void generateAndStoreEmbedding(DocumentContent content) {
+        generateAndStoreEmbeddings(List.of(content));
+    }
+
+    @Override
+    public int generateAndStoreEmbeddings(List<DocumentContent> contents) {
         // In mock mode, skip embedding generation
         if (useMockAi) {
-            log.debug("Mock mode: Skipping embedding generation for content {}", content.getId());
-            return;
+            log.debug("Mock mode: Skipping embedding generation for {} chunks", contents.size());
+            return 0;
         }
 
+        List<DocumentContent> pending = contents.stream()
+                .filter(c -> c.getId() != null && c.getContent() != null && !c.getContent().isBlank())
+                .toList();
+
+        // Batches are embedded on a fixed pool so one large upload cannot flood the embedding API
+        List<CompletableFuture<Map<Long, byte[]>>> batches = new ArrayList<>();
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<DocumentContent> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> embedBatchWithRetry(batch), embeddingExecutor));
+        }
+
+        // ...and only written once every batch is back, in one short transaction, so no
+        // connection is held while the embedding API is called
+        List<Map<Long, byte[]>> embedded = batches.stream().map(CompletableFuture::join).toList();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                embedded.forEach(documentContentRepository::updateEmbeddingVectors));
+
+        // Keep the caller's chunks in step with the rows just written
+        Map<Long, DocumentContent> byId = pending.stream()
+                .collect(Collectors.toMap(DocumentContent::getId, c -> c, (a, b) -> a));
+        int stored = 0;
+        for (Map<Long, byte[]> vectors : embedded) {
+            vectors.forEach((id, vector) -> byId.get(id).setEmbeddingVector(vector));
+            stored += vectors.size();
+        }
+        contents.stream()
+                .filter(c -> c.getDocument() != null)
+                .map(c -> c.getDocument().getId())
+                .distinct()
+                .forEach(this::refresh);
+
+        log.info("Stored embeddings for {} of {} chunks", stored, pending.size());
+        return stored;
+    }
+
+    /**
+     * Embeds one batch and returns its encoded vectors by chunk id. If the model returns
+     * fewer vectors than requested or the call fails, only the chunks still missing a
+     * vector are retried, with exponential backoff.
+     */
+    private Map<Long, byte[]> embedBatchWithRetry(List<DocumentContent> batch) {
+        List<DocumentContent> remaining = batch;
+        Map<Long, byte[]> vectors = new LinkedHashMap<>();
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                List<TextSegment> segments = remaining.stream()
+                        .map(c -> TextSegment.from(c.getContent()))
+                        .toList();
+                List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+
+                int received = Math.min(embeddings.size(), remaining.size());
+                for (int i = 0; i < received; i++) {
+                    // Normalize once at write time so search can score with a plain dot product
+                    float[] vector = VectorMath.normalize(embeddings.get(i).vector());
+                    vectors.put(remaining.get(i).getId(), EmbeddingCodec.encode(vector));
+                }
+
+                if (received == remaining.size()) {
+                    return vectors;
+                }
+                remaining = remaining.subList(received, remaining.size());
+                log.warn("Embedding batch returned {} vectors, {} chunks left (attempt {}/{})",
+                        received, remaining.size(), attempt, maxAttempts);
+            } catch (RuntimeException e) {
+                log.warn("Embedding batch of {} chunks failed (attempt {}/{}): {}",
+                        remaining.size(), attempt, maxAttempts, e.getMessage());
+            }
+
+            if (attempt < maxAttempts && !sleepBeforeRetry(attempt)) {
+                break;
+            }
+        }
+
+        log.error("Giving up on embeddings for {} chunks after {} attempts", remaining.size(), maxAttempts);
+        return vectors;
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
         try {
-            Embedding embedding = embeddingModel.embed(content.getContent()).content();
-            String embeddingJson = objectMapper.writeValueAsString(embedding.vectorAsList());
-            content.setEmbedding(embeddingJson);
-            documentContentRepository.save(content);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize embedding", e);
+            Thread.sleep(retryBackoffMs << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
     @Override
     public List<DocumentContent> search(Long documentId, String query, int topK) {
-        // In mock mode, return content using simple text matching
-        if (useMockAi) {
-            log.debug("Mock mode: Using text-based search for query: {}", query);
-            return documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId)
+        // Get query embedding; stored rows are normalized so cosine similarity is a dot product
+        return searchScored(documentId, embedQuery(query), topK).stream()
+                .map(ScoredChunk::chunk)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ScoredChunk> searchScored(Long documentId, float[] queryVector, int topK) {
+        // In mock mode, return the first chunks unscored
+        if (queryVector == null) {
+            log.debug("Mock mode: Returning leading chunks of document {}", documentId);
+            return matrixCache.get(documentId, this::loadMatrix)
+                    .chunks()
                     .stream()
                     .limit(topK)
+                    .map(chunk -> new ScoredChunk(chunk, 0f))
                     .collect(Collectors.toList());
         }
 
-        // Get query embedding
-        Embedding queryEmbedding = embeddingModel.embed(query).content();
-        float[] queryVector = queryEmbedding.vector();
-
-        // Get all content for the document
-        List<DocumentContent> allContent = documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId);
-
-        // Calculate similarity scores
-        List<ScoredContent> scoredContents = new ArrayList<>();
-        for (DocumentContent content : allContent) {
-            if (content.getEmbedding() != null) {
-                try {
-                    List<Float> storedEmbedding = objectMapper.readValue(
-                            content.getEmbedding(), 
-                            new TypeReference<List<Float>>() {}
-                    );
-                    float[] storedVector = listToArray(storedEmbedding);
-                    double similarity = cosineSimilarity(queryVector, storedVector);
-                    scoredContents.add(new ScoredContent(content, similarity));
-                } catch (JsonProcessingException e) {
-                    log.warn("Failed to parse embedding for content {}", content.getId());
-                }
+        if (useSegments()) {
+            try {
+                return searchSegment(segmentStore.get(documentId), queryVector, topK);
+            } catch (FileStorageException e) {
+                log.warn("Vector segment unavailable for document {}, scoring from heap: {}",
+                        documentId, e.getMessage());
             }
         }
 
-        // Sort by similarity and return top K
-        return scoredContents.stream()
-                .sorted(Comparator.comparingDouble(ScoredContent::score).reversed())
-                .limit(topK)
-                .map(ScoredContent::content)
-                .collect(Collectors.toList());
+        DocumentMatrix matrix = matrixCache.get(documentId, this::loadMatrix);
+        if (matrix.rows() == 0 || queryVector.length != matrix.dimension()) {
+            return new ArrayList<>();
+        }
+
+        if (matrix.isQuantized()) {
+            return searchQuantized(matrix, queryVector, topK);
+        }
+
+        // Score the whole document matrix in one kernel call
+        float[] scores = new float[matrix.rows()];
+        dotProductKernel.scoreAll(matrix.vectors(), matrix.rows(), matrix.dimension(), queryVector, scores);
+
+        // Keep only the K best rows; chunks are looked up for the winners alone
+        return chunksForRows(matrix, TopKSelector.select(scores, matrix.rows(), topK), scores);
+    }
+
+    /**
+     * Scores the mapped segment in place; the winners' chunks come from the segment store.
+     */
+    private List<ScoredChunk> searchSegment(VectorSegment segment, float[] queryVector, int topK) {
+        if (segment.rows() == 0 || queryVector.length != segment.dimension()) {
+            return new ArrayList<>();
+        }
+
+        float[] scores = new float[segment.rows()];
+        dotProductKernel.scoreAll(segment.matrix(), segment.rows(), segment.dimension(), queryVector, scores);
+
+        int[] topRows = TopKSelector.select(scores, segment.rows(), topK);
+        List<DocumentContent> chunks = segmentStore.chunks(segment);
+
+        // Preserve rank order; chunks deleted since the segment was written are skipped
+        List<ScoredChunk> results = new ArrayList<>(topRows.length);
+        for (int row : topRows) {
+            DocumentContent chunk = chunks.get(row);
+            if (chunk != null) {
+                results.add(new ScoredChunk(chunk, scores[row]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Scores the int8 codes to pick a shortlist of {@code topK * rerankFactor} rows, then
+     * re-scores that shortlist against the full-precision vectors read from the database.
+     */
+    private List<ScoredChunk> searchQuantized(DocumentMatrix matrix, float[] queryVector, int topK) {
+        float[] scores = new float[matrix.rows()];
+        matrix.quantized().scoreAll(queryVector, scores);
+        int[] shortlist = TopKSelector.select(scores, matrix.rows(), topK * Math.max(1, rerankFactor));
+
+        Map<Long, byte[]> fullVectors = documentContentRepository.findEmbeddingVectors(
+                Arrays.stream(shortlist).mapToObj(row -> matrix.chunkForRow(row).getId()).toList());
+
+        float[] exactScores = new float[shortlist.length];
+        for (int i = 0; i < shortlist.length; i++) {
+            byte[] encoded = fullVectors.get(matrix.chunkForRow(shortlist[i]).getId());
+            // A row whose vector vanished since the matrix was cached keeps its approximate score
+            exactScores[i] = encoded == null ? scores[shortlist[i]] : dot(EmbeddingCodec.decode(encoded), queryVector);
+        }
+
+        int[] best = TopKSelector.select(exactScores, shortlist.length, topK);
+        List<ScoredChunk> results = new ArrayList<>(best.length);
+        for (int index : best) {
+            results.add(new ScoredChunk(matrix.chunkForRow(shortlist[index]), exactScores[index]));
+        }
+        return results;
+    }
+
+    private List<ScoredChunk> chunksForRows(DocumentMatrix matrix, int[] rows, float[] scores) {
+        List<ScoredChunk> results = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            results.add(new ScoredChunk(matrix.chunkForRow(row), scores[row]));
+        }
+        return results;
+    }
+
+    private float dot(float[] vector, float[] query) {
+        if (vector.length != query.length) {
+            return Float.NaN;
+        }
+        float[] score = new float[1];
+        dotProductKernel.scoreAll(vector, 1, vector.length, query, score);
+        return score[0];
     }
 
-    private float[] listToArray(List<Float> list) {
-        float[] array = new float[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i);
+    @Override
+    public float[] embedQuery(String query) {
+        if (useMockAi) {
+            return null;
         }
-        return array;
+        return queryEmbeddingCache.get(embeddingModelName, query,
+                text -> VectorMath.normalize(queryEmbeddingModel.embed(text).content().vector()));
+    }
+
+    @Override
+    public void evict(Long documentId) {
+        matrixCache.invalidate(documentId);
+        segmentStore.invalidate(documentId);
     }
 
-    private double cosineSimilarity(float[] a, float[] b) {
-        if (a.length != b.length) return 0;
-        
-        double dotProduct = 0;
-        double normA = 0;
-        double normB = 0;
-        
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+    /**
+     * Drops cached vectors after new embeddings were stored and, with segment storage,
+     * writes the document's new segment right away rather than on its first search.
+     */
+    private void refresh(Long documentId) {
+        evict(documentId);
+        if (useSegments()) {
+            try {
+                segmentStore.get(documentId);
+            } catch (FileStorageException e) {
+                log.warn("Failed to write vector segment for document {}: {}", documentId, e.getMessage());
+            }
         }
-        
-        if (normA == 0 || normB == 0) return 0;
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
     }
 
-    private record ScoredContent(DocumentContent content, double score) {}
+    private boolean useSegments() {
+        // Quantized search keeps its int8 codes on heap and reranks from the database
+        return "segment".equalsIgnoreCase(storage) && !"int8".equalsIgnoreCase(quantization);
+    }
+
+    private DocumentMatrix loadMatrix(Long documentId) {
+        return DocumentMatrix.fromContents(documentId,
+                documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId),
+                "int8".equalsIgnoreCase(quantization));
+    }
 }
 
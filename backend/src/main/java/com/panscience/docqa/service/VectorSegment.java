@@ -0,0 +1,125 @@
+package com.panscience.docqa.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Immutable, memory-mapped vector segment for one document. The file is little-endian:
+ * <pre>
+ *   int   magic "VSEG"
+ *   int   format version
+ *   long  document id
+ *   int   rows
+ *   int   dimension
+ *   long  chunk id per row
+ *   float rows * dimension normalized vector values, row-major
+ * </pre>
+ * Scoring reads the mapped matrix directly, so a cold document costs page cache, not heap.
+ */
+public final class VectorSegment {
+
+    private static final int MAGIC = 0x56534547; // "VSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private final long documentId;
+    private final long[] chunkIds;
+    private final int dimension;
+    private final ByteBuffer matrix;
+
+    private VectorSegment(long documentId, long[] chunkIds, int dimension, ByteBuffer matrix) {
+        this.documentId = documentId;
+        this.chunkIds = chunkIds;
+        this.dimension = dimension;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Writes a segment to a temporary file and atomically moves it into place, so readers
+     * never map a partially written file.
+     */
+    public static void write(Path target, long documentId, long[] chunkIds, float[] vectors, int dimension)
+            throws IOException {
+        int rows = chunkIds.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + rows * Long.BYTES + vectors.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(documentId).putInt(rows).putInt(dimension);
+        buffer.asLongBuffer().put(chunkIds);
+        buffer.position(buffer.position() + rows * Long.BYTES);
+        buffer.asFloatBuffer().put(vectors, 0, rows * dimension);
+        buffer.rewind();
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps an existing segment read-only. The mapping outlives the channel, which is closed here.
+     */
+    public static VectorSegment open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Truncated vector segment " + path);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            throw new IOException("Unsupported vector segment format in " + path);
+        }
+        long documentId = mapped.getLong(8);
+        int rows = mapped.getInt(16);
+        int dimension = mapped.getInt(20);
+        long matrixOffset = HEADER_BYTES + (long) rows * Long.BYTES;
+        if (mapped.capacity() != matrixOffset + (long) rows * dimension * Float.BYTES) {
+            throw new IOException("Vector segment " + path + " does not match its header");
+        }
+
+        long[] chunkIds = new long[rows];
+        mapped.position(HEADER_BYTES);
+        mapped.asLongBuffer().get(chunkIds);
+        mapped.position((int) matrixOffset);
+        ByteBuffer matrix = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+        return new VectorSegment(documentId, chunkIds, dimension, matrix);
+    }
+
+    public long documentId() {
+        return documentId;
+    }
+
+    public int rows() {
+        return chunkIds.length;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public long chunkIdForRow(int row) {
+        return chunkIds[row];
+    }
+
+    /** Read-only little-endian view of the packed vectors, starting at the first row. */
+    public ByteBuffer matrix() {
+        return matrix.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,245 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.FileStorageException;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the per-document {@link VectorSegment} files under {@code app.upload-dir/segments}.
+ * A segment is rebuilt from the database when its file is missing, unreadable, or holds a
+ * different number of rows than the document has embedded chunks. The chunk text behind
+ * the rows of recently searched segments stays in an LRU bounded by
+ * {@code app.vector-search.segment-chunk-cache.max-bytes}, so a search does not go back to
+ * the database for its winners. Every invalidation bumps the document's generation; a
+ * rebuild that started under an older generation neither writes its file nor is cached.
+ */
+@Component
+@Slf4j
+public class VectorSegmentStore {
+
+    private static final String SEGMENT_SUFFIX = ".vseg";
+
+    private final DocumentContentRepository documentContentRepository;
+    private final Path directory;
+    private final Map<Long, VectorSegment> openSegments = new HashMap<>();
+    private final LoadGenerations generations = new LoadGenerations();
+    private final Map<Long, SegmentChunks> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxChunkBytes;
+    private long chunkBytes;
+
+    public VectorSegmentStore(DocumentContentRepository documentContentRepository,
+                              @Value("${app.upload-dir}") String uploadDir,
+                              @Value("${app.vector-search.segment-chunk-cache.max-bytes:67108864}") long maxChunkBytes) {
+        this.documentContentRepository = documentContentRepository;
+        this.directory = Paths.get(uploadDir).toAbsolutePath().normalize().resolve("segments");
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * The mapped segment of {@code documentId}, opened or rebuilt on first use.
+     *
+     * @throws FileStorageException if the segment cannot be written, or the document was
+     *                              invalidated while it was being rebuilt
+     */
+    public VectorSegment get(Long documentId) {
+        long generation;
+        synchronized (openSegments) {
+            VectorSegment segment = openSegments.get(documentId);
+            if (segment != null) {
+                return segment;
+            }
+            generation = generations.begin(documentId);
+        }
+
+        // Opened outside the lock so a rebuild does not block lookups of other documents
+        VectorSegment segment;
+        try {
+            segment = openOrRebuild(documentId, generation);
+        } catch (RuntimeException e) {
+            synchronized (openSegments) {
+                generations.end(documentId, generation);
+            }
+            throw e;
+        }
+        synchronized (openSegments) {
+            if (!generations.end(documentId, generation)) {
+                throw new FileStorageException("Vector segment for document " + documentId
+                        + " was invalidated while opening");
+            }
+            VectorSegment existing = openSegments.putIfAbsent(documentId, segment);
+            return existing != null ? existing : segment;
+        }
+    }
+
+    /**
+     * The chunks behind {@code segment}'s rows, in row order and without their embeddings;
+     * null where a chunk was deleted. Cached until the segment is invalidated.
+     */
+    public List<DocumentContent> chunks(VectorSegment segment) {
+        Long documentId = segment.documentId();
+        synchronized (openSegments) {
+            SegmentChunks cached = chunks.get(documentId);
+            if (cached != null && cached.segment() == segment) {
+                return cached.rows();
+            }
+        }
+
+        List<Long> chunkIds = new ArrayList<>(segment.rows());
+        for (int row = 0; row < segment.rows(); row++) {
+            chunkIds.add(segment.chunkIdForRow(row));
+        }
+        Map<Long, DocumentContent> byId = documentContentRepository.findAllById(chunkIds)
+                .stream()
+                .collect(Collectors.toMap(DocumentContent::getId, Function.identity()));
+        List<DocumentContent> rows = new ArrayList<>(chunkIds.size());
+        long sizeInBytes = (long) chunkIds.size() * Long.BYTES;
+        for (Long chunkId : chunkIds) {
+            DocumentContent chunk = byId.get(chunkId);
+            if (chunk == null) {
+                rows.add(null);
+            } else {
+                rows.add(DocumentMatrix.detachedCopy(chunk));
+                sizeInBytes += DocumentMatrix.estimateSize(chunk);
+            }
+        }
+        rows = Collections.unmodifiableList(rows);
+
+        synchronized (openSegments) {
+            // A segment replaced while its chunks were read is not cached
+            if (openSegments.get(documentId) == segment) {
+                putChunks(documentId, new SegmentChunks(segment, rows, sizeInBytes));
+            }
+        }
+        return rows;
+    }
+
+    long cachedChunkBytes() {
+        synchronized (openSegments) {
+            return chunkBytes;
+        }
+    }
+
+    /**
+     * Forgets the mapped segment and deletes its file; the next {@link #get} rebuilds it.
+     * Inside a transaction this happens again after commit, so a search that read the
+     * pre-commit chunks cannot leave its segment behind.
+     */
+    public void invalidate(Long documentId) {
+        remove(documentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(documentId);
+                }
+            });
+        }
+    }
+
+    private void remove(Long documentId) {
+        synchronized (openSegments) {
+            openSegments.remove(documentId);
+            removeChunks(documentId);
+            generations.invalidate(documentId);
+            try {
+                Files.deleteIfExists(pathFor(documentId));
+            } catch (IOException e) {
+                log.warn("Failed to delete vector segment for document {}: {}", documentId, e.getMessage());
+            }
+        }
+    }
+
+    int trackedLoads() {
+        synchronized (openSegments) {
+            return generations.tracked();
+        }
+    }
+
+    private VectorSegment openOrRebuild(Long documentId, long generation) {
+        Path path = pathFor(documentId);
+        if (Files.exists(path)) {
+            try {
+                VectorSegment segment = VectorSegment.open(path);
+                long embeddedChunks = documentContentRepository.countByDocumentIdAndEmbeddingVectorIsNotNull(documentId);
+                if (segment.documentId() == documentId && segment.rows() == embeddedChunks) {
+                    return segment;
+                }
+                log.info("Vector segment for document {} is stale ({} rows, {} embedded chunks), rebuilding",
+                        documentId, segment.rows(), embeddedChunks);
+            } catch (IOException e) {
+                log.warn("Unreadable vector segment {}, rebuilding: {}", path, e.getMessage());
+            }
+        }
+        return rebuild(documentId, path, generation);
+    }
+
+    private VectorSegment rebuild(Long documentId, Path path, long generation) {
+        DocumentMatrix matrix = DocumentMatrix.fromContents(documentId,
+                documentContentRepository.findByDocumentIdOrderByChunkIndex(documentId));
+        long[] chunkIds = new long[matrix.rows()];
+        for (int row = 0; row < chunkIds.length; row++) {
+            chunkIds[row] = matrix.chunkForRow(row).getId();
+        }
+
+        // Checked and written under the lock invalidate() deletes under, so a file built from
+        // rows read before an invalidation cannot reappear after it
+        synchronized (openSegments) {
+            if (!generations.isCurrent(documentId, generation)) {
+                throw new FileStorageException("Vector segment for document " + documentId
+                        + " was invalidated while rebuilding");
+            }
+            try {
+                VectorSegment.write(path, documentId, chunkIds, matrix.vectors(), matrix.dimension());
+                log.debug("Wrote vector segment for document {} with {} rows", documentId, chunkIds.length);
+                return VectorSegment.open(path);
+            } catch (IOException e) {
+                throw new FileStorageException("Could not write vector segment for document " + documentId, e);
+            }
+        }
+    }
+
+    private void putChunks(Long documentId, SegmentChunks entry) {
+        removeChunks(documentId);
+        chunks.put(documentId, entry);
+        chunkBytes += entry.sizeInBytes();
+
+        Iterator<SegmentChunks> eldest = chunks.values().iterator();
+        while (chunkBytes > maxChunkBytes && eldest.hasNext()) {
+            chunkBytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+        }
+    }
+
+    private void removeChunks(Long documentId) {
+        SegmentChunks removed = chunks.remove(documentId);
+        if (removed != null) {
+            chunkBytes -= removed.sizeInBytes();
+        }
+    }
+
+    private Path pathFor(Long documentId) {
+        return directory.resolve(documentId + SEGMENT_SUFFIX);
+    }
+
+    private record SegmentChunks(VectorSegment segment, List<DocumentContent> rows, long sizeInBytes) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.DocQaApplication;
+import com.panscience.docqa.dto.ChatRequest;
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import com.panscience.docqa.repository.DocumentRepository;
+import com.panscience.docqa.service.ChatServiceImpl;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Load harness for how the chat flow uses the connection pool. Starts the application on
+ * in-memory H2 with a small Hikari pool and a model stub that answers after a fixed delay,
+ * then runs rising numbers of concurrent chat clients in two modes:
+ * <ul>
+ *   <li>{@code single-tx}: each chat wrapped in one transaction, as when {@code chat} was
+ *       {@code @Transactional}, so a connection is held across the model call;</li>
+ *   <li>{@code phased}: {@code chat} as implemented, holding connections only for reads
+ *       and the final write.</li>
+ * </ul>
+ * Chats that cannot get a connection within the pool timeout count as failed.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.ChatLoadHarness
+ */
+public class ChatLoadHarness {
+
+    private static final int POOL_SIZE = 4;
+    private static final long POOL_TIMEOUT_MS = 1000;
+    private static final long MODEL_LATENCY_MS = 500;
+    private static final int CHATS_PER_CLIENT = 4;
+    private static final int[] CLIENTS = {4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DocQaApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "spring.datasource.hikari.connection-timeout=" + POOL_TIMEOUT_MS,
+                        "logging.level.root=WARN")
+                .run(args)) {
+
+            Long documentId = createDocument(context);
+            ChatServiceImpl chatService = context.getBean(ChatServiceImpl.class);
+            ChatLanguageModel slowModel = messages -> {
+                sleep(MODEL_LATENCY_MS);
+                return Response.from(AiMessage.from("The document discusses quarterly churn."));
+            };
+            ReflectionTestUtils.setField(chatService, "chatModel", slowModel);
+            ReflectionTestUtils.setField(chatService, "useMockAi", false);
+
+            TransactionTemplate outer = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            Function<ChatRequest, Object> singleTransaction = request -> outer.execute(status -> chatService.chat(request));
+            Function<ChatRequest, Object> phased = chatService::chat;
+
+            System.out.printf("pool=%d, pool timeout=%d ms, model latency=%d ms, %d chats per client%n",
+                    POOL_SIZE, POOL_TIMEOUT_MS, MODEL_LATENCY_MS, CHATS_PER_CLIENT);
+            System.out.printf("%-10s %8s %10s %8s %12s %10s%n", "mode", "clients", "completed", "failed", "chats/sec", "p95 ms");
+            for (int clients : CLIENTS) {
+                run("single-tx", singleTransaction, documentId, clients);
+                run("phased", phased, documentId, clients);
+            }
+        }
+    }
+
+    private static Long createDocument(ConfigurableApplicationContext context) {
+        Document document = context.getBean(DocumentRepository.class).save(Document.builder()
+                .fileName("load-test.pdf")
+                .originalFileName("load-test.pdf")
+                .type(Document.DocumentType.PDF)
+                .mimeType("application/pdf")
+                .fileSize(1L)
+                .filePath("load-test.pdf")
+                .uploadedAt(LocalDateTime.now())
+                .status(Document.ProcessingStatus.COMPLETED)
+                .build());
+
+        List<DocumentContent> chunks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            chunks.add(DocumentContent.builder()
+                    .document(document)
+                    .chunkIndex(i)
+                    .content("Section " + i + " covers revenue, pricing and quarterly churn for region " + i + ".")
+                    .build());
+        }
+        context.getBean(DocumentContentRepository.class).saveAll(chunks);
+        return document.getId();
+    }
+
+    private static void run(String mode, Function<ChatRequest, Object> chat, Long documentId, int clients)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long[] latencies = new long[clients * CHATS_PER_CLIENT];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        long start = System.nanoTime();
+        for (int client = 0; client < clients; client++) {
+            int offset = client * CHATS_PER_CLIENT;
+            executor.execute(() -> {
+                for (int i = 0; i < CHATS_PER_CLIENT; i++) {
+                    long chatStart = System.nanoTime();
+                    try {
+                        // Distinct questions, so concurrent chats are not coalesced into one model call
+                        String question = "How did churn develop in case " + (offset + i) + "?";
+                        chat.apply(ChatRequest.builder().documentId(documentId).message(question).build());
+                        latencies[offset + i] = (System.nanoTime() - chatStart) / 1_000_000;
+                        completed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // Pool exhaustion surfaces as CannotCreateTransactionException
+                        latencies[offset + i] = -1;
+                        failed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        long[] successful = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        long p95 = successful.length == 0 ? 0 : successful[(int) Math.ceil(successful.length * 0.95) - 1];
+        System.out.printf("%-10s %8d %10d %8d %12.1f %10d%n",
+                mode, clients, completed.get(), failed.get(), completed.get() / seconds, p95);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.service.HnswIndex;
+import com.panscience.docqa.service.ScalarDotProductKernel;
+import com.panscience.docqa.service.TopKSelector;
+import com.panscience.docqa.service.VectorMath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares corpus search latency of the HNSW graph with an exact scan over the same
+ * vectors. Recall@K of the graph against the exact result is printed during setup.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.CorpusSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorpusSearchBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 100;
+
+    @Param({"20000"})
+    private int vectors;
+
+    @Param({"256"})
+    private int dimension;
+
+    @Param({"64", "128", "256"})
+    private int ef;
+
+    private float[] matrix;
+    private float[][] queries;
+    private float[] scores;
+    private HnswIndex index;
+    private int next;
+
+    private final ScalarDotProductKernel kernel = new ScalarDotProductKernel();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        matrix = new float[vectors * dimension];
+        index = new HnswIndex(dimension, 16, 100);
+        for (int i = 0; i < vectors; i++) {
+            float[] vector = randomUnitVector(random);
+            System.arraycopy(vector, 0, matrix, i * dimension, dimension);
+            index.add(i, i / 100, vector);
+        }
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = randomUnitVector(random);
+        }
+        scores = new float[vectors];
+
+        int found = 0;
+        for (float[] query : queries) {
+            Set<Long> exact = new HashSet<>();
+            for (int row : exactScan(query)) {
+                exact.add((long) row);
+            }
+            for (HnswIndex.Hit hit : index.search(query, K, ef)) {
+                if (exact.contains(hit.chunkId())) {
+                    found++;
+                }
+            }
+        }
+        System.out.printf("%nrecall@%d at ef=%d: %.3f%n", K, ef, (double) found / (QUERIES * K));
+    }
+
+    @Benchmark
+    public int[] exact() {
+        return exactScan(nextQuery());
+    }
+
+    @Benchmark
+    public List<HnswIndex.Hit> hnsw() {
+        return index.search(nextQuery(), K, ef);
+    }
+
+    private int[] exactScan(float[] query) {
+        kernel.scoreAll(matrix, vectors, dimension, query, scores);
+        return TopKSelector.select(scores, vectors, K);
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    private float[] randomUnitVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CorpusSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.config.FullTextSearchSchemaInitializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@code content LIKE %keyword%} scan used by {@code searchByKeyword} with the
+ * GIN-indexed tsvector query used by the Postgres lexical engine, on a synthetic corpus in a
+ * disposable Postgres container. Requires Docker.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.FullTextSearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FullTextSearchBenchmark {
+
+    private static final int DOCUMENTS = 10;
+    private static final int WORDS_PER_CHUNK = 120;
+    private static final int VOCABULARY = 20_000;
+
+    private static final String LIKE_SQL =
+            "SELECT id FROM document_contents WHERE document_id = ? AND content LIKE ? ORDER BY chunk_index";
+    private static final String FULL_TEXT_SQL =
+            "SELECT dc.id, ts_rank_cd(dc.content_tsv, q) AS rank " +
+            "FROM document_contents dc, plainto_tsquery('english', ?) q " +
+            "WHERE dc.document_id = ? AND dc.content_tsv @@ q ORDER BY rank DESC LIMIT 10";
+
+    @Param({"2000", "20000"})
+    private int chunksPerDocument;
+
+    // A frequent term and a rare one; Zipf-distributed words make "term7" common and "term4999" rare
+    @Param({"term7", "term4999"})
+    private String term;
+
+    private PostgreSQLContainer<?> postgres;
+    private Connection connection;
+    private PreparedStatement likeStatement;
+    private PreparedStatement fullTextStatement;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE document_contents (id BIGSERIAL PRIMARY KEY, document_id BIGINT NOT NULL, " +
+                    "chunk_index INT, content TEXT NOT NULL)");
+        }
+        loadCorpus();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(FullTextSearchSchemaInitializer.ADD_TSVECTOR_COLUMN_SQL);
+            statement.execute(FullTextSearchSchemaInitializer.CREATE_GIN_INDEX_SQL);
+            statement.execute(FullTextSearchSchemaInitializer.CREATE_DOCUMENT_INDEX_SQL);
+            statement.execute("ANALYZE document_contents");
+        }
+
+        likeStatement = connection.prepareStatement(LIKE_SQL);
+        fullTextStatement = connection.prepareStatement(FULL_TEXT_SQL);
+    }
+
+    private void loadCorpus() throws SQLException {
+        Random random = new Random(42);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO document_contents (document_id, chunk_index, content) VALUES (?, ?, ?)")) {
+            for (int document = 1; document <= DOCUMENTS; document++) {
+                for (int chunk = 0; chunk < chunksPerDocument; chunk++) {
+                    insert.setLong(1, document);
+                    insert.setInt(2, chunk);
+                    insert.setString(3, randomText(random));
+                    insert.addBatch();
+                    if (chunk % 1000 == 999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private String randomText(Random random) {
+        StringBuilder text = new StringBuilder(WORDS_PER_CHUNK * 9);
+        for (int i = 0; i < WORDS_PER_CHUNK; i++) {
+            // Inverse-CDF sample of a 1/x distribution over the vocabulary
+            int word = (int) Math.floor(Math.pow(VOCABULARY, random.nextDouble()));
+            text.append("term").append(word).append(' ');
+        }
+        return text.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        postgres.stop();
+    }
+
+    // Substring semantics as in searchByKeyword: '%term7%' also matches term70, term712, ...
+    @Benchmark
+    public void likeScan(Blackhole blackhole) throws SQLException {
+        likeStatement.setLong(1, DOCUMENTS / 2);
+        likeStatement.setString(2, "%" + term + "%");
+        consume(likeStatement, blackhole);
+    }
+
+    @Benchmark
+    public void fullTextRanked(Blackhole blackhole) throws SQLException {
+        fullTextStatement.setString(1, term);
+        fullTextStatement.setLong(2, DOCUMENTS / 2);
+        consume(fullTextStatement, blackhole);
+    }
+
+    private void consume(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                blackhole.consume(rows.getLong(1));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FullTextSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
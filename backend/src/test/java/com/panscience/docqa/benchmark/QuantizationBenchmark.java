@@ -0,0 +1,145 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.service.QuantizedVectors;
+import com.panscience.docqa.service.ScalarDotProductKernel;
+import com.panscience.docqa.service.TopKSelector;
+import com.panscience.docqa.service.VectorMath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares float32 scoring with int8 scoring plus full-precision rerank of a shortlist.
+ * Memory per matrix and recall@K against the float path are printed during setup.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.QuantizationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuantizationBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 50;
+
+    @Param({"20000"})
+    private int rows;
+
+    @Param({"1536"})
+    private int dimension;
+
+    @Param({"1", "4"})
+    private int rerankFactor;
+
+    private float[] matrix;
+    private QuantizedVectors quantized;
+    private float[][] queries;
+    private float[] scores;
+    private int next;
+
+    private final ScalarDotProductKernel kernel = new ScalarDotProductKernel();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        // Clustered rows so near neighbours are close together, as real chunk embeddings are
+        float[][] centroids = new float[64][];
+        for (int c = 0; c < centroids.length; c++) {
+            centroids[c] = gaussian(random, 1f);
+        }
+        matrix = new float[rows * dimension];
+        for (int row = 0; row < rows; row++) {
+            float[] noise = gaussian(random, 0.6f);
+            float[] centroid = centroids[random.nextInt(centroids.length)];
+            for (int i = 0; i < dimension; i++) {
+                noise[i] += centroid[i];
+            }
+            System.arraycopy(VectorMath.normalize(noise), 0, matrix, row * dimension, dimension);
+        }
+        quantized = QuantizedVectors.quantize(matrix, rows, dimension);
+        queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = VectorMath.normalize(gaussian(random, 1f));
+        }
+        scores = new float[rows];
+
+        int found = 0;
+        for (float[] query : queries) {
+            int[] exact = floatSearch(query);
+            int[] approximate = int8Search(query);
+            for (int row : approximate) {
+                for (int expected : exact) {
+                    if (row == expected) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        System.out.printf("%nfloat32 bytes: %d, int8 bytes: %d, recall@%d with rerank factor %d: %.3f%n",
+                (long) matrix.length * Float.BYTES, quantized.sizeInBytes(), K, rerankFactor,
+                (double) found / (QUERIES * K));
+    }
+
+    @Benchmark
+    public int[] float32() {
+        return floatSearch(nextQuery());
+    }
+
+    @Benchmark
+    public int[] int8WithRerank() {
+        return int8Search(nextQuery());
+    }
+
+    private int[] floatSearch(float[] query) {
+        kernel.scoreAll(matrix, rows, dimension, query, scores);
+        return TopKSelector.select(scores, rows, K);
+    }
+
+    private int[] int8Search(float[] query) {
+        quantized.scoreAll(query, scores);
+        int[] shortlist = TopKSelector.select(scores, rows, K * rerankFactor);
+
+        // Stands in for the database read of full-precision shortlist vectors
+        float[] exact = new float[shortlist.length];
+        float[] single = new float[1];
+        float[] row = new float[dimension];
+        for (int i = 0; i < shortlist.length; i++) {
+            System.arraycopy(matrix, shortlist[i] * dimension, row, 0, dimension);
+            kernel.scoreAll(row, 1, dimension, query, single);
+            exact[i] = single[0];
+        }
+        int[] best = TopKSelector.select(exact, shortlist.length, K);
+        for (int i = 0; i < best.length; i++) {
+            best[i] = shortlist[best[i]];
+        }
+        return best;
+    }
+
+    private float[] nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    private float[] gaussian(Random random, float sigma) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(QuantizationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
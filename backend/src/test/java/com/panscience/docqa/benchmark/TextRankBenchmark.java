@@ -0,0 +1,70 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.service.TextRankSummarizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the local TextRank summary and the pre-compression of a long document to the
+ * summary prompt's input limit, on synthetic text of about 3,000 characters per page.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.TextRankBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextRankBenchmark {
+
+    private static final int SENTENCES_PER_PAGE = 20;
+    private static final int VOCABULARY = 5000;
+
+    @Param({"50", "500"})
+    private int pages;
+
+    private String document;
+    private final TextRankSummarizer summarizer = new TextRankSummarizer();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int page = 0; page < pages; page++) {
+            for (int sentence = 0; sentence < SENTENCES_PER_PAGE; sentence++) {
+                int words = 8 + random.nextInt(20);
+                for (int word = 0; word < words; word++) {
+                    // Skewed so some terms are common across the document and most are rare
+                    int term = (int) (Math.pow(random.nextDouble(), 3) * VOCABULARY);
+                    text.append(word == 0 ? "Term" : " term").append(term);
+                }
+                text.append(". ");
+            }
+            text.append('\n');
+        }
+        document = text.toString();
+    }
+
+    @Benchmark
+    public String summarize() {
+        return summarizer.summarize(document, 8);
+    }
+
+    @Benchmark
+    public String compress() {
+        return summarizer.compress(document, 15_000);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TextRankBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.panscience.docqa.benchmark;
+
+import com.panscience.docqa.service.DotProductKernel;
+import com.panscience.docqa.service.ScalarDotProductKernel;
+import com.panscience.docqa.service.SimdDotProductKernel;
+import com.panscience.docqa.service.VectorMath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original per-chunk cosine similarity with the normalized whole-matrix
+ * kernels used by vector search.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.panscience.docqa.benchmark.VectorScoringBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class VectorScoringBenchmark {
+
+    @Param({"1000", "20000"})
+    private int rows;
+
+    @Param({"1536"})
+    private int dimension;
+
+    private float[][] rawRows;
+    private float[] rawQuery;
+    private float[] normalizedMatrix;
+    private float[] normalizedQuery;
+    private ByteBuffer directMatrix;
+    private float[] scores;
+
+    private final DotProductKernel scalarKernel = new ScalarDotProductKernel();
+    private final DotProductKernel simdKernel = new SimdDotProductKernel();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rawRows = new float[rows][dimension];
+        normalizedMatrix = new float[rows * dimension];
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < dimension; i++) {
+                rawRows[row][i] = (float) random.nextGaussian();
+            }
+            System.arraycopy(VectorMath.normalize(rawRows[row]), 0, normalizedMatrix, row * dimension, dimension);
+        }
+        rawQuery = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            rawQuery[i] = (float) random.nextGaussian();
+        }
+        normalizedQuery = VectorMath.normalize(rawQuery);
+        // Off-heap little-endian copy, laid out like a mapped vector segment
+        directMatrix = ByteBuffer.allocateDirect(normalizedMatrix.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        directMatrix.asFloatBuffer().put(normalizedMatrix);
+        scores = new float[rows];
+    }
+
+    @Benchmark
+    public double[] cosinePerChunk() {
+        double[] result = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            result[row] = cosineSimilarity(rawQuery, rawRows[row]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public float[] scalarKernel() {
+        scalarKernel.scoreAll(normalizedMatrix, rows, dimension, normalizedQuery, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] simdKernel() {
+        simdKernel.scoreAll(normalizedMatrix, rows, dimension, normalizedQuery, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public float[] simdKernelOffHeap() {
+        simdKernel.scoreAll(directMatrix, rows, dimension, normalizedQuery, scores);
+        return scores;
+    }
+
+    // Implementation VectorSearchServiceImpl used before vectors were normalized at write time
+    private static double cosineSimilarity(float[] a, float[] b) {
+        if (a.length != b.length) return 0;
+
+        double dotProduct = 0;
+        double normA = 0;
+        double normB = 0;
+
+        for (int i = 0; i < a.length; i++) {
+            dotProduct += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+
+        if (normA == 0 || normB == 0) return 0;
+        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VectorScoringBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -1,5 +1,7 @@
 package com.panscience.docqa.exception;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +13,7 @@ import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -53,6 +56,30 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody().message()).isEqualTo("Processing failed");
     }
 
+    @Test
+    void handleLlmUnavailable_shouldReturn503WithRetryAfter() {
+        LlmUnavailableException ex = new LlmUnavailableException("No free chat slot");
+
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response =
+                handler.handleLlmUnavailable(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("5");
+        assertThat(response.getBody().message()).isEqualTo("No free chat slot");
+    }
+
+    @Test
+    void handleConstraintViolation_shouldReturn400WithMessage() {
+        ConstraintViolation<?> violation = mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("topK must be at most 100");
+        ConstraintViolationException ex = new ConstraintViolationException(Set.of(violation));
+
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleConstraintViolation(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody().message()).isEqualTo("topK must be at most 100");
+    }
+
     @Test
     void handleMaxUploadSize_shouldReturn413() {
         MaxUploadSizeExceededException ex = new MaxUploadSizeExceededException(100);
@@ -0,0 +1,79 @@
+package com.panscience.docqa.repository;
+
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class DocumentContentRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private DocumentContentRepository documentContentRepository;
+
+    private DocumentContent chunk;
+
+    @BeforeEach
+    void setUp() {
+        Document document = entityManager.persist(Document.builder()
+                .fileName("test-file.pdf")
+                .originalFileName("test.pdf")
+                .type(Document.DocumentType.PDF)
+                .mimeType("application/pdf")
+                .fileSize(1024L)
+                .filePath("/tmp/test.pdf")
+                .status(Document.ProcessingStatus.PROCESSING)
+                .uploadedAt(LocalDateTime.now())
+                .build());
+        chunk = entityManager.persistAndFlush(DocumentContent.builder()
+                .document(document)
+                .content("chunk")
+                .chunkIndex(0)
+                .build());
+    }
+
+    @Test
+    void updateEmbeddingVectors_shouldUpdateUncommittedRowsOfCurrentTransaction() {
+        byte[] vector = {1, 2, 3, 4};
+
+        documentContentRepository.updateEmbeddingVectors(Map.of(chunk.getId(), vector));
+
+        assertThat(documentContentRepository.findEmbeddingVectors(List.of(chunk.getId())))
+                .containsEntry(chunk.getId(), vector);
+    }
+
+    @Test
+    void updateEmbeddingVectors_withMissingRow_shouldFail() {
+        assertThatThrownBy(() -> documentContentRepository.updateEmbeddingVectors(Map.of(
+                chunk.getId(), new byte[]{1, 2, 3, 4},
+                chunk.getId() + 1000, new byte[]{1, 2, 3, 4})))
+                .isInstanceOf(JdbcUpdateAffectedIncorrectNumberOfRowsException.class);
+    }
+
+    @Test
+    void flush_afterEntityMirrorsBulkUpdate_shouldNotOverwriteVector() {
+        byte[] vector = {1, 2, 3, 4};
+        documentContentRepository.updateEmbeddingVectors(Map.of(chunk.getId(), vector));
+
+        chunk.setEmbeddingVector(new byte[]{9, 9, 9, 9});
+        entityManager.flush();
+
+        assertThat(documentContentRepository.findEmbeddingVectors(List.of(chunk.getId())))
+                .containsEntry(chunk.getId(), vector);
+    }
+}
@@ -0,0 +1,83 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class Bm25LexicalSearchServiceTest {
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private Bm25LexicalSearchService lexicalSearchService;
+
+    private final List<DocumentContent> chunks = List.of(
+            chunk(1L, "Revenue grew this quarter while costs stayed flat."),
+            chunk(2L, "Customer churn rose sharply; churn is now the top risk for revenue."),
+            chunk(3L, "The weather was pleasant during the offsite."),
+            chunk(4L, "Revenue targets for next year were discussed."));
+
+    @BeforeEach
+    void setUp() {
+        TermIndexStore termIndexStore = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000);
+        termIndexStore.index(1L, chunks);
+        FuzzyTermExpander fuzzyTermExpander = new FuzzyTermExpander(termIndexStore, true, 0.3, 3, 4);
+        lexicalSearchService = new Bm25LexicalSearchService(documentContentRepository, termIndexStore,
+                fuzzyTermExpander);
+    }
+
+    @Test
+    void search_shouldRankByBm25() {
+        when(documentContentRepository.findAllById(anyIterable())).thenReturn(chunks);
+
+        List<ScoredChunk> results = lexicalSearchService.search(1L, "What is the churn and revenue?", 10);
+
+        // Chunk 2 holds both terms; among the revenue-only chunks the shorter one wins
+        assertThat(results).extracting(result -> result.chunk().getId()).containsExactly(2L, 4L, 1L);
+    }
+
+    @Test
+    void search_withAllMatch_shouldRequireEveryTerm() {
+        when(documentContentRepository.findAllById(List.of(2L))).thenReturn(List.of(chunks.get(1)));
+
+        List<ScoredChunk> results = lexicalSearchService.search(1L, "churn revenue", 10,
+                LexicalSearchService.Match.ALL);
+
+        assertThat(results).extracting(result -> result.chunk().getId()).containsExactly(2L);
+    }
+
+    @Test
+    void search_withMisspelledTerm_shouldMatchCloseVariant() {
+        when(documentContentRepository.findAllById(List.of(3L))).thenReturn(List.of(chunks.get(2)));
+
+        List<ScoredChunk> results = lexicalSearchService.search(1L, "wheather", 10);
+
+        assertThat(results).extracting(result -> result.chunk().getId()).containsExactly(3L);
+    }
+
+    @Test
+    void search_withOnlyStopWords_shouldNotQueryChunks() {
+        assertThat(lexicalSearchService.search(1L, "what is the", 5)).isEmpty();
+        verifyNoInteractions(documentContentRepository);
+    }
+
+    private DocumentContent chunk(Long id, String text) {
+        return DocumentContent.builder().id(id).content(text).build();
+    }
+}
@@ -2,23 +2,38 @@ package com.panscience.docqa.service;
 
 import com.panscience.docqa.dto.ChatRequest;
 import com.panscience.docqa.dto.ChatResponse;
+import com.panscience.docqa.entity.ChatMessage;
 import com.panscience.docqa.entity.Document;
 import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.CircuitOpenException;
 import com.panscience.docqa.exception.DocumentNotFoundException;
 import com.panscience.docqa.repository.ChatMessageRepository;
 import com.panscience.docqa.repository.DocumentContentRepository;
 import com.panscience.docqa.repository.DocumentRepository;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,12 +51,30 @@ class ChatServiceImplTest {
     @Mock
     private ChatMessageRepository chatMessageRepository;
 
+    @Mock
+    private HybridSearchService hybridSearchService;
+
     @Mock
     private VectorSearchService vectorSearchService;
 
+    @Mock
+    private SemanticAnswerCache answerCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ContextPacker contextPacker = new ContextPacker(new SimpleMeterRegistry(), "gpt-4o-mini", 6000, 128000, 2000, 64);
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Mock
     private ChatLanguageModel chatModel;
 
+    @Mock
+    private StreamingChatLanguageModel streamingChatModel;
+
     @InjectMocks
     private ChatServiceImpl chatService;
 
@@ -66,6 +99,8 @@ class ChatServiceImplTest {
 
         // Inject mock ChatModel
         ReflectionTestUtils.setField(chatService, "chatModel", chatModel);
+        ReflectionTestUtils.setField(chatService, "streamingChatModel", streamingChatModel);
+        ReflectionTestUtils.setField(chatService, "streamTimeoutMs", 1000L);
     }
 
     @Test
@@ -76,8 +111,8 @@ class ChatServiceImplTest {
                 .build();
 
         when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
-        when(vectorSearchService.search(anyLong(), anyString(), anyInt()))
-                .thenReturn(List.of(testContent));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
         when(chatModel.generate(anyString()))
                 .thenReturn("This document is about machine learning.");
         when(chatMessageRepository.save(any())).thenReturn(null);
@@ -89,6 +124,157 @@ class ChatServiceImplTest {
         assertThat(response.getSessionId()).isNotNull();
     }
 
+    @Test
+    void chat_shouldCallModelBetweenReadAndWriteTransactions() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        when(chatModel.generate(anyString())).thenReturn("This document is about machine learning.");
+
+        chatService.chat(request);
+
+        // The read transaction commits before the model is called; the write opens after it returns
+        InOrder order = inOrder(transactionManager, documentRepository, chatModel, chatMessageRepository);
+        order.verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+        order.verify(documentRepository).findById(1L);
+        order.verify(transactionManager).commit(any());
+        order.verify(chatModel).generate(anyString());
+        order.verify(transactionManager).getTransaction(argThat(definition -> !definition.isReadOnly()));
+        order.verify(chatMessageRepository).save(any());
+        order.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void chat_withSimilarCachedQuestion_shouldSkipRetrievalAndModel() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("what is this document about")
+                .build();
+        float[] queryVector = {1f, 0f};
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(vectorSearchService.embedQuery("what is this document about")).thenReturn(queryVector);
+        when(answerCache.lookup(1L, queryVector)).thenReturn(ChatResponse.builder()
+                .response("This document is about machine learning.")
+                .timestamps(List.of())
+                .build());
+
+        ChatResponse response = chatService.chat(request);
+
+        assertThat(response.getResponse()).isEqualTo("This document is about machine learning.");
+        assertThat(response.isCached()).isTrue();
+        verify(chatMessageRepository).save(any());
+        verifyNoInteractions(hybridSearchService, chatModel);
+        verify(answerCache, never()).put(anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void chat_afterModelAnswer_shouldCacheItUnderQueryVector() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+        float[] queryVector = {0f, 1f};
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(vectorSearchService.embedQuery("What is this about?")).thenReturn(queryVector);
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        when(chatModel.generate(anyString())).thenReturn("This document is about machine learning.");
+
+        ChatResponse response = chatService.chat(request);
+
+        assertThat(response.isCached()).isFalse();
+        ArgumentCaptor<ChatResponse> cached = ArgumentCaptor.forClass(ChatResponse.class);
+        verify(answerCache).put(eq(1L), anyLong(), same(queryVector), cached.capture());
+        assertThat(cached.getValue().getResponse()).isEqualTo("This document is about machine learning.");
+    }
+
+    @Test
+    void chat_whenQueryEmbeddingFails_shouldAnswerWithoutAnswerCache() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(vectorSearchService.embedQuery(anyString())).thenThrow(new RuntimeException("Server error"));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        when(chatModel.generate(anyString())).thenReturn("This document is about machine learning.");
+
+        ChatResponse response = chatService.chat(request);
+
+        assertThat(response.getResponse()).isEqualTo("This document is about machine learning.");
+        verify(answerCache).lookup(1L, null);
+        verify(answerCache).put(eq(1L), anyLong(), isNull(), any());
+    }
+
+    @Test
+    void chat_withChatCircuitOpen_shouldReturnFlaggedExtractiveAnswerWithoutCaching() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What about machine learning?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(vectorSearchService.embedQuery(anyString())).thenThrow(new CircuitOpenException("embedding"));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        when(chatModel.generate(anyString())).thenThrow(new CircuitOpenException("chat"));
+
+        ChatResponse response = chatService.chat(request);
+
+        assertThat(response.isFallback()).isTrue();
+        assertThat(response.getResponse())
+                .startsWith(ExtractiveAnswer.PREAMBLE)
+                .contains("This is test content about machine learning.");
+        verify(answerCache, never()).put(anyLong(), anyLong(), any(), any());
+        verify(chatMessageRepository).save(any());
+    }
+
+    @Test
+    void chat_withConcurrentDuplicateQuestions_shouldCallModelOnceAndSaveEachSession() throws Exception {
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        CountDownLatch modelCalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatModel.generate(anyString())).thenAnswer(invocation -> {
+            modelCalled.countDown();
+            release.await();
+            return "This document is about machine learning.";
+        });
+
+        CompletableFuture<ChatResponse> first = new CompletableFuture<>();
+        new Thread(() -> first.complete(chatService.chat(ChatRequest.builder()
+                .documentId(1L).message("What is this about?").sessionId("first").build()))).start();
+        modelCalled.await();
+        CompletableFuture<ChatResponse> second = new CompletableFuture<>();
+        Thread secondCaller = new Thread(() -> second.complete(chatService.chat(ChatRequest.builder()
+                .documentId(1L).message("  what is this ABOUT ").sessionId("second").build())));
+        secondCaller.start();
+        while (secondCaller.isAlive() && secondCaller.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getSessionId()).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS).getSessionId()).isEqualTo("second");
+        assertThat(second.get().getResponse()).isEqualTo("This document is about machine learning.");
+        verify(chatModel, times(1)).generate(anyString());
+        ArgumentCaptor<ChatMessage> saved = ArgumentCaptor.forClass(ChatMessage.class);
+        verify(chatMessageRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues()).extracting(ChatMessage::getSessionId)
+                .containsExactlyInAnyOrder("first", "second");
+        assertThat(meterRegistry.counter("chat.coalesced").count()).isEqualTo(1);
+    }
+
     @Test
     void chat_withNonExistingDocument_shouldThrowException() {
         ChatRequest request = ChatRequest.builder()
@@ -111,8 +297,8 @@ class ChatServiceImplTest {
                 .build();
 
         when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
-        when(vectorSearchService.search(anyLong(), anyString(), anyInt()))
-                .thenReturn(List.of(testContent));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
         when(chatModel.generate(anyString())).thenReturn("Follow-up response");
         when(chatMessageRepository.save(any())).thenReturn(null);
 
@@ -145,8 +331,8 @@ class ChatServiceImplTest {
                 .build();
 
         when(documentRepository.findById(2L)).thenReturn(Optional.of(testDocument));
-        when(vectorSearchService.search(anyLong(), anyString(), anyInt()))
-                .thenReturn(List.of(audioContent));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(audioContent, 0.03f)));
         when(chatModel.generate(anyString())).thenReturn("At 30 seconds, the topic is...");
         when(chatMessageRepository.save(any())).thenReturn(null);
 
@@ -157,23 +343,97 @@ class ChatServiceImplTest {
     }
 
     @Test
-    void chat_withFallbackToKeywordSearch_shouldWork() {
+    void chat_withNoHybridMatches_shouldFallBackToAllContent() {
         ChatRequest request = ChatRequest.builder()
                 .documentId(1L)
                 .message("Find information about learning")
                 .build();
 
         when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
-        when(vectorSearchService.search(anyLong(), anyString(), anyInt()))
-                .thenReturn(List.of()); // Empty vector search result
-        when(documentContentRepository.searchByKeyword(anyLong(), anyString()))
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of()); // Neither lexical nor vector ranking matched
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L))
                 .thenReturn(List.of(testContent));
-        when(chatModel.generate(anyString())).thenReturn("Based on keyword search...");
+        when(chatModel.generate(anyString())).thenReturn("Based on the whole document...");
         when(chatMessageRepository.save(any())).thenReturn(null);
 
         ChatResponse response = chatService.chat(request);
 
         assertThat(response).isNotNull();
-        verify(documentContentRepository).searchByKeyword(anyLong(), anyString());
+        verify(documentContentRepository).findByDocumentIdOrderByChunkIndex(1L);
+        verify(documentContentRepository, never()).searchByKeyword(anyLong(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamChat_shouldPersistFullAnswerAndRecordTimeToFirstToken() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onNext("Machine");
+            handler.onNext(" learning.");
+            handler.onComplete(Response.from(AiMessage.from("Machine learning.")));
+            return null;
+        }).when(streamingChatModel).generate(anyString(), any(StreamingResponseHandler.class));
+
+        assertThat(chatService.streamChat(request)).isNotNull();
+
+        ArgumentCaptor<ChatMessage> saved = ArgumentCaptor.forClass(ChatMessage.class);
+        verify(chatMessageRepository).save(saved.capture());
+        assertThat(saved.getValue().getAiResponse()).isEqualTo("Machine learning.");
+        assertThat(meterRegistry.get("chat.time.to.first.token").tag("mode", "stream").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamChat_whenQueryEmbeddingFails_shouldStillStreamAnswer() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(vectorSearchService.embedQuery(anyString())).thenThrow(new RuntimeException("Server error"));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onComplete(Response.from(AiMessage.from("Machine learning.")));
+            return null;
+        }).when(streamingChatModel).generate(anyString(), any(StreamingResponseHandler.class));
+
+        assertThat(chatService.streamChat(request)).isNotNull();
+
+        verify(chatMessageRepository).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamChat_whenModelFails_shouldNotPersistMessage() {
+        ChatRequest request = ChatRequest.builder()
+                .documentId(1L)
+                .message("What is this about?")
+                .build();
+
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(testDocument));
+        when(hybridSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenReturn(List.of(new ScoredChunk(testContent, 0.03f)));
+        doAnswer(invocation -> {
+            StreamingResponseHandler<AiMessage> handler = invocation.getArgument(1);
+            handler.onError(new RuntimeException("rate limited"));
+            return null;
+        }).when(streamingChatModel).generate(anyString(), any(StreamingResponseHandler.class));
+
+        chatService.streamChat(request);
+
+        verify(chatMessageRepository, never()).save(any());
     }
 }
@@ -0,0 +1,114 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.exception.CircuitOpenException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker("chat", meterRegistry, 10, 4, 0.5, 0.5,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 2, clock::get);
+    }
+
+    @Test
+    void breaker_withFailureRateAtThreshold_shouldOpenAndRejectCalls() {
+        succeed(2);
+        fail(1);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(1);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CircuitOpenException.class);
+        assertThat(meterRegistry.counter("llm.circuit.rejected", "name", "chat").count()).isEqualTo(1);
+    }
+
+    @Test
+    void breaker_withSlowSuccessfulCalls_shouldOpen() {
+        for (int i = 0; i < 4; i++) {
+            breaker.acquirePermission();
+            breaker.onSuccess(i % 2 == 0 ? SLOW : FAST);
+        }
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void breaker_beforeMinimumCalls_shouldStayClosed() {
+        fail(3);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void breaker_afterOpenDuration_shouldCloseWhenProbesSucceed() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // Only the configured number of probes is let through at once
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CircuitOpenException.class);
+
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(FAST);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.acquirePermission();
+    }
+
+    @Test
+    void breaker_withFailedProbe_shouldOpenAgain() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        breaker.acquirePermission();
+        breaker.onError(FAST);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CircuitOpenException.class);
+    }
+
+    @Test
+    void breaker_withIgnoredProbe_shouldLetAnotherProbeThrough() {
+        fail(4);
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        breaker.acquirePermission();
+        breaker.acquirePermission();
+
+        breaker.onIgnored();
+
+        breaker.acquirePermission();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.acquirePermission();
+            breaker.onSuccess(FAST);
+        }
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.acquirePermission();
+            breaker.onError(FAST);
+        }
+    }
+}
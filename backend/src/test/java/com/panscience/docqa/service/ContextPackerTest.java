@@ -0,0 +1,124 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContextPackerTest {
+
+    private static final String MODEL = "gpt-4o-mini";
+
+    @Test
+    void pack_shouldFillBudgetInRelevanceOrder() {
+        DocumentContent first = chunk(10, words("alpha", 100));
+        DocumentContent second = chunk(20, words("beta", 100));
+        DocumentContent third = chunk(30, words("gamma", 100));
+        int budget = packer(6000, 128_000).countTokens(first.getContent() + second.getContent()) + 10;
+        ContextPacker packer = packer(budget, 128_000);
+
+        ContextPacker.PackedContext context = packer.pack(List.of(first, second, third), "");
+
+        assertThat(context.chunks()).containsExactly(first, second);
+        assertThat(context.tokens()).isLessThanOrEqualTo(budget);
+        assertThat(context.text()).doesNotContain("gamma");
+    }
+
+    @Test
+    void pack_shouldSkipChunkThatDoesNotFitAndKeepFilling() {
+        ContextPacker packer = packer(250, 128_000);
+        DocumentContent small = chunk(1, words("alpha", 50));
+        DocumentContent huge = chunk(2, words("beta", 400));
+        DocumentContent alsoSmall = chunk(5, words("gamma", 50));
+
+        ContextPacker.PackedContext context = packer.pack(List.of(small, huge, alsoSmall), "");
+
+        assertThat(context.chunks()).containsExactly(small, alsoSmall);
+    }
+
+    @Test
+    void pack_shouldMergeAdjacentChunksOrderedByBestRankKeepingEachHeader() {
+        ContextPacker packer = packer(6000, 128_000);
+        DocumentContent seven = paged(7, 3, "seven");
+        DocumentContent two = paged(2, 1, "two");
+        DocumentContent eight = paged(8, 4, "eight");
+
+        ContextPacker.PackedContext context = packer.pack(List.of(seven, two, eight), "");
+
+        assertThat(context.text()).isEqualTo("[Page 3] seven\n[Page 4] eight\n\n[Page 1] two");
+    }
+
+    @Test
+    void pack_shouldLeaveRoomForPromptAndAnswerInModelWindow() {
+        // 2000 tokens are reserved for the answer, leaving ~300 for prompt and context
+        ContextPacker packer = packer(6000, 2300);
+        String prompt = words("question", 100);
+        List<DocumentContent> wholeDocument = List.of(
+                chunk(0, words("alpha", 100)), chunk(1, words("beta", 100)), chunk(2, words("gamma", 100)));
+
+        ContextPacker.PackedContext context = packer.pack(wholeDocument, prompt);
+
+        assertThat(context.chunks()).hasSizeLessThan(3);
+        assertThat(packer.countTokens(prompt) + context.tokens() + 2000).isLessThanOrEqualTo(2300);
+    }
+
+    @Test
+    void pack_withOversizedTopChunk_shouldTruncateIt() {
+        ContextPacker packer = packer(100, 128_000);
+        DocumentContent huge = chunk(0, words("alpha", 1000));
+
+        ContextPacker.PackedContext context = packer.pack(List.of(huge), "");
+
+        assertThat(context.chunks()).hasSize(1);
+        assertThat(context.tokens()).isBetween(1, 100);
+        assertThat(context.text()).startsWith("alpha");
+    }
+
+    @Test
+    void pack_withFullBudget_shouldNotLookAtRemainingChunks() {
+        DocumentContent first = chunk(0, words("alpha", 100));
+        int budget = packer(6000, 128_000).countTokens(first.getContent() + "\n\n");
+        DocumentContent rest = mock(DocumentContent.class);
+
+        ContextPacker.PackedContext context = packer(budget, 128_000).pack(List.of(first, rest), "");
+
+        assertThat(context.chunks()).containsExactly(first);
+        verifyNoInteractions(rest);
+    }
+
+    @Test
+    void pack_shouldOnlyConsiderBestRankedCandidates() {
+        DocumentContent first = chunk(0, words("alpha", 10));
+        DocumentContent second = chunk(5, words("beta", 10));
+        DocumentContent third = mock(DocumentContent.class);
+
+        ContextPacker.PackedContext context = packer(6000, 128_000, 2).pack(List.of(first, second, third), "");
+
+        assertThat(context.chunks()).containsExactly(first, second);
+        verifyNoInteractions(third);
+    }
+
+    private static ContextPacker packer(int maxTokens, int window) {
+        return packer(maxTokens, window, 64);
+    }
+
+    private static ContextPacker packer(int maxTokens, int window, int maxCandidates) {
+        return new ContextPacker(new SimpleMeterRegistry(), MODEL, maxTokens, window, 2000, maxCandidates);
+    }
+
+    private static DocumentContent chunk(int index, String content) {
+        return DocumentContent.builder().id((long) index).chunkIndex(index).content(content).build();
+    }
+
+    private static DocumentContent paged(int index, int page, String content) {
+        return DocumentContent.builder().id((long) index).chunkIndex(index).pageNumber(page).content(content).build();
+    }
+
+    private static String words(String word, int count) {
+        return (word + " ").repeat(count).trim();
+    }
+}
@@ -0,0 +1,112 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import com.panscience.docqa.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentProcessingServiceImplTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @Mock
+    private PdfExtractionService pdfExtractionService;
+
+    @Mock
+    private TranscriptionService transcriptionService;
+
+    @Mock
+    private SummaryService summaryService;
+
+    @Mock
+    private VectorSearchService vectorSearchService;
+
+    @Mock
+    private CorpusSearchService corpusSearchService;
+
+    @Mock
+    private SemanticAnswerCache answerCache;
+
+    @Mock
+    private TermIndexStore termIndexStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DocumentProcessingServiceImpl processingService;
+
+    private Document document;
+
+    private final List<DocumentContent> contents = List.of(
+            DocumentContent.builder().content("first page").chunkIndex(0).pageNumber(1).build());
+
+    @BeforeEach
+    void setUp() {
+        document = Document.builder()
+                .id(1L)
+                .originalFileName("test.pdf")
+                .type(Document.DocumentType.PDF)
+                .status(Document.ProcessingStatus.PENDING)
+                .build();
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+        when(documentRepository.save(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void process_shouldSummarizeOutsideAnyTransaction() {
+        when(pdfExtractionService.extractContent(document)).thenReturn(contents);
+        when(summaryService.generateSummary(contents)).thenReturn("A summary.");
+
+        processingService.process(1L);
+
+        assertThat(document.getStatus()).isEqualTo(Document.ProcessingStatus.COMPLETED);
+        assertThat(document.getSummary()).isEqualTo("A summary.");
+        assertThat(document.getProcessedAt()).isNotNull();
+        verify(termIndexStore).index(1L, contents);
+        verify(corpusSearchService).indexDocument(1L);
+
+        InOrder order = inOrder(transactionManager, pdfExtractionService, documentContentRepository,
+                vectorSearchService, summaryService);
+        order.verify(transactionManager).commit(any());
+        order.verify(pdfExtractionService).extractContent(document);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(documentContentRepository).saveAll(contents);
+        order.verify(transactionManager).commit(any());
+        order.verify(vectorSearchService).generateAndStoreEmbeddings(contents);
+        order.verify(summaryService).generateSummary(contents);
+        order.verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    void process_whenExtractionFails_shouldMarkDocumentFailed() {
+        when(pdfExtractionService.extractContent(document)).thenThrow(new IllegalStateException("corrupt PDF"));
+
+        processingService.process(1L);
+
+        assertThat(document.getStatus()).isEqualTo(Document.ProcessingStatus.FAILED);
+        verify(documentContentRepository, never()).saveAll(any());
+        verify(summaryService, never()).generateSummary(anyList());
+    }
+}
@@ -2,9 +2,9 @@ package com.panscience.docqa.service;
 
 import com.panscience.docqa.dto.DocumentDto;
 import com.panscience.docqa.entity.Document;
-import com.panscience.docqa.entity.DocumentContent;
 import com.panscience.docqa.exception.DocumentNotFoundException;
 import com.panscience.docqa.exception.FileStorageException;
+import com.panscience.docqa.repository.ChatMessageRepository;
 import com.panscience.docqa.repository.DocumentContentRepository;
 import com.panscience.docqa.repository.DocumentRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +16,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
@@ -37,13 +39,22 @@ class DocumentServiceImplTest {
     private DocumentContentRepository documentContentRepository;
 
     @Mock
-    private PdfExtractionService pdfExtractionService;
+    private ChatMessageRepository chatMessageRepository;
 
     @Mock
-    private TranscriptionService transcriptionService;
+    private DocumentProcessingService documentProcessingService;
 
     @Mock
-    private SummaryService summaryService;
+    private VectorSearchService vectorSearchService;
+
+    @Mock
+    private CorpusSearchService corpusSearchService;
+
+    @Mock
+    private SemanticAnswerCache answerCache;
+
+    @Mock
+    private TermIndexStore termIndexStore;
 
     @InjectMocks
     private DocumentServiceImpl documentService;
@@ -84,6 +95,27 @@ class DocumentServiceImplTest {
         assertThat(result.getOriginalFileName()).isEqualTo("test.pdf");
         assertThat(result.getType()).isEqualTo(Document.DocumentType.PDF);
         verify(documentRepository, times(1)).save(any(Document.class));
+        verify(documentProcessingService).process(1L);
+    }
+
+    @Test
+    void uploadDocument_inTransaction_shouldStartProcessingAfterCommit() {
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "test.pdf", "application/pdf", "test content".getBytes()
+        );
+        when(documentRepository.save(any(Document.class))).thenReturn(testDocument);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            documentService.uploadDocument(file);
+            verify(documentProcessingService, never()).process(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(documentProcessingService).process(1L);
     }
 
     @Test
@@ -202,6 +234,10 @@ class DocumentServiceImplTest {
 
         verify(documentContentRepository).deleteByDocumentId(1L);
         verify(documentRepository).delete(testDocument);
+        verify(vectorSearchService).evict(1L);
+        verify(corpusSearchService).removeDocument(1L);
+        verify(answerCache).invalidate(1L);
+        verify(termIndexStore).invalidate(1L);
     }
 
     @Test
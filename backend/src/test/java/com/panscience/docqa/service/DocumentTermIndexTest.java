@@ -0,0 +1,111 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DocumentTermIndexTest {
+
+    private final DocumentTermIndex index = DocumentTermIndex.build(1L, List.of(
+            chunk(100L, "Quarterly churn rose while revenue grew."),
+            chunk(101L, "Churn churn churn: the churn discussion."),
+            chunk(102L, "Revenue and pricing were reviewed."),
+            chunk(103L, "Nothing relevant here.")));
+
+    @Test
+    void postings_shouldReturnRowsAndTermFrequencies() {
+        DocumentTermIndex.Postings postings = index.postings("churn");
+
+        assertThat(postings.rows()).containsExactly(0, 1);
+        assertThat(postings.frequencies()).containsExactly(1, 4);
+        assertThat(index.postings("missing").size()).isZero();
+        assertThat(index.chunkId(1)).isEqualTo(101L);
+    }
+
+    @Test
+    void matchAll_shouldIntersectPostings() {
+        assertThat(index.matchAll(List.of("churn", "revenue"))).containsExactly(0);
+        assertThat(index.matchAll(List.of("churn", "missing"))).isEmpty();
+    }
+
+    @Test
+    void matchAny_shouldUnionPostings() {
+        assertThat(index.matchAny(List.of("churn", "pricing"))).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void findPhrase_shouldMatchConsecutiveWordsOnly() {
+        DocumentTermIndex transcript = DocumentTermIndex.build(3L, List.of(
+                chunk(200L, "We saw quarterly churn fall, then churn was quarterly news."),
+                chunk(201L, "Churn quarterly, not quarterly churn, and quarterly churn again.")));
+
+        List<DocumentTermIndex.Occurrence> occurrences = transcript.findPhrase(TextAnalyzer.analyze("Quarterly churn"));
+
+        assertThat(occurrences).containsExactly(
+                new DocumentTermIndex.Occurrence(0, 2, 2),
+                new DocumentTermIndex.Occurrence(1, 3, 2),
+                new DocumentTermIndex.Occurrence(1, 6, 2));
+    }
+
+    @Test
+    void findPhrase_shouldKeepStopWordGaps() {
+        DocumentTermIndex transcript = DocumentTermIndex.build(3L, List.of(
+                chunk(200L, "The state of the art model."),
+                chunk(201L, "The art state model.")));
+
+        assertThat(transcript.findPhrase(TextAnalyzer.analyze("state of the art")))
+                .containsExactly(new DocumentTermIndex.Occurrence(0, 1, 4));
+    }
+
+    @Test
+    void findNear_shouldMatchTermsInAnyOrderWithinWindow() {
+        DocumentTermIndex transcript = DocumentTermIndex.build(3L, List.of(
+                chunk(200L, "Churn went up this quarter"),
+                chunk(201L, "Quarter results were fine and much later we discussed churn")));
+
+        assertThat(transcript.findNear(List.of("quarter", "churn"), 4))
+                .containsExactly(new DocumentTermIndex.Occurrence(0, 0, 5));
+        assertThat(transcript.findNear(List.of("quarter", "churn"), 10)).hasSize(2);
+    }
+
+    @Test
+    void postings_withLargeRowGaps_shouldSurviveVarIntEncoding() {
+        List<DocumentContent> chunks = new ArrayList<>();
+        for (long i = 0; i < 20_000; i++) {
+            chunks.add(chunk(i, i % 9_999 == 0 ? "needle" : "hay"));
+        }
+
+        DocumentTermIndex large = DocumentTermIndex.build(2L, chunks);
+
+        assertThat(large.postings("needle").rows()).containsExactly(0, 9_999, 19_998);
+        assertThat(large.postings("hay").size()).isEqualTo(20_000 - 3);
+    }
+
+    @Test
+    void writeTo_shouldRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        DocumentTermIndex restored = DocumentTermIndex.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.terms()).containsExactly(index.terms());
+        assertThat(restored.postings("churn").rows()).containsExactly(0, 1);
+        assertThat(restored.postings("churn").frequencies()).containsExactly(1, 4);
+        assertThat(restored.averageChunkLength()).isEqualTo(index.averageChunkLength());
+        assertThat(restored.findPhrase(TextAnalyzer.analyze("quarterly churn")))
+                .containsExactlyElementsOf(index.findPhrase(TextAnalyzer.analyze("quarterly churn")));
+        assertThat(restored.chunk(1).getId()).isEqualTo(101L);
+        assertThat(restored.chunk(1).getContent()).isEqualTo("Churn churn churn: the churn discussion.");
+        assertThat(restored.chunk(1).getStartTime()).isNull();
+    }
+
+    private static DocumentContent chunk(Long id, String text) {
+        return DocumentContent.builder().id(id).content(text).build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DotProductKernelTest {
+
+    private static final int ROWS = 37;
+    private static final int DIMENSION = 1539; // not a multiple of any vector width
+
+    @Test
+    void scalarKernel_shouldMatchExactDotProduct() {
+        assertMatchesReference(new ScalarDotProductKernel());
+    }
+
+    @Test
+    void simdKernel_shouldMatchExactDotProduct() {
+        assertMatchesReference(new SimdDotProductKernel());
+    }
+
+    @Test
+    void select_withSimdDisabled_shouldReturnScalarKernel() {
+        assertThat(DotProductKernels.select(false)).isInstanceOf(ScalarDotProductKernel.class);
+    }
+
+    @Test
+    void select_withSimdEnabled_shouldUseVectorApiWhenModuleLoaded() {
+        // Surefire runs with --add-modules jdk.incubator.vector
+        assertThat(DotProductKernels.select(true).name()).startsWith("simd-");
+    }
+
+    private void assertMatchesReference(DotProductKernel kernel) {
+        Random random = new Random(7);
+        float[] matrix = new float[ROWS * DIMENSION];
+        for (int row = 0; row < ROWS; row++) {
+            float[] vector = new float[DIMENSION];
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            System.arraycopy(VectorMath.normalize(vector), 0, matrix, row * DIMENSION, DIMENSION);
+        }
+        float[] query = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+        query = VectorMath.normalize(query);
+
+        float[] scores = new float[ROWS];
+        kernel.scoreAll(matrix, ROWS, DIMENSION, query, scores);
+        assertScoresMatch(matrix, query, scores);
+
+        // Mapped segments hand the kernel little-endian bytes instead of a float array
+        ByteBuffer bytes = ByteBuffer.wrap(EmbeddingCodec.encode(matrix)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] bufferScores = new float[ROWS];
+        kernel.scoreAll(bytes, ROWS, DIMENSION, query, bufferScores);
+        assertScoresMatch(matrix, query, bufferScores);
+    }
+
+    private void assertScoresMatch(float[] matrix, float[] query, float[] scores) {
+        for (int row = 0; row < ROWS; row++) {
+            double expected = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                expected += (double) matrix[row * DIMENSION + i] * query[i];
+            }
+            assertThat((double) scores[row]).isCloseTo(expected, within(1e-5));
+        }
+    }
+}
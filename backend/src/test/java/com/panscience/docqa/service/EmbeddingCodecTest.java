@@ -0,0 +1,44 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.assertj.core.api.Assertions.*;
+
+class EmbeddingCodecTest {
+
+    @Test
+    void encodeThenDecode_shouldRoundTrip() {
+        float[] vector = {0.5f, -1.25f, 3.0e-7f, Float.MAX_VALUE, 0f};
+
+        float[] decoded = EmbeddingCodec.decode(EmbeddingCodec.encode(vector));
+
+        assertThat(decoded).containsExactly(vector);
+    }
+
+    @Test
+    void encode_shouldUseLittleEndianFloat32() {
+        byte[] bytes = EmbeddingCodec.encode(new float[]{1.0f});
+
+        // 1.0f == 0x3F800000
+        assertThat(bytes).containsExactly(0x00, 0x00, (byte) 0x80, 0x3F);
+    }
+
+    @Test
+    void asFloatBuffer_shouldExposeVectorWithoutCopy() {
+        byte[] bytes = EmbeddingCodec.encode(new float[]{1f, 2f, 3f});
+
+        FloatBuffer buffer = EmbeddingCodec.asFloatBuffer(bytes);
+
+        assertThat(buffer.remaining()).isEqualTo(3);
+        assertThat(buffer.get(2)).isEqualTo(3f);
+        assertThat(buffer.isReadOnly()).isTrue();
+    }
+
+    @Test
+    void dimension_withTruncatedBytes_shouldThrowException() {
+        assertThatThrownBy(() -> EmbeddingCodec.dimension(new byte[6]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
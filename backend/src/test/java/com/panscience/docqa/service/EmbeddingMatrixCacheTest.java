@@ -0,0 +1,111 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class EmbeddingMatrixCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void get_repeatedLookup_shouldLoadOnceAndCountHit() {
+        EmbeddingMatrixCache cache = new EmbeddingMatrixCache(meterRegistry, 1_000_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, id -> { loads.incrementAndGet(); return matrix(id, 3); });
+        DocumentMatrix second = cache.get(1L, id -> { loads.incrementAndGet(); return matrix(id, 3); });
+
+        assertThat(loads).hasValue(1);
+        assertThat(second.rows()).isEqualTo(3);
+        assertThat(meterRegistry.counter("docqa.vector.matrix.cache", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("docqa.vector.matrix.cache", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_overCapacity_shouldEvictLeastRecentlyUsed() {
+        long oneMatrix = matrix(1L, 3).sizeInBytes();
+        EmbeddingMatrixCache cache = new EmbeddingMatrixCache(meterRegistry, oneMatrix * 2);
+
+        cache.get(1L, id -> matrix(id, 3));
+        cache.get(2L, id -> matrix(id, 3));
+        cache.get(1L, id -> matrix(id, 3));
+        cache.get(3L, id -> matrix(id, 3));
+
+        AtomicInteger reloads = new AtomicInteger();
+        cache.get(1L, id -> { reloads.incrementAndGet(); return matrix(id, 3); });
+        cache.get(2L, id -> { reloads.incrementAndGet(); return matrix(id, 3); });
+
+        assertThat(reloads).as("document 2 was least recently used").hasValue(1);
+        assertThat(cache.currentBytes()).isLessThanOrEqualTo(oneMatrix * 2);
+    }
+
+    @Test
+    void invalidate_shouldForceReload() {
+        EmbeddingMatrixCache cache = new EmbeddingMatrixCache(meterRegistry, 1_000_000);
+        cache.get(1L, id -> matrix(id, 2));
+
+        cache.invalidate(1L);
+        DocumentMatrix reloaded = cache.get(1L, id -> matrix(id, 4));
+
+        assertThat(reloaded.rows()).isEqualTo(4);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_duringLoad_shouldNotCacheStaleMatrix() {
+        EmbeddingMatrixCache cache = new EmbeddingMatrixCache(meterRegistry, 1_000_000);
+
+        DocumentMatrix stale = cache.get(1L, id -> {
+            cache.invalidate(id);
+            return matrix(id, 2);
+        });
+        DocumentMatrix reloaded = cache.get(1L, id -> matrix(id, 4));
+
+        assertThat(stale.rows()).isEqualTo(2);
+        assertThat(reloaded.rows()).isEqualTo(4);
+        assertThat(cache.trackedLoads()).as("no load left in flight").isZero();
+    }
+
+    @Test
+    void fromContents_shouldPackRowsAndSkipMissingEmbeddings() {
+        DocumentMatrix matrix = DocumentMatrix.fromContents(1L, List.of(
+                chunk(1L, new float[]{0.6f, 0.8f}),
+                DocumentContent.builder().id(2L).content("no embedding").chunkIndex(1).build(),
+                chunk(3L, new float[]{0f, 1f})));
+
+        assertThat(matrix.chunks()).hasSize(3);
+        assertThat(matrix.rows()).isEqualTo(2);
+        assertThat(matrix.vectors()).containsExactly(0.6f, 0.8f, 0f, 1f);
+        assertThat(matrix.chunkForRow(1).getId()).isEqualTo(3L);
+    }
+
+    private DocumentMatrix matrix(Long documentId, int chunks) {
+        List<DocumentContent> contents = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            contents.add(chunk((long) i, new float[]{1f, i}));
+        }
+        return DocumentMatrix.fromContents(documentId, contents);
+    }
+
+    private DocumentContent chunk(Long id, float[] vector) {
+        return DocumentContent.builder()
+                .id(id)
+                .content("chunk " + id)
+                .chunkIndex(id.intValue())
+                .embeddingVector(EmbeddingCodec.encode(vector))
+                .build();
+    }
+}
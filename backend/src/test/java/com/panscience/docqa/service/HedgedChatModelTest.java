@@ -0,0 +1,95 @@
+package com.panscience.docqa.service;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HedgedChatModelTest {
+
+    private static final long SLOW_MS = 3000;
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(200);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void generate_whenPrimaryIsSlow_shouldReturnHedgeAnswer() throws Exception {
+        try (OpenAiStubServer server = new OpenAiStubServer(request -> request == 1 ? SLOW_MS : 0)) {
+            ChatLanguageModel model = hedged(client(server), 1.0);
+
+            long start = System.nanoTime();
+            String answer = model.generate("What is this about?");
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(answer).isEqualTo("answer 2");
+            assertThat(elapsedMs).isLessThan(SLOW_MS);
+            assertThat(server.requests()).isEqualTo(2);
+            assertThat(meterRegistry.counter("llm.hedge", "outcome", "won").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void generate_whenPrimaryIsFast_shouldNotHedge() throws Exception {
+        try (OpenAiStubServer server = new OpenAiStubServer(request -> 0)) {
+            ChatLanguageModel model = hedged(client(server), 1.0);
+
+            assertThat(model.generate("What is this about?")).isEqualTo("answer 1");
+            assertThat(server.requests()).isEqualTo(1);
+            assertThat(meterRegistry.counter("llm.hedge", "outcome", "fired").count()).isZero();
+        }
+    }
+
+    @Test
+    void generate_withoutHedgeBudget_shouldWaitForPrimary() throws Exception {
+        try (OpenAiStubServer server = new OpenAiStubServer(request -> request == 1 ? 600 : 0)) {
+            ChatLanguageModel model = hedged(client(server), 0.0);
+
+            assertThat(model.generate("What is this about?")).isEqualTo("answer 1");
+            assertThat(server.requests()).isEqualTo(1);
+            assertThat(meterRegistry.counter("llm.hedge", "outcome", "skipped").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void hedgeDelay_shouldFollowRecentLatencyPercentile() throws Exception {
+        try (OpenAiStubServer server = new OpenAiStubServer(request -> 0)) {
+            HedgedChatModel model = hedged(client(server), 0.0);
+            assertThat(model.hedgeDelayMillis()).isEqualTo(HEDGE_DELAY.toMillis());
+
+            for (int i = 0; i < 40; i++) {
+                model.generate("warm up " + i);
+            }
+
+            // Local answers are fast, so the p95 is far below the cold-start delay but never below the minimum
+            assertThat(model.hedgeDelayMillis()).isBetween(50L, HEDGE_DELAY.toMillis() - 1);
+        }
+    }
+
+    private HedgedChatModel hedged(ChatLanguageModel delegate, double maxRatio) {
+        return new HedgedChatModel(delegate, delegate, executor, meterRegistry,
+                0.95, Duration.ofMillis(50), HEDGE_DELAY, maxRatio, 64);
+    }
+
+    private static ChatLanguageModel client(OpenAiStubServer server) {
+        return OpenAiChatModel.builder()
+                .baseUrl(server.baseUrl())
+                .apiKey("test-key")
+                .modelName("gpt-4o-mini")
+                .timeout(Duration.ofSeconds(10))
+                .maxRetries(1)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void search_shouldMatchExactScanRecall() {
+        Random random = new Random(7);
+        int count = 2000;
+        float[] matrix = new float[count * DIMENSION];
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        for (int i = 0; i < count; i++) {
+            float[] vector = randomUnitVector(random);
+            System.arraycopy(vector, 0, matrix, i * DIMENSION, DIMENSION);
+            index.add(i, i % 10, vector);
+        }
+
+        int k = 10;
+        int found = 0;
+        int queries = 50;
+        float[] scores = new float[count];
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            new ScalarDotProductKernel().scoreAll(matrix, count, DIMENSION, query, scores);
+            Set<Long> exact = new HashSet<>();
+            for (int row : TopKSelector.select(scores, count, k)) {
+                exact.add((long) row);
+            }
+            for (HnswIndex.Hit hit : index.search(query, k, 128)) {
+                if (exact.contains(hit.chunkId())) {
+                    found++;
+                }
+            }
+        }
+
+        assertThat((double) found / (queries * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void search_shouldReturnHitsBestFirst() {
+        HnswIndex index = new HnswIndex(2, 4, 16);
+        index.add(1, 100, VectorMath.normalize(new float[]{1, 0}));
+        index.add(2, 100, VectorMath.normalize(new float[]{1, 1}));
+        index.add(3, 200, VectorMath.normalize(new float[]{0, 1}));
+
+        List<HnswIndex.Hit> hits = index.search(VectorMath.normalize(new float[]{1, 0.1f}), 3, 16);
+
+        assertThat(hits).extracting(HnswIndex.Hit::chunkId).containsExactly(1L, 2L, 3L);
+        assertThat(hits.get(0).documentId()).isEqualTo(100L);
+    }
+
+    @Test
+    void markDeleted_shouldHideDocumentFromResults() {
+        HnswIndex index = new HnswIndex(2, 4, 16);
+        index.add(1, 100, VectorMath.normalize(new float[]{1, 0}));
+        index.add(2, 200, VectorMath.normalize(new float[]{0, 1}));
+
+        assertThat(index.markDeleted(100)).isEqualTo(1);
+
+        assertThat(index.containsDocument(100)).isFalse();
+        assertThat(index.search(new float[]{1, 0}, 2, 16))
+                .extracting(HnswIndex.Hit::documentId)
+                .containsExactly(200L);
+        assertThat(index.compact().size()).isEqualTo(1);
+    }
+
+    @Test
+    void writeTo_shouldRoundTripGraph() throws IOException {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int i = 0; i < 200; i++) {
+            index.add(i, i / 20, randomUnitVector(random));
+        }
+        index.markDeleted(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        HnswIndex restored = HnswIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        float[] query = randomUnitVector(random);
+        assertThat(restored.size()).isEqualTo(index.size());
+        assertThat(restored.deletedCount()).isEqualTo(index.deletedCount());
+        assertThat(restored.search(query, 5, 64)).isEqualTo(index.search(query, 5, 64));
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalize(vector);
+    }
+}
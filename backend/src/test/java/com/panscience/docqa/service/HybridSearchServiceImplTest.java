@@ -0,0 +1,86 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HybridSearchServiceImplTest {
+
+    @Mock
+    private VectorSearchService vectorSearchService;
+
+    @Mock
+    private LexicalSearchService lexicalSearchService;
+
+    private HybridSearchServiceImpl hybridSearchService;
+
+    private final float[] queryVector = {1f, 0f};
+
+    @BeforeEach
+    void setUp() {
+        hybridSearchService = new HybridSearchServiceImpl(vectorSearchService, lexicalSearchService);
+        ReflectionTestUtils.setField(hybridSearchService, "rrfK", 60);
+        ReflectionTestUtils.setField(hybridSearchService, "candidates", 20);
+        ReflectionTestUtils.setField(hybridSearchService, "lexicalThreads", 2);
+        hybridSearchService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hybridSearchService.shutdown();
+    }
+
+    @Test
+    void search_shouldRankChunksFoundByBothRetrieversFirst() {
+        when(lexicalSearchService.search(1L, "churn rate", 20))
+                .thenReturn(List.of(hit(1L, 7.5f), hit(2L, 3.1f)));
+        when(vectorSearchService.embedQuery("churn rate")).thenReturn(queryVector);
+        when(vectorSearchService.searchScored(1L, queryVector, 20))
+                .thenReturn(List.of(hit(3L, 0.91f), hit(2L, 0.88f)));
+
+        List<ScoredChunk> results = hybridSearchService.search(1L, "churn rate", 3);
+
+        // Chunk 2 is second in both lists, which beats first place in only one
+        assertThat(results).extracting(result -> result.chunk().getId()).containsExactly(2L, 1L, 3L);
+        assertThat(results.get(0).score()).isCloseTo(2f / 62, within(1e-6f));
+    }
+
+    @Test
+    void search_withFailingLexicalSearch_shouldReturnVectorRanking() {
+        when(lexicalSearchService.search(anyLong(), anyString(), anyInt()))
+                .thenThrow(new IllegalStateException("index unavailable"));
+        when(vectorSearchService.embedQuery("query")).thenReturn(queryVector);
+        when(vectorSearchService.searchScored(1L, queryVector, 20)).thenReturn(List.of(hit(3L, 0.5f)));
+
+        assertThat(hybridSearchService.search(1L, "query", 5))
+                .extracting(result -> result.chunk().getId())
+                .containsExactly(3L);
+    }
+
+    @Test
+    void search_inMockMode_shouldUseLexicalRankingOnly() {
+        when(lexicalSearchService.search(1L, "query", 20)).thenReturn(List.of(hit(4L, 1.2f)));
+        when(vectorSearchService.embedQuery("query")).thenReturn(null);
+
+        assertThat(hybridSearchService.search(1L, "query", 5))
+                .extracting(result -> result.chunk().getId())
+                .containsExactly(4L);
+        verify(vectorSearchService, never()).searchScored(any(), any(), anyInt());
+    }
+
+    private ScoredChunk hit(Long id, float score) {
+        return new ScoredChunk(DocumentContent.builder().id(id).content("chunk " + id).build(), score);
+    }
+}
@@ -0,0 +1,140 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.exception.LlmUnavailableException;
+import dev.ai4j.openai4j.OpenAiHttpException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LlmGatewayTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private LlmGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        gateway = new LlmGateway(meterRegistry);
+        ReflectionTestUtils.setField(gateway, "useMockAi", true);
+        ReflectionTestUtils.setField(gateway, "chatConcurrency", 1);
+        ReflectionTestUtils.setField(gateway, "chatAcquireTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(gateway, "summaryConcurrency", 1);
+        ReflectionTestUtils.setField(gateway, "summaryAcquireTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(gateway, "embeddingConcurrency", 1);
+        ReflectionTestUtils.setField(gateway, "embeddingAcquireTimeout", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(gateway, "rateLimitAttempts", 3);
+        ReflectionTestUtils.setField(gateway, "initialBackoff", Duration.ofMillis(5));
+        ReflectionTestUtils.setField(gateway, "maxBackoff", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(gateway, "breakerWindow", 50);
+        ReflectionTestUtils.setField(gateway, "breakerMinimumCalls", 10);
+        ReflectionTestUtils.setField(gateway, "breakerFailureRate", 0.5);
+        ReflectionTestUtils.setField(gateway, "breakerSlowCallRate", 0.5);
+        ReflectionTestUtils.setField(gateway, "breakerSlowCallDuration", Duration.ofSeconds(20));
+        ReflectionTestUtils.setField(gateway, "breakerOpenDuration", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(gateway, "breakerHalfOpenCalls", 3);
+        gateway.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void call_whenLaneIsFull_shouldRejectAfterAcquireTimeout() throws InterruptedException {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        callers.execute(() -> gateway.call(LlmGateway.Lane.CHAT, () -> hold(holding, release)));
+        holding.await();
+
+        assertThatThrownBy(() -> gateway.call(LlmGateway.Lane.CHAT, () -> "answer"))
+                .isInstanceOf(LlmUnavailableException.class);
+        assertThat(meterRegistry.counter("llm.bulkhead.rejected", "lane", "chat").count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void call_withSummaryLaneSaturated_shouldStillServeChat() throws InterruptedException {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        callers.execute(() -> gateway.call(LlmGateway.Lane.SUMMARY, () -> hold(holding, release)));
+        holding.await();
+
+        assertThat(gateway.call(LlmGateway.Lane.CHAT, () -> "answer")).isEqualTo("answer");
+        release.countDown();
+    }
+
+    @Test
+    void call_whenRateLimited_shouldBackOffAndRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = gateway.call(LlmGateway.Lane.EMBEDDING, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new RuntimeException(new OpenAiHttpException(429, "Rate limit reached"));
+            }
+            return "vectors";
+        });
+
+        assertThat(result).isEqualTo("vectors");
+        assertThat(attempts).hasValue(3);
+        assertThat(meterRegistry.counter("llm.rate.limited", "lane", "embedding").count()).isEqualTo(2);
+    }
+
+    @Test
+    void call_whenRateLimitPersists_shouldGiveUpAsUnavailable() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> gateway.call(LlmGateway.Lane.CHAT, () -> {
+            attempts.incrementAndGet();
+            throw new OpenAiHttpException(429, "Rate limit reached");
+        })).isInstanceOf(LlmUnavailableException.class);
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void call_withOtherFailure_shouldNotRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> gateway.call(LlmGateway.Lane.CHAT, () -> {
+            attempts.incrementAndGet();
+            throw new OpenAiHttpException(500, "Server error");
+        })).isInstanceOf(OpenAiHttpException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void adaptiveBackoff_shouldGrowOnRateLimitsAndDecayOnSuccess() {
+        LlmGateway.AdaptiveBackoff backoff = new LlmGateway.AdaptiveBackoff(100, 1000);
+
+        backoff.onRateLimited();
+        backoff.onRateLimited();
+        backoff.onRateLimited();
+        assertThat(backoff.penaltyMillis()).isEqualTo(400);
+
+        backoff.onSuccess();
+        assertThat(backoff.penaltyMillis()).isEqualTo(200);
+        backoff.onSuccess();
+        backoff.onSuccess();
+        assertThat(backoff.penaltyMillis()).isZero();
+    }
+
+    private static String hold(CountDownLatch holding, CountDownLatch release) {
+        holding.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "held";
+    }
+}
@@ -0,0 +1,128 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.CorpusSearchResponse;
+import com.panscience.docqa.dto.MultiSearchRequest;
+import com.panscience.docqa.dto.MultiSearchResponse;
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.repository.DocumentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MultiDocumentSearchServiceImplTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private VectorSearchService vectorSearchService;
+
+    private MultiDocumentSearchServiceImpl multiSearchService;
+
+    private final float[] queryVector = {1f, 0f};
+
+    @BeforeEach
+    void setUp() {
+        multiSearchService = new MultiDocumentSearchServiceImpl(documentRepository, vectorSearchService);
+        ReflectionTestUtils.setField(multiSearchService, "parallelism", 4);
+        multiSearchService.init();
+        lenient().when(vectorSearchService.embedQuery("question")).thenReturn(queryVector);
+    }
+
+    @AfterEach
+    void tearDown() {
+        multiSearchService.shutdown();
+    }
+
+    @Test
+    void search_withoutIds_shouldMergeAllCompletedDocumentsIntoGlobalTopK() {
+        when(documentRepository.findAllProcessedDocuments())
+                .thenReturn(List.of(document(1L), document(2L), document(3L)));
+        when(vectorSearchService.searchScored(1L, queryVector, 3)).thenReturn(List.of(hit(10L, 0.9f), hit(11L, 0.4f)));
+        when(vectorSearchService.searchScored(2L, queryVector, 3)).thenReturn(List.of(hit(20L, 0.8f), hit(21L, 0.7f)));
+        when(vectorSearchService.searchScored(3L, queryVector, 3)).thenReturn(List.of(hit(30L, 0.1f)));
+
+        MultiSearchResponse response = multiSearchService.search(request(null, 3));
+
+        assertThat(response.getResults())
+                .extracting(CorpusSearchResponse.Hit::getChunkId)
+                .containsExactly(10L, 20L, 21L);
+        assertThat(response.getResults().get(1).getDocumentName()).isEqualTo("doc-2.pdf");
+        assertThat(response.getDocuments())
+                .extracting(MultiSearchResponse.DocumentTiming::getDocumentId)
+                .containsExactly(1L, 2L, 3L);
+        assertThat(response.getDocuments())
+                .extracting(MultiSearchResponse.DocumentTiming::getHits)
+                .containsExactly(2, 2, 1);
+        // The query is embedded once for the whole request
+        verify(vectorSearchService, times(1)).embedQuery("question");
+    }
+
+    @Test
+    void search_withFailingDocument_shouldReportErrorAndKeepOtherResults() {
+        when(documentRepository.findAllById(anyIterable())).thenReturn(List.of(document(1L), document(2L)));
+        when(vectorSearchService.searchScored(1L, queryVector, 5)).thenThrow(new IllegalStateException("segment corrupt"));
+        when(vectorSearchService.searchScored(2L, queryVector, 5)).thenReturn(List.of(hit(20L, 0.5f)));
+
+        MultiSearchResponse response = multiSearchService.search(request(List.of(1L, 2L), 5));
+
+        assertThat(response.getResults()).extracting(CorpusSearchResponse.Hit::getChunkId).containsExactly(20L);
+        assertThat(response.getDocuments().get(0).getError()).isEqualTo("segment corrupt");
+        assertThat(response.getDocuments().get(1).getError()).isNull();
+    }
+
+    @Test
+    void search_withUnknownId_shouldThrowNotFound() {
+        when(documentRepository.findAllById(anyIterable())).thenReturn(List.of(document(1L)));
+
+        assertThatThrownBy(() -> multiSearchService.search(request(List.of(1L, 99L), 5)))
+                .isInstanceOf(DocumentNotFoundException.class);
+        verify(vectorSearchService, never()).searchScored(any(), any(), anyInt());
+    }
+
+    @Test
+    void search_withUnprocessedDocument_shouldSkipIt() {
+        Document pending = document(4L);
+        pending.setStatus(Document.ProcessingStatus.PROCESSING);
+        when(documentRepository.findAllById(anyIterable())).thenReturn(List.of(pending));
+
+        MultiSearchResponse response = multiSearchService.search(request(List.of(4L), 5));
+
+        assertThat(response.getResults()).isEmpty();
+        assertThat(response.getDocuments().get(0).getError()).isEqualTo("Document is PROCESSING");
+        verify(vectorSearchService, never()).searchScored(any(), any(), anyInt());
+    }
+
+    private MultiSearchRequest request(List<Long> documentIds, int topK) {
+        return MultiSearchRequest.builder()
+                .query("question")
+                .documentIds(documentIds)
+                .topK(topK)
+                .build();
+    }
+
+    private Document document(Long id) {
+        return Document.builder()
+                .id(id)
+                .originalFileName("doc-" + id + ".pdf")
+                .status(Document.ProcessingStatus.COMPLETED)
+                .build();
+    }
+
+    private ScoredChunk hit(Long chunkId, float score) {
+        return new ScoredChunk(DocumentContent.builder().id(chunkId).content("chunk " + chunkId).build(), score);
+    }
+}
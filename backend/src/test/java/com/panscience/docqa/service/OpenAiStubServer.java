@@ -0,0 +1,72 @@
+package com.panscience.docqa.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Minimal OpenAI-compatible {@code /v1/chat/completions} endpoint on a local port. Each
+ * request is delayed by {@code delayMillis.applyAsLong(n)} where n counts requests from 1,
+ * so tests can make exactly the first call slow.
+ */
+class OpenAiStubServer implements AutoCloseable {
+
+    private static final String COMPLETION = """
+            {"id":"chatcmpl-stub","object":"chat.completion","created":1700000000,"model":"gpt-4o-mini",
+             "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+             "usage":{"prompt_tokens":12,"completion_tokens":3,"total_tokens":15}}
+            """;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final IntToLongFunction delayMillis;
+
+    OpenAiStubServer(IntToLongFunction delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", this::complete);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/";
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        int request = requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        try {
+            Thread.sleep(delayMillis.applyAsLong(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = COMPLETION.formatted("answer " + request).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(200, body.length);
+            out.write(body);
+        } catch (IOException e) {
+            // The client cancelled this request
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,88 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.PhraseSearchResponse;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.DocumentNotFoundException;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import com.panscience.docqa.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhraseSearchServiceImplTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private PhraseSearchServiceImpl phraseSearchService;
+
+    private final List<DocumentContent> chunks = List.of(
+            chunk(1L, 0, "Welcome everyone to the quarterly review.", 0.0, 4.0),
+            chunk(2L, 1, "Our quarterly churn was higher than planned, and churn in the quarterly cohort doubled.", 4.0, 12.0),
+            chunk(3L, 2, "Churn is tracked every quarter by the growth team.", 12.0, 16.0));
+
+    @BeforeEach
+    void setUp() {
+        TermIndexStore termIndexStore = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000);
+        termIndexStore.index(1L, chunks);
+        phraseSearchService = new PhraseSearchServiceImpl(documentRepository, termIndexStore);
+    }
+
+    @Test
+    void search_withExactPhrase_shouldReturnMatchingChunkWithTimes() {
+        PhraseSearchResponse response = phraseSearchService.search(1L, "'Quarterly churn'", null, 20);
+
+        assertThat(response.getResults()).singleElement().satisfies(hit -> {
+            assertThat(hit.getChunkId()).isEqualTo(2L);
+            assertThat(hit.getMatches()).isEqualTo(1);
+            assertThat(hit.getStartTime()).isEqualTo(4.0);
+            assertThat(hit.getEndTime()).isEqualTo(12.0);
+            // "quarterly" is word 1 of 14 in an eight second segment
+            assertThat(hit.getMatchTime()).isCloseTo(4.0 + 8.0 / 14, within(1e-9));
+            assertThat(hit.getContent()).isEqualTo(chunks.get(1).getContent());
+        });
+        verifyNoInteractions(documentRepository, documentContentRepository);
+    }
+
+    @Test
+    void search_withinWords_shouldMatchWholeTermsInEitherOrder() {
+        PhraseSearchResponse response = phraseSearchService.search(1L, "quarter churn", 4, 20);
+
+        assertThat(response.getResults()).extracting(PhraseSearchResponse.Hit::getChunkId).containsExactly(3L);
+    }
+
+    @Test
+    void search_withOnlyStopWords_shouldNotQueryChunks() {
+        assertThat(phraseSearchService.search(1L, "what is the", null, 20).getResults()).isEmpty();
+        verifyNoInteractions(documentContentRepository);
+    }
+
+    @Test
+    void search_withUnknownDocument_shouldThrow() {
+        when(documentRepository.existsById(99L)).thenReturn(false);
+
+        assertThatThrownBy(() -> phraseSearchService.search(99L, "quarterly churn", null, 20))
+                .isInstanceOf(DocumentNotFoundException.class);
+    }
+
+    private DocumentContent chunk(Long id, int index, String text, double start, double end) {
+        return DocumentContent.builder().id(id).chunkIndex(index).content(text)
+                .startTime(start).endTime(end).build();
+    }
+}
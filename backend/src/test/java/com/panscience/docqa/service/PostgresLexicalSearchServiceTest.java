@@ -0,0 +1,75 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.ChunkRank;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostgresLexicalSearchServiceTest {
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @Mock
+    private FuzzyTermExpander fuzzyTermExpander;
+
+    @InjectMocks
+    private PostgresLexicalSearchService lexicalSearchService;
+
+    @Test
+    void search_withAnyMatch_shouldOrTermsAndKeepServerRankOrder() {
+        when(documentContentRepository.searchFullText(1L, "churn | revenue", 5))
+                .thenReturn(List.of(rank(8L, 0.4f), rank(3L, 0.1f)));
+        when(documentContentRepository.findAllById(List.of(8L, 3L))).thenReturn(List.of(
+                DocumentContent.builder().id(3L).content("revenue").build(),
+                DocumentContent.builder().id(8L).content("churn and revenue").build()));
+
+        List<ScoredChunk> results = lexicalSearchService.search(1L, "What about churn & revenue?", 5);
+
+        assertThat(results).extracting(result -> result.chunk().getId()).containsExactly(8L, 3L);
+        assertThat(results.get(0).score()).isEqualTo(0.4f);
+        // Fuzzy expansion is opt-in, so no term index is loaded or written
+        verifyNoInteractions(fuzzyTermExpander);
+    }
+
+    @Test
+    void search_withFuzzyExpansion_shouldAndTermsAndOrTheirVariants() {
+        ReflectionTestUtils.setField(lexicalSearchService, "fuzzyExpansion", true);
+        Map<String, Float> churnVariants = new LinkedHashMap<>();
+        churnVariants.put("churn", 1f);
+        churnVariants.put("chern", 0.4f);
+        when(fuzzyTermExpander.expand(1L, List.of("churn", "revenue"))).thenReturn(List.of(
+                new FuzzyTermExpander.Expansion("churn", churnVariants), FuzzyTermExpander.Expansion.exact("revenue")));
+        when(documentContentRepository.searchFullText(1L, "(churn | chern) & revenue", 5)).thenReturn(List.of());
+        when(documentContentRepository.findAllById(List.of())).thenReturn(List.of());
+
+        assertThat(lexicalSearchService.search(1L, "churn revenue", 5, LexicalSearchService.Match.ALL)).isEmpty();
+    }
+
+    private ChunkRank rank(Long id, Float score) {
+        return new ChunkRank() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Float getRank() {
+                return score;
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QuantizedVectorsTest {
+
+    @Test
+    void scoreAll_shouldApproximateFloatDotProduct() {
+        Random random = new Random(11);
+        int rows = 50;
+        int dimension = 256;
+        float[] matrix = new float[rows * dimension];
+        for (int row = 0; row < rows; row++) {
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            System.arraycopy(VectorMath.normalize(vector), 0, matrix, row * dimension, dimension);
+        }
+        float[] query = new float[dimension];
+        System.arraycopy(matrix, 0, query, 0, dimension);
+
+        float[] exact = new float[rows];
+        float[] approximate = new float[rows];
+        new ScalarDotProductKernel().scoreAll(matrix, rows, dimension, query, exact);
+        QuantizedVectors.quantize(matrix, rows, dimension).scoreAll(query, approximate);
+
+        for (int row = 0; row < rows; row++) {
+            assertThat(approximate[row]).isCloseTo(exact[row], within(0.005f));
+        }
+    }
+
+    @Test
+    void quantize_withConstantRow_shouldDecodeExactly() {
+        float[] matrix = {0.5f, 0.5f, 0.5f, 0.5f};
+        float[] scores = new float[1];
+
+        QuantizedVectors.quantize(matrix, 1, 4).scoreAll(new float[]{1, 1, 1, 1}, scores);
+
+        assertThat(scores[0]).isCloseTo(2f, within(1e-6f));
+    }
+
+    @Test
+    void sizeInBytes_shouldBeAboutAQuarterOfFloatStorage() {
+        QuantizedVectors quantized = QuantizedVectors.quantize(new float[10 * 1536], 10, 1536);
+
+        assertThat(quantized.sizeInBytes()).isEqualTo(10 * 1536 + 10 * 8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.panscience.docqa.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QueryEmbeddingCacheTest {
+
+    private static final String MODEL = "text-embedding-3-small";
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_withEquivalentQuestion_shouldReuseCachedVector() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 100, Duration.ofHours(1), "");
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(MODEL, "Summarize this", text -> embed(calls));
+        float[] second = cache.get(MODEL, "  summarize   THIS? ", text -> embed(calls));
+
+        assertThat(calls).hasValue(1);
+        assertThat(second).containsExactly(1f, 0f);
+        assertThat(meterRegistry.counter("docqa.query.embedding.cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_withDifferentModel_shouldMiss() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 100, Duration.ofHours(1), "");
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(MODEL, "summarize this", text -> embed(calls));
+        cache.get("text-embedding-3-large", "summarize this", text -> embed(calls));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void get_overMaxEntries_shouldEvictLeastRecentlyUsed() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 2, Duration.ofHours(1), "");
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(MODEL, "a", text -> embed(calls));
+        cache.get(MODEL, "b", text -> embed(calls));
+        cache.get(MODEL, "a", text -> embed(calls));
+        cache.get(MODEL, "c", text -> embed(calls));
+        cache.get(MODEL, "a", text -> embed(calls));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void get_afterTtl_shouldRecompute() throws InterruptedException {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(meterRegistry, 100, Duration.ofMillis(1), "");
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(MODEL, "question", text -> embed(calls));
+        Thread.sleep(5);
+        cache.get(MODEL, "question", text -> embed(calls));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void snapshot_shouldSurviveRestart() {
+        String snapshot = tempDir.resolve("query-embeddings.bin").toString();
+        QueryEmbeddingCache before = new QueryEmbeddingCache(meterRegistry, 100, Duration.ofHours(1), snapshot);
+        before.get(MODEL, "what are the key dates", text -> new float[]{0.6f, 0.8f});
+        before.saveSnapshot();
+
+        QueryEmbeddingCache after = new QueryEmbeddingCache(new SimpleMeterRegistry(), 100, Duration.ofHours(1), snapshot);
+        after.loadSnapshot();
+        float[] restored = after.get(MODEL, "What are the key dates?", text -> {
+            throw new AssertionError("should be served from snapshot");
+        });
+
+        assertThat(restored).containsExactly(0.6f, 0.8f);
+    }
+
+    @Test
+    void snapshot_withQuestionOver64Kb_shouldKeepEveryEntry() {
+        String snapshot = tempDir.resolve("query-embeddings.bin").toString();
+        String longQuestion = "résumé ".repeat(12_000);
+        QueryEmbeddingCache before = new QueryEmbeddingCache(meterRegistry, 100, Duration.ofHours(1), snapshot);
+        before.get(MODEL, longQuestion, text -> new float[]{1f, 0f});
+        before.get(MODEL, "what are the key dates", text -> new float[]{0.6f, 0.8f});
+        before.saveSnapshot();
+
+        QueryEmbeddingCache after = new QueryEmbeddingCache(new SimpleMeterRegistry(), 100, Duration.ofHours(1), snapshot);
+        after.loadSnapshot();
+
+        assertThat(after.size()).isEqualTo(2);
+        assertThat(after.get(MODEL, longQuestion, text -> {
+            throw new AssertionError("should be served from snapshot");
+        })).containsExactly(1f, 0f);
+    }
+
+    private float[] embed(AtomicInteger calls) {
+        calls.incrementAndGet();
+        return new float[]{1f, 0f};
+    }
+}
@@ -0,0 +1,111 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.dto.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SemanticAnswerCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void lookup_withParaphraseAboveThreshold_shouldReturnCachedAnswer() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 10);
+        cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("Machine learning."));
+
+        ChatResponse hit = cache.lookup(1L, vector(0.99f, 0.14f));
+
+        assertThat(hit).isNotNull();
+        assertThat(hit.getResponse()).isEqualTo("Machine learning.");
+        assertThat(meterRegistry.counter("docqa.answer.cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void lookup_withDifferentQuestionOrDocument_shouldMiss() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 10);
+        cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("Machine learning."));
+
+        assertThat(cache.lookup(1L, vector(0.8f, 0.6f))).isNull();
+        assertThat(cache.lookup(2L, vector(1f, 0f))).isNull();
+        assertThat(cache.lookup(1L, null)).isNull();
+        assertThat(meterRegistry.counter("docqa.answer.cache", "result", "miss").count()).isEqualTo(2);
+    }
+
+    @Test
+    void lookup_afterTtl_shouldMiss() throws InterruptedException {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofMillis(20), 10);
+        cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("Machine learning."));
+
+        Thread.sleep(50);
+
+        assertThat(cache.lookup(1L, vector(1f, 0f))).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_beyondPerDocumentLimit_shouldEvictOldestAnswer() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 2);
+        cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("first"));
+        cache.put(1L, cache.generation(1L), vector(0f, 1f), answer("second"));
+        cache.put(1L, cache.generation(1L), vector(-1f, 0f), answer("third"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.lookup(1L, vector(1f, 0f))).isNull();
+        assertThat(cache.lookup(1L, vector(-1f, 0f)).getResponse()).isEqualTo("third");
+    }
+
+    @Test
+    void invalidate_shouldDropOnlyThatDocument() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 10);
+        cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("one"));
+        cache.put(2L, cache.generation(2L), vector(1f, 0f), answer("two"));
+
+        cache.invalidate(1L);
+
+        assertThat(cache.lookup(1L, vector(1f, 0f))).isNull();
+        assertThat(cache.lookup(2L, vector(1f, 0f)).getResponse()).isEqualTo("two");
+    }
+
+    @Test
+    void put_afterInvalidateSinceGeneration_shouldBeDropped() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 10);
+        long generation = cache.generation(1L);
+
+        cache.invalidate(1L);
+        cache.put(1L, generation, vector(1f, 0f), answer("built from replaced chunks"));
+
+        assertThat(cache.lookup(1L, vector(1f, 0f))).isNull();
+        assertThat(cache.generation(1L)).isNotEqualTo(generation);
+    }
+
+    @Test
+    void invalidate_inTransaction_shouldDropAnswersCachedBeforeCommit() {
+        SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, Duration.ofHours(1), 10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(1L);
+            cache.put(1L, cache.generation(1L), vector(1f, 0f), answer("built from pre-commit chunks"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.lookup(1L, vector(1f, 0f))).isNull();
+    }
+
+    private static float[] vector(float x, float y) {
+        return VectorMath.normalize(new float[]{x, y});
+    }
+
+    private static ChatResponse answer(String text) {
+        return ChatResponse.builder().response(text).build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>();
+
+    @Test
+    void execute_withConcurrentSameKey_shouldRunWorkOnceAndShareResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<SingleFlight.Result<String>> leader = new CompletableFuture<>();
+        Thread leaderThread = new Thread(() -> leader.complete(flight.execute("q", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            awaitQuietly(release);
+            return "answer";
+        })));
+        leaderThread.start();
+        started.await();
+
+        CompletableFuture<SingleFlight.Result<String>> follower = new CompletableFuture<>();
+        Thread followerThread = new Thread(() -> follower.complete(flight.execute("q", () -> {
+            runs.incrementAndGet();
+            return "other";
+        })));
+        followerThread.start();
+        // Parked on the leader's call
+        while (followerThread.isAlive() && followerThread.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("answer", false));
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(new SingleFlight.Result<>("answer", true));
+        assertThat(runs).hasValue(1);
+        assertThat(flight.inFlight()).isZero();
+    }
+
+    @Test
+    void execute_whenWorkFails_shouldRethrowAndRunAgainNextTime() {
+        assertThatThrownBy(() -> flight.execute("q", () -> {
+            throw new IllegalStateException("model unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(flight.execute("q", () -> "answer").value()).isEqualTo("answer");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
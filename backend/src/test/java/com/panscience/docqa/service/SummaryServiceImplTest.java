@@ -0,0 +1,135 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryServiceImplTest {
+
+    @Mock
+    private LlmGateway llmGateway;
+
+    @Mock
+    private ChatLanguageModel chatModel;
+
+    private SummaryServiceImpl summaryService;
+
+    @BeforeEach
+    void setUp() {
+        when(llmGateway.isEnabled()).thenReturn(true);
+        when(llmGateway.summaryModel()).thenReturn(chatModel);
+        lenient().when(chatModel.generate(anyString())).thenAnswer(invocation ->
+                "Summary of " + invocation.<String>getArgument(0).length() + " characters.");
+
+        summaryService = new SummaryServiceImpl(llmGateway, new TextRankSummarizer(),
+                new PartialSummaryCache(new SimpleMeterRegistry(), 100), new ConcurrentMapCacheManager("summaries"));
+        ReflectionTestUtils.setField(summaryService, "useMockAi", false);
+        // Small limits so a ten-chunk document is summarized in sections
+        ReflectionTestUtils.setField(summaryService, "maxInputChars", 2000);
+        ReflectionTestUtils.setField(summaryService, "extractiveSentences", 8);
+        ReflectionTestUtils.setField(summaryService, "sectionChars", 1000);
+        ReflectionTestUtils.setField(summaryService, "mapConcurrency", 2);
+        summaryService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        summaryService.shutdown();
+    }
+
+    @Test
+    void generateSummary_withLongDocument_shouldSummarizeEverySectionThenCombine() {
+        List<DocumentContent> chunks = chunks(10);
+
+        String summary = summaryService.generateSummary(chunks);
+
+        assertThat(summary).startsWith("Summary of");
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        // Two 400-character chunks per section: five section prompts and the final one
+        verify(chatModel, times(6)).generate(prompts.capture());
+        String allPrompts = String.join("", prompts.getAllValues());
+        chunks.forEach(chunk -> assertThat(allPrompts).contains(chunk.getContent()));
+    }
+
+    @Test
+    void generateSummary_afterOneChunkChanged_shouldOnlyResummarizeItsSection() {
+        List<DocumentContent> chunks = chunks(10);
+        summaryService.generateSummary(chunks);
+        clearInvocations(chatModel);
+
+        chunks.get(3).setContent(sentence("changed", 400));
+        summaryService.generateSummary(chunks);
+
+        ArgumentCaptor<String> prompts = ArgumentCaptor.forClass(String.class);
+        verify(chatModel, times(2)).generate(prompts.capture());
+        assertThat(prompts.getAllValues().get(0)).contains(chunks.get(2).getContent(), chunks.get(3).getContent());
+    }
+
+    @Test
+    void generateSummary_whenSectionFails_shouldUseItsKeySentences() {
+        when(chatModel.generate(argThat((String prompt) -> prompt != null
+                && prompt.startsWith("Summarize the following section") && prompt.contains("chunk4"))))
+                .thenThrow(new RuntimeException("Server error"));
+
+        String summary = summaryService.generateSummary(chunks(10));
+
+        assertThat(summary).startsWith("Summary of");
+        verify(chatModel).generate(argThat((String prompt) -> prompt.startsWith("Please provide")
+                && prompt.contains("chunk4 chunk4")));
+    }
+
+    @Test
+    void generateSummary_withSeveralSectionsWithinInputLimit_shouldUseOneCachedPrompt() {
+        // Three 400-character chunks: two sections, but well within one prompt
+        List<DocumentContent> chunks = chunks(3);
+
+        summaryService.generateSummary(chunks);
+        summaryService.generateSummary(chunks);
+
+        verify(chatModel, times(1)).generate(argThat((String prompt) -> prompt.startsWith("Please provide")));
+        verifyNoMoreInteractions(chatModel);
+    }
+
+    @Test
+    void sections_shouldGroupConsecutivePartsUpToLimit() {
+        List<String> sections = SummaryServiceImpl.sections(List.of("aaaa", "bbbb", "cccc", "dddddddddddd"), 9, "\n");
+
+        assertThat(sections).containsExactly("aaaa\nbbbb", "cccc", "dddddddddddd");
+    }
+
+    private static List<DocumentContent> chunks(int count) {
+        List<DocumentContent> chunks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunks.add(DocumentContent.builder()
+                    .content(sentence("chunk" + i, 400))
+                    .chunkIndex(i)
+                    .build());
+        }
+        return chunks;
+    }
+
+    private static String sentence(String word, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() + word.length() + 2 < length) {
+            text.append(text.length() == 0 ? "" : " ").append(word);
+        }
+        return text.append('.').toString();
+    }
+}
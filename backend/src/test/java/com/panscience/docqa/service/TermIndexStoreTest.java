@@ -0,0 +1,122 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TermIndexStoreTest {
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<DocumentContent> chunks = List.of(
+            DocumentContent.builder().id(10L).content("alpha beta").build(),
+            DocumentContent.builder().id(11L).content("beta gamma").build());
+
+    @Test
+    void get_afterRestart_shouldLoadPersistedIndexWithoutReadingChunks() {
+        new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000).index(1L, chunks);
+        when(documentContentRepository.countByDocumentId(1L)).thenReturn(2L);
+
+        DocumentTermIndex index = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000).get(1L);
+
+        assertThat(index.postings("beta").rows()).containsExactly(0, 1);
+        verify(documentContentRepository, never()).findByDocumentIdOrderByChunkIndex(any());
+    }
+
+    @Test
+    void get_withStaleFile_shouldRebuildFromChunks() {
+        new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000).index(1L, chunks.subList(0, 1));
+        when(documentContentRepository.countByDocumentId(1L)).thenReturn(2L);
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenReturn(chunks);
+
+        DocumentTermIndex index = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000).get(1L);
+
+        assertThat(index.chunkCount()).isEqualTo(2);
+    }
+
+    @Test
+    void index_overByteBudget_shouldEvictLeastRecentlyUsed() {
+        long oneIndex = DocumentTermIndex.build(1L, chunks).sizeInBytes();
+        TermIndexStore store = new TermIndexStore(documentContentRepository, tempDir.toString(), oneIndex);
+
+        store.index(1L, chunks);
+        store.index(2L, chunks);
+
+        assertThat(store.cachedBytes()).isLessThanOrEqualTo(oneIndex);
+        when(documentContentRepository.countByDocumentId(1L)).thenReturn(2L);
+        assertThat(store.get(1L).chunkCount()).as("reloaded from its file").isEqualTo(2);
+        verify(documentContentRepository).countByDocumentId(1L);
+    }
+
+    @Test
+    void invalidate_shouldDropIndexAndFile() {
+        TermIndexStore store = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000);
+        store.index(1L, chunks);
+
+        store.invalidate(1L);
+
+        assertThat(tempDir.resolve("terms").resolve("1.terms")).doesNotExist();
+    }
+
+    @Test
+    void get_forDeletedDocument_shouldNotRecreateFile() {
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenReturn(List.of());
+
+        DocumentTermIndex index = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000).get(1L);
+
+        assertThat(index.chunkCount()).isZero();
+        assertThat(tempDir.resolve("terms").resolve("1.terms")).doesNotExist();
+    }
+
+    @Test
+    void get_invalidatedWhileRebuilding_shouldNeitherCacheNorWriteIndex() {
+        TermIndexStore store = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000);
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenAnswer(invocation -> {
+            store.invalidate(1L);
+            return chunks;
+        }).thenReturn(List.of());
+
+        store.get(1L);
+
+        assertThat(tempDir.resolve("terms").resolve("1.terms")).doesNotExist();
+        assertThat(store.get(1L).chunkCount()).as("rebuilt again rather than served from cache").isZero();
+        assertThat(store.trackedLoads()).as("no load left in flight").isZero();
+    }
+
+    @Test
+    void invalidate_inTransaction_shouldDropIndexRebuiltBeforeCommit() {
+        TermIndexStore store = new TermIndexStore(documentContentRepository, tempDir.toString(), 1_000_000);
+        store.index(1L, chunks);
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenReturn(chunks);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.invalidate(1L);
+            store.get(1L);
+            assertThat(tempDir.resolve("terms").resolve("1.terms")).as("rebuilt from pre-commit rows").exists();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(tempDir.resolve("terms").resolve("1.terms")).doesNotExist();
+    }
+}
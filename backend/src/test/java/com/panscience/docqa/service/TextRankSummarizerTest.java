@@ -0,0 +1,66 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TextRankSummarizerTest {
+
+    private static final String TEXT = "Cats are small. Cats chase mice and birds in gardens. " +
+            "Dogs chase cats in gardens. The weather is nice today. Cats like gardens with birds.";
+
+    private final TextRankSummarizer summarizer = new TextRankSummarizer();
+
+    @Test
+    void summarize_shouldKeepBestConnectedSentencesInDocumentOrder() {
+        String summary = summarizer.summarize(TEXT, 2);
+
+        assertThat(summary).isEqualTo("Cats chase mice and birds in gardens. Dogs chase cats in gardens.");
+    }
+
+    @Test
+    void select_shouldSkipSentencesWithoutEnoughTerms() {
+        List<String> sentences = summarizer.select(TEXT, 10, Integer.MAX_VALUE);
+
+        assertThat(sentences).doesNotContain("Cats are small.").contains("The weather is nice today.");
+    }
+
+    @Test
+    void compress_shouldReturnShortTextUnchanged() {
+        assertThat(summarizer.compress(TEXT, 1000)).isSameAs(TEXT);
+    }
+
+    @Test
+    void compress_withLongDocument_shouldStayWithinLimit() {
+        String document = syntheticDocument(20_000);
+
+        String compressed = summarizer.compress(document, 15_000);
+
+        assertThat(compressed.length()).isLessThanOrEqualTo(15_000).isGreaterThan(10_000);
+        assertThat(document).contains(compressed.substring(0, compressed.indexOf('.') + 1));
+    }
+
+    @Test
+    void similarity_shouldNormalizeOverlapByLogLength() {
+        float similarity = TextRankSummarizer.similarity(new int[]{1, 2, 3, 4}, new int[]{2, 4, 8, 9});
+
+        assertThat(similarity).isCloseTo((float) (2 / (2 * Math.log(4))), within(1e-6f));
+        assertThat(TextRankSummarizer.similarity(new int[]{1, 2, 3}, new int[]{4, 5, 6})).isZero();
+    }
+
+    private static String syntheticDocument(int sentences) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            int words = 8 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                text.append(w == 0 ? "Term" : " term").append((int) (Math.pow(random.nextDouble(), 3) * 5000));
+            }
+            text.append(". ");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TopKSelectorTest {
+
+    @Test
+    void select_shouldReturnBestRowsInDescendingOrder() {
+        float[] scores = {0.1f, 0.9f, 0.4f, 0.7f, 0.2f, 0.8f};
+
+        int[] top = TopKSelector.select(scores, scores.length, 3);
+
+        assertThat(top).containsExactly(1, 5, 3);
+    }
+
+    @Test
+    void select_withKLargerThanCount_shouldReturnAllRows() {
+        float[] scores = {0.3f, 0.5f, 0.1f};
+
+        assertThat(TopKSelector.select(scores, scores.length, 10)).containsExactly(1, 0, 2);
+    }
+
+    @Test
+    void select_shouldOnlyConsiderFirstCountScores() {
+        float[] scores = {0.3f, 0.5f, 0.99f};
+
+        assertThat(TopKSelector.select(scores, 2, 2)).containsExactly(1, 0);
+    }
+
+    @Test
+    void select_shouldSkipNaNScores() {
+        float[] scores = {Float.NaN, 0.2f, Float.NaN};
+
+        assertThat(TopKSelector.select(scores, scores.length, 2)).containsExactly(1);
+    }
+
+    @Test
+    void select_withZeroK_shouldReturnEmpty() {
+        assertThat(TopKSelector.select(new float[]{1f}, 1, 0)).isEmpty();
+    }
+}
@@ -0,0 +1,38 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex index = TrigramIndex.build(
+            new String[]{"budget", "johnson", "jonson", "johnsen", "quarterly", "revenue"});
+
+    @Test
+    void trigrams_shouldPadLikePgTrgm() {
+        assertThat(TrigramIndex.trigrams("cat")).containsExactlyInAnyOrder("  c", " ca", "cat", "at ");
+    }
+
+    @Test
+    void similar_shouldRankVariantsByJaccardSimilarity() {
+        // johnson and jonson share 5 of their 8 + 7 trigrams: 5 / (8 + 7 - 5)
+        assertThat(index.similar("johnson", 0.3, 5)).extracting(TrigramIndex.Similar::term)
+                .containsExactly("jonson", "johnsen");
+        assertThat(index.similar("johnson", 0.3, 5).get(0).similarity()).isCloseTo(0.5f, within(1e-6f));
+    }
+
+    @Test
+    void similar_shouldFindMisspellingButNotItself() {
+        assertThat(index.similar("quartely", 0.3, 5)).extracting(TrigramIndex.Similar::term)
+                .containsExactly("quarterly");
+        assertThat(index.similar("budget", 0.3, 5)).isEmpty();
+    }
+
+    @Test
+    void similar_shouldRespectThresholdAndLimit() {
+        assertThat(index.similar("johnson", 0.48, 5)).extracting(TrigramIndex.Similar::term)
+                .containsExactly("jonson");
+        assertThat(index.similar("jonson", 0.3, 1)).hasSize(1);
+    }
+}
@@ -0,0 +1,213 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.Document;
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VectorSearchServiceImplTest {
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @Mock
+    private EmbeddingMatrixCache matrixCache;
+
+    @Mock
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    @Mock
+    private VectorSegmentStore segmentStore;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Mock
+    private LlmGateway llmGateway;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private VectorSearchServiceImpl vectorSearchService;
+    private ExecutorService executor;
+    private Document testDocument;
+
+    @BeforeEach
+    void setUp() {
+        vectorSearchService = new VectorSearchServiceImpl(documentContentRepository, matrixCache,
+                new ScalarDotProductKernel(), queryEmbeddingCache, segmentStore, llmGateway, transactionManager);
+        executor = Executors.newFixedThreadPool(2);
+
+        ReflectionTestUtils.setField(vectorSearchService, "useMockAi", false);
+        ReflectionTestUtils.setField(vectorSearchService, "embeddingModel", embeddingModel);
+        ReflectionTestUtils.setField(vectorSearchService, "embeddingExecutor", executor);
+        ReflectionTestUtils.setField(vectorSearchService, "batchSize", 2);
+        ReflectionTestUtils.setField(vectorSearchService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(vectorSearchService, "retryBackoffMs", 1L);
+
+        testDocument = Document.builder().id(1L).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void generateAndStoreEmbeddings_shouldWriteOneBulkUpdatePerBatch() {
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation ->
+                Response.from(embeddings(invocation.<List<?>>getArgument(0).size())));
+
+        int stored = vectorSearchService.generateAndStoreEmbeddings(chunks(5));
+
+        assertThat(stored).isEqualTo(5);
+        verify(embeddingModel, times(3)).embedAll(anyList());
+        verify(documentContentRepository, times(3)).updateEmbeddingVectors(anyMap());
+        verify(documentContentRepository, never()).save(any());
+        verify(matrixCache).invalidate(1L);
+        verify(segmentStore).invalidate(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void generateAndStoreEmbeddings_withPartialResponse_shouldRetryOnlyMissingChunks() {
+        ReflectionTestUtils.setField(vectorSearchService, "batchSize", 3);
+        when(embeddingModel.embedAll(anyList()))
+                .thenReturn(Response.from(embeddings(2)))
+                .thenThrow(new RuntimeException("429 Too Many Requests"))
+                .thenReturn(Response.from(embeddings(1)));
+
+        List<DocumentContent> chunks = chunks(3);
+
+        int stored = vectorSearchService.generateAndStoreEmbeddings(chunks);
+
+        assertThat(stored).isEqualTo(3);
+        ArgumentCaptor<Map<Long, byte[]>> updates = ArgumentCaptor.forClass(Map.class);
+        verify(documentContentRepository).updateEmbeddingVectors(updates.capture());
+        assertThat(updates.getValue()).containsOnlyKeys(0L, 1L, 2L);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.getEmbeddingVector()).isNotNull());
+    }
+
+    @Test
+    void generateAndStoreEmbeddings_shouldWriteAllBatchesInOneTransactionAfterEmbedding() {
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation ->
+                Response.from(embeddings(invocation.<List<?>>getArgument(0).size())));
+
+        assertThat(vectorSearchService.generateAndStoreEmbeddings(chunks(4))).isEqualTo(4);
+
+        InOrder order = inOrder(embeddingModel, transactionManager, documentContentRepository);
+        order.verify(embeddingModel, times(2)).embedAll(anyList());
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(documentContentRepository, times(2)).updateEmbeddingVectors(anyMap());
+        order.verify(transactionManager).commit(any());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void generateAndStoreEmbeddings_inMockMode_shouldSkip() {
+        ReflectionTestUtils.setField(vectorSearchService, "useMockAi", true);
+
+        int stored = vectorSearchService.generateAndStoreEmbeddings(chunks(2));
+
+        assertThat(stored).isZero();
+        verifyNoInteractions(embeddingModel, documentContentRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void search_withInt8Quantization_shouldRerankShortlistWithFullPrecisionVectors() {
+        ReflectionTestUtils.setField(vectorSearchService, "quantization", "int8");
+        ReflectionTestUtils.setField(vectorSearchService, "rerankFactor", 2);
+        List<DocumentContent> chunks = chunks(3);
+        chunks.get(0).setEmbeddingVector(EmbeddingCodec.encode(VectorMath.normalize(new float[]{1f, 0.1f})));
+        chunks.get(1).setEmbeddingVector(EmbeddingCodec.encode(VectorMath.normalize(new float[]{1f, 0.2f})));
+        chunks.get(2).setEmbeddingVector(EmbeddingCodec.encode(VectorMath.normalize(new float[]{0f, 1f})));
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenReturn(chunks);
+        when(matrixCache.get(eq(1L), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, DocumentMatrix>>getArgument(1).apply(1L));
+        when(queryEmbeddingCache.get(any(), eq("query"), any())).thenReturn(new float[]{1f, 0f});
+        // Full-precision vectors decide the final order among the shortlisted rows
+        when(documentContentRepository.findEmbeddingVectors(anyCollection())).thenReturn(Map.of(
+                0L, EmbeddingCodec.encode(new float[]{0.5f, 0.5f}),
+                1L, EmbeddingCodec.encode(new float[]{0.9f, 0.1f})));
+
+        List<DocumentContent> results = vectorSearchService.search(1L, "query", 1);
+
+        assertThat(results).extracting(DocumentContent::getId).containsExactly(1L);
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(documentContentRepository).findEmbeddingVectors(ids.capture());
+        assertThat(ids.getValue()).containsExactlyInAnyOrder(0L, 1L);
+    }
+
+    @Test
+    void search_withSegmentStorage_shouldScoreMappedSegmentWithoutDatabase(@TempDir Path tempDir)
+            throws IOException {
+        ReflectionTestUtils.setField(vectorSearchService, "storage", "segment");
+        Path file = tempDir.resolve("1.vseg");
+        float[] vectors = {1f, 0f, 0.6f, 0.8f, 0f, 1f};
+        VectorSegment.write(file, 1L, new long[]{10L, 11L, 12L}, vectors, 2);
+        VectorSegment segment = VectorSegment.open(file);
+        when(segmentStore.get(1L)).thenReturn(segment);
+        when(queryEmbeddingCache.get(any(), eq("query"), any())).thenReturn(new float[]{0f, 1f});
+        // Chunk 11 was deleted after the segment was written
+        when(segmentStore.chunks(segment)).thenReturn(Arrays.asList(
+                DocumentContent.builder().id(10L).content("a").build(),
+                null,
+                DocumentContent.builder().id(12L).content("c").build()));
+
+        List<DocumentContent> results = vectorSearchService.search(1L, "query", 2);
+
+        assertThat(results).extracting(DocumentContent::getId).containsExactly(12L);
+        verifyNoInteractions(matrixCache, documentContentRepository);
+    }
+
+    private List<DocumentContent> chunks(int count) {
+        List<DocumentContent> chunks = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            chunks.add(DocumentContent.builder()
+                    .id(i)
+                    .document(testDocument)
+                    .content("chunk " + i)
+                    .chunkIndex((int) i)
+                    .build());
+        }
+        return chunks;
+    }
+
+    private List<Embedding> embeddings(int count) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            embeddings.add(Embedding.from(new float[]{1f, i}));
+        }
+        return embeddings;
+    }
+}
@@ -0,0 +1,173 @@
+package com.panscience.docqa.service;
+
+import com.panscience.docqa.entity.DocumentContent;
+import com.panscience.docqa.exception.FileStorageException;
+import com.panscience.docqa.repository.DocumentContentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VectorSegmentStoreTest {
+
+    @Mock
+    private DocumentContentRepository documentContentRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private VectorSegmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new VectorSegmentStore(documentContentRepository, tempDir.toString(), 1_000_000);
+    }
+
+    @Test
+    void get_withMissingFile_shouldBuildSegmentFromEmbeddedChunks() {
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(1L)).thenReturn(List.of(
+                chunk(10L, new float[]{1f, 0f}),
+                DocumentContent.builder().id(11L).content("not embedded").build(),
+                chunk(12L, new float[]{0f, 1f})));
+
+        VectorSegment segment = store.get(1L);
+
+        assertThat(segment.rows()).isEqualTo(2);
+        assertThat(segment.chunkIdForRow(1)).isEqualTo(12L);
+        assertThat(tempDir.resolve("segments").resolve("1.vseg")).exists();
+        // Mapped segments are reused until invalidated
+        assertThat(store.get(1L)).isSameAs(segment);
+        verify(documentContentRepository, times(1)).findByDocumentIdOrderByChunkIndex(1L);
+    }
+
+    @Test
+    void get_withStaleFile_shouldRebuild() throws IOException {
+        VectorSegment.write(tempDir.resolve("segments").resolve("2.vseg"), 2L, new long[]{20L},
+                new float[]{1f, 0f}, 2);
+        when(documentContentRepository.countByDocumentIdAndEmbeddingVectorIsNotNull(2L)).thenReturn(2L);
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(2L)).thenReturn(List.of(
+                chunk(20L, new float[]{1f, 0f}),
+                chunk(21L, new float[]{0f, 1f})));
+
+        assertThat(store.get(2L).rows()).isEqualTo(2);
+    }
+
+    @Test
+    void get_withCurrentFile_shouldNotReadChunks() throws IOException {
+        VectorSegment.write(tempDir.resolve("segments").resolve("3.vseg"), 3L, new long[]{30L},
+                new float[]{1f, 0f}, 2);
+        when(documentContentRepository.countByDocumentIdAndEmbeddingVectorIsNotNull(3L)).thenReturn(1L);
+
+        assertThat(store.get(3L).chunkIdForRow(0)).isEqualTo(30L);
+        verify(documentContentRepository, never()).findByDocumentIdOrderByChunkIndex(any());
+    }
+
+    @Test
+    void chunks_shouldReadRowChunksOnceUntilInvalidated() throws IOException {
+        VectorSegment.write(tempDir.resolve("segments").resolve("5.vseg"), 5L, new long[]{50L, 51L},
+                new float[]{1f, 0f, 0f, 1f}, 2);
+        when(documentContentRepository.countByDocumentIdAndEmbeddingVectorIsNotNull(5L)).thenReturn(2L);
+        when(documentContentRepository.findAllById(List.of(50L, 51L)))
+                .thenReturn(List.of(chunk(51L, new float[]{0f, 1f})));
+        VectorSegment segment = store.get(5L);
+
+        List<DocumentContent> rows = store.chunks(segment);
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).as("deleted chunk").isNull();
+        assertThat(rows.get(1).getContent()).isEqualTo("chunk 51");
+        assertThat(rows.get(1).getEmbeddingVector()).isNull();
+        assertThat(store.chunks(segment)).isSameAs(rows);
+        verify(documentContentRepository, times(1)).findAllById(any());
+
+        store.invalidate(5L);
+        store.chunks(segment);
+        verify(documentContentRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void chunks_overByteBudget_shouldEvictLeastRecentlyUsedDocument() throws IOException {
+        long oneDocument = Long.BYTES + DocumentMatrix.estimateSize(chunk(80L, new float[]{1f, 0f}));
+        VectorSegmentStore small = new VectorSegmentStore(documentContentRepository, tempDir.toString(), oneDocument);
+        for (long documentId = 8; documentId <= 9; documentId++) {
+            long chunkId = documentId * 10;
+            VectorSegment.write(tempDir.resolve("segments").resolve(documentId + ".vseg"), documentId,
+                    new long[]{chunkId}, new float[]{1f, 0f}, 2);
+            when(documentContentRepository.countByDocumentIdAndEmbeddingVectorIsNotNull(documentId)).thenReturn(1L);
+            when(documentContentRepository.findAllById(List.of(chunkId)))
+                    .thenReturn(List.of(chunk(chunkId, new float[]{1f, 0f})));
+        }
+
+        small.chunks(small.get(8L));
+        small.chunks(small.get(9L));
+        small.chunks(small.get(8L));
+
+        assertThat(small.cachedChunkBytes()).isLessThanOrEqualTo(oneDocument);
+        verify(documentContentRepository, times(2)).findAllById(List.of(80L));
+    }
+
+    @Test
+    void invalidate_shouldDeleteSegmentFile() throws IOException {
+        Path file = tempDir.resolve("segments").resolve("4.vseg");
+        VectorSegment.write(file, 4L, new long[]{40L}, new float[]{1f, 0f}, 2);
+
+        store.invalidate(4L);
+
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    @Test
+    void get_invalidatedWhileRebuilding_shouldNeitherWriteNorCacheSegment() {
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(6L)).thenAnswer(invocation -> {
+            store.invalidate(6L);
+            return List.of(chunk(60L, new float[]{1f, 0f}));
+        });
+
+        assertThatThrownBy(() -> store.get(6L)).isInstanceOf(FileStorageException.class);
+
+        assertThat(tempDir.resolve("segments").resolve("6.vseg")).doesNotExist();
+        assertThat(store.trackedLoads()).as("no load left in flight").isZero();
+    }
+
+    @Test
+    void invalidate_inTransaction_shouldDropSegmentRebuiltBeforeCommit() {
+        when(documentContentRepository.findByDocumentIdOrderByChunkIndex(7L))
+                .thenReturn(List.of(chunk(70L, new float[]{1f, 0f})));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.invalidate(7L);
+            store.get(7L);
+            assertThat(tempDir.resolve("segments").resolve("7.vseg")).as("rebuilt from pre-commit rows").exists();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(tempDir.resolve("segments").resolve("7.vseg")).doesNotExist();
+        store.get(7L);
+        verify(documentContentRepository, times(2)).findByDocumentIdOrderByChunkIndex(7L);
+    }
+
+    private DocumentContent chunk(Long id, float[] vector) {
+        return DocumentContent.builder()
+                .id(id)
+                .content("chunk " + id)
+                .embeddingVector(EmbeddingCodec.encode(vector))
+                .build();
+    }
+}
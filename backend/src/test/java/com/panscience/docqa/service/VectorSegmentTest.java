@@ -0,0 +1,57 @@
+package com.panscience.docqa.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VectorSegmentTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void open_shouldMapWhatWasWritten() throws IOException {
+        Path file = tempDir.resolve("7.vseg");
+        float[] vectors = {0.6f, 0.8f, 0f, 1f, 1f, 0f};
+
+        VectorSegment.write(file, 7L, new long[]{100L, 101L, 102L}, vectors, 2);
+        VectorSegment segment = VectorSegment.open(file);
+
+        assertThat(segment.documentId()).isEqualTo(7L);
+        assertThat(segment.rows()).isEqualTo(3);
+        assertThat(segment.dimension()).isEqualTo(2);
+        assertThat(segment.chunkIdForRow(2)).isEqualTo(102L);
+
+        float[] scores = new float[3];
+        new ScalarDotProductKernel().scoreAll(segment.matrix(), 3, 2, new float[]{1f, 0f}, scores);
+        assertThat(scores).containsExactly(0.6f, 0f, 1f);
+    }
+
+    @Test
+    void open_withTruncatedFile_shouldFail() throws IOException {
+        Path file = tempDir.resolve("8.vseg");
+        VectorSegment.write(file, 8L, new long[]{1L, 2L}, new float[]{1f, 0f, 0f, 1f}, 2);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+
+        assertThatThrownBy(() -> VectorSegment.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("does not match its header");
+    }
+
+    @Test
+    void open_withForeignFile_shouldFail() throws IOException {
+        Path file = tempDir.resolve("9.vseg");
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> VectorSegment.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported vector segment format");
+    }
+}
@@ -19,6 +19,7 @@ export class ChatbotComponent implements AfterViewChecked {
     messages: ChatMessage[] = [];
     input = '';
     loading = false;
+    streaming = false;
     sessionId?: string;
 
     constructor(private chatService: ChatService) { }
@@ -35,7 +36,7 @@ export class ChatbotComponent implements AfterViewChecked {
     }
 
     sendMessage(): void {
-        if (!this.input.trim() || this.loading) return;
+        if (!this.input.trim() || this.loading || this.streaming) return;
 
         const userMessage: ChatMessage = {
             role: 'user',
@@ -46,28 +47,43 @@ export class ChatbotComponent implements AfterViewChecked {
         const messageText = this.input;
         this.input = '';
         this.loading = true;
+        this.streaming = true;
 
-        this.chatService.send({
+        // Tokens are appended to this message as they stream in
+        const reply: ChatMessage = { role: 'assistant', content: '' };
+        this.messages.push(reply);
+
+        this.chatService.stream({
             documentId: this.documentId,
             message: messageText,
             sessionId: this.sessionId
         }).subscribe({
-            next: (response) => {
-                this.sessionId = response.sessionId;
-                this.messages.push({
-                    role: 'assistant',
-                    content: response.response,
-                    timestamps: response.timestamps
-                });
-                this.loading = false;
+            next: (event) => {
+                switch (event.event) {
+                    case 'session':
+                        this.sessionId = event.data.sessionId;
+                        break;
+                    case 'token':
+                        reply.content += event.data.text;
+                        this.loading = false;
+                        break;
+                    case 'timestamps':
+                        reply.timestamps = event.data;
+                        break;
+                    case 'error':
+                        reply.content = 'Sorry, I encountered an error. Please try again.';
+                        break;
+                }
             },
             error: (err) => {
                 console.error('Chat error:', err);
-                this.messages.push({
-                    role: 'assistant',
-                    content: 'Sorry, I encountered an error. Please try again.'
-                });
+                reply.content = 'Sorry, I encountered an error. Please try again.';
+                this.loading = false;
+                this.streaming = false;
+            },
+            complete: () => {
                 this.loading = false;
+                this.streaming = false;
             }
         });
     }
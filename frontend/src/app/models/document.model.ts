@@ -34,8 +34,17 @@ export interface ChatResponse {
     response: string;
     sessionId: string;
     timestamps: TimestampReference[];
+    cached?: boolean;
+    fallback?: boolean;
 }
 
+export type ChatStreamEvent =
+    | { event: 'session'; data: { sessionId: string } }
+    | { event: 'fallback'; data: { reason: string } }
+    | { event: 'token'; data: { text: string } }
+    | { event: 'timestamps'; data: TimestampReference[] }
+    | { event: 'error'; data: { message: string } };
+
 export interface TimestampEntry {
     startTime: number;
     endTime: number;
@@ -1,7 +1,7 @@
 import { Injectable } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
 import { Observable } from 'rxjs';
-import { ChatRequest, ChatResponse } from '../models/document.model';
+import { ChatRequest, ChatResponse, ChatStreamEvent } from '../models/document.model';
 
 @Injectable({
     providedIn: 'root'
@@ -14,4 +14,67 @@ export class ChatService {
     send(request: ChatRequest): Observable<ChatResponse> {
         return this.http.post<ChatResponse>(this.apiUrl, request);
     }
+
+    /**
+     * Posts the question to the SSE endpoint and emits each server event as it arrives.
+     * HttpClient buffers whole responses, so the stream is read with fetch instead.
+     */
+    stream(request: ChatRequest): Observable<ChatStreamEvent> {
+        return new Observable<ChatStreamEvent>(subscriber => {
+            const controller = new AbortController();
+            const token = localStorage.getItem('token');
+            const headers: Record<string, string> = {
+                'Content-Type': 'application/json',
+                Accept: 'text/event-stream'
+            };
+            if (token) {
+                headers['Authorization'] = `Bearer ${token}`;
+            }
+
+            fetch(`${this.apiUrl}/stream`, {
+                method: 'POST',
+                headers,
+                body: JSON.stringify(request),
+                signal: controller.signal
+            }).then(async response => {
+                if (!response.ok || !response.body) {
+                    throw new Error(`Chat stream failed with status ${response.status}`);
+                }
+                const reader = response.body.getReader();
+                const decoder = new TextDecoder();
+                let buffer = '';
+                while (true) {
+                    const { done, value } = await reader.read();
+                    if (done) break;
+                    buffer += decoder.decode(value, { stream: true });
+                    // Events are separated by a blank line
+                    let boundary: number;
+                    while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+                        const event = this.parseEvent(buffer.substring(0, boundary));
+                        buffer = buffer.substring(boundary + 2);
+                        if (event) subscriber.next(event);
+                    }
+                }
+                subscriber.complete();
+            }).catch(err => {
+                if (!controller.signal.aborted) subscriber.error(err);
+            });
+
+            return () => controller.abort();
+        });
+    }
+
+    private parseEvent(raw: string): ChatStreamEvent | null {
+        let name = 'message';
+        const data: string[] = [];
+        for (const line of raw.split('\n')) {
+            if (line.startsWith('event:')) {
+                name = line.substring(6).trim();
+            } else if (line.startsWith('data:')) {
+                data.push(line.substring(5));
+            }
+        }
+        if (data.length === 0) return null;
+        return { event: name, data: JSON.parse(data.join('\n')) } as ChatStreamEvent;
+    }
 }